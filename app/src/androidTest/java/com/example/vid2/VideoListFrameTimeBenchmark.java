@@ -0,0 +1,161 @@
+package com.example.vid2;
+
+import android.Manifest;
+import android.app.Instrumentation;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Frame-time harness for the video list: flings the list of the device's real library up and
+ * down and reports frame-duration percentiles and the share of frames that missed the
+ * display's deadline, from the window's {@link FrameMetrics}, as instrumentation status
+ * (shown by {@code am instrument -r}) and in logcat. Run it on the same device before and
+ * after a change to the rows to compare; it skips when the library is too small to scroll.
+ */
+@RunWith(AndroidJUnit4.class)
+public class VideoListFrameTimeBenchmark {
+
+    private static final String TAG = "ListFrameTime";
+    private static final int REPORT_STATUS = 2;
+
+    private static final int MIN_VIDEOS = 40;
+    private static final int FLINGS = 12;
+    private static final int FLING_VELOCITY = 12_000;
+    private static final long LOAD_TIMEOUT_MS = 15_000;
+    private static final long SETTLE_TIMEOUT_MS = 5_000;
+
+    @Test
+    public void flingFrameTimes() throws Exception {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        String permission = Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                ? Manifest.permission.READ_MEDIA_VIDEO : Manifest.permission.READ_EXTERNAL_STORAGE;
+        instrumentation.getUiAutomation().grantRuntimePermission(
+                instrumentation.getTargetContext().getPackageName(), permission);
+
+        try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+            AtomicReference<RecyclerView> list = new AtomicReference<>();
+            AtomicReference<Window> window = new AtomicReference<>();
+            AtomicReference<Float> refreshRate = new AtomicReference<>();
+            scenario.onActivity(activity -> {
+                list.set(activity.findViewById(R.id.videoRecyclerView));
+                window.set(activity.getWindow());
+                refreshRate.set(activity.getWindowManager().getDefaultDisplay().getRefreshRate());
+            });
+
+            int videos = awaitItems(list.get(), instrumentation);
+            Assume.assumeTrue("needs " + MIN_VIDEOS + " videos, found " + videos, videos >= MIN_VIDEOS);
+
+            // Thumbnails decoded during the first pass would be measured as well; warm up once
+            fling(list.get(), instrumentation, 2);
+
+            FrameRecorder recorder = new FrameRecorder();
+            HandlerThread thread = new HandlerThread("frame-metrics");
+            thread.start();
+            instrumentation.runOnMainSync(() -> window.get().addOnFrameMetricsAvailableListener(
+                    recorder, new Handler(thread.getLooper())));
+            fling(list.get(), instrumentation, FLINGS);
+            instrumentation.runOnMainSync(() -> window.get().removeOnFrameMetricsAvailableListener(recorder));
+            thread.quitSafely();
+
+            long[] durations = recorder.durations();
+            assertTrue("no frames recorded", durations.length > 0);
+            Arrays.sort(durations);
+            long deadlineNs = (long) (1_000_000_000L / refreshRate.get());
+            int janky = 0;
+            for (long d : durations) {
+                if (d > deadlineNs) janky++;
+            }
+            String summary = String.format("%s: %d videos, %d frames, p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, "
+                            + "%.1f%% over the %.1f ms deadline, %d over 700 ms",
+                    layoutName(list.get()), videos, durations.length,
+                    percentile(durations, 50), percentile(durations, 90), percentile(durations, 99),
+                    janky * 100.0 / durations.length, deadlineNs / 1e6, recorder.frozen.get());
+            Log.i(TAG, summary);
+            Bundle results = new Bundle();
+            results.putString(Instrumentation.REPORT_KEY_STREAMRESULT, "\n" + summary + "\n");
+            results.putInt("frames", durations.length);
+            results.putDouble("p50_ms", percentile(durations, 50));
+            results.putDouble("p90_ms", percentile(durations, 90));
+            results.putDouble("p99_ms", percentile(durations, 99));
+            results.putDouble("janky_percent", janky * 100.0 / durations.length);
+            // Outside the runner's own status codes, so `am instrument -r` prints it as is
+            instrumentation.sendStatus(REPORT_STATUS, results);
+        }
+    }
+
+    private static int awaitItems(RecyclerView list, Instrumentation instrumentation) {
+        long deadline = SystemClock.uptimeMillis() + LOAD_TIMEOUT_MS;
+        int[] count = new int[2];
+        // Done once the count has stopped growing between two polls
+        while (SystemClock.uptimeMillis() < deadline) {
+            instrumentation.runOnMainSync(() -> count[1] = list.getAdapter().getItemCount());
+            if (count[1] > 0 && count[1] == count[0]) break;
+            count[0] = count[1];
+            SystemClock.sleep(500);
+        }
+        return count[1];
+    }
+
+    // Alternates down and up so every fling covers rows it did not just show
+    private static void fling(RecyclerView list, Instrumentation instrumentation, int times) {
+        for (int i = 0; i < times; i++) {
+            int velocity = (i % 2 == 0) ? FLING_VELOCITY : -FLING_VELOCITY;
+            instrumentation.runOnMainSync(() -> list.fling(0, velocity));
+            long deadline = SystemClock.uptimeMillis() + SETTLE_TIMEOUT_MS;
+            int[] state = {RecyclerView.SCROLL_STATE_SETTLING};
+            while (state[0] != RecyclerView.SCROLL_STATE_IDLE && SystemClock.uptimeMillis() < deadline) {
+                SystemClock.sleep(50);
+                instrumentation.runOnMainSync(() -> state[0] = list.getScrollState());
+            }
+        }
+    }
+
+    private static String layoutName(RecyclerView list) {
+        return list.getLayoutManager().getClass().getSimpleName();
+    }
+
+    private static double percentile(long[] sorted, int p) {
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(p / 100.0 * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /** Total durations of the frames drawn while it is registered. */
+    private static final class FrameRecorder implements Window.OnFrameMetricsAvailableListener {
+        private long[] durations = new long[1024];
+        private int count;
+        final AtomicInteger frozen = new AtomicInteger();
+
+        @Override
+        public synchronized void onFrameMetricsAvailable(Window window, FrameMetrics metrics, int dropped) {
+            long total = metrics.getMetric(FrameMetrics.TOTAL_DURATION);
+            if (total > 700_000_000L) frozen.incrementAndGet();
+            if (count == durations.length) durations = Arrays.copyOf(durations, count * 2);
+            durations[count++] = total;
+        }
+
+        synchronized long[] durations() {
+            return Arrays.copyOf(durations, count);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.vid2;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.IBinder;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+
+/**
+ * Keeps audio-only playback going without {@link PlayerActivity} in front. It runs in the
+ * foreground for as long as the screen is in audio-only mode and drives the player the screen
+ * holds from {@link PlayerPool}, with play/pause and stop in its notification.
+ *
+ * When the screen closes while playing audio only, it hands its lease over with
+ * {@link #adopt}: the service then owns the player, and gives it back to the pool once playback
+ * stops or ends. Tapping the notification opens a screen that takes the player back where it
+ * was. Main thread only.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class AudioPlaybackService extends Service {
+
+    private static final String CHANNEL_ID = "playback";
+    private static final int NOTIFICATION_ID = 1;
+    private static final String ACTION_TOGGLE = "com.example.vid2.action.TOGGLE";
+    private static final String ACTION_STOP = "com.example.vid2.action.STOP";
+    private static final String ACTION_ADOPT = "com.example.vid2.action.ADOPT";
+    private static final String EXTRA_PLAYLIST_ID = "playlistId";
+    private static final String EXTRA_BITRATE = "bitrate";
+
+    public static void start(Context context) {
+        ContextCompat.startForegroundService(context, new Intent(context, AudioPlaybackService.class));
+    }
+
+    /**
+     * Takes over {@link PlayerPool#current}, just handed over with {@link PlayerPool#transfer}.
+     * The playlist and bitrate are passed back to the screen the notification opens.
+     */
+    public static void adopt(Context context, long playlistId, long bitrate) {
+        ContextCompat.startForegroundService(context, new Intent(context, AudioPlaybackService.class)
+                .setAction(ACTION_ADOPT)
+                .putExtra(EXTRA_PLAYLIST_ID, playlistId)
+                .putExtra(EXTRA_BITRATE, bitrate));
+    }
+
+    public static void stop(Context context) {
+        context.stopService(new Intent(context, AudioPlaybackService.class));
+    }
+
+    private final Player.Listener listener = new Player.Listener() {
+        @Override
+        public void onIsPlayingChanged(boolean isPlaying) {
+            updateNotification();
+        }
+
+        @Override
+        public void onMediaItemTransition(@Nullable MediaItem mediaItem, int reason) {
+            updateNotification();
+        }
+
+        @Override
+        public void onPlaybackStateChanged(int state) {
+            // Stopped, failed or played out: nothing left to keep alive
+            if (state == Player.STATE_IDLE || state == Player.STATE_ENDED) stopSelf();
+        }
+    };
+
+    private PlayerPool.Lease lease;
+    // Set once the screen is gone and the player is ours to give back
+    private boolean owner;
+    private long playlistId = -1;
+    private long bitrate;
+    private PlaybackModeStats stats;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Playback",
+                NotificationManager.IMPORTANCE_LOW);
+        getSystemService(NotificationManager.class).createNotificationChannel(channel);
+    }
+
+    @Override
+    public int onStartCommand(@Nullable Intent intent, int flags, int startId) {
+        PlayerPool pool = PlayerPool.getInstance(this);
+        String action = intent != null ? intent.getAction() : null;
+        boolean adopt = ACTION_ADOPT.equals(action);
+        // Only the handed-over lease: a screen opened since may have taken it back already
+        PlayerPool.Lease current = adopt ? pool.background() : pool.current();
+        if (current != lease && !owner) {
+            if (lease != null) lease.removeListener(listener);
+            lease = current;
+            if (lease != null) lease.addListener(listener);
+        }
+        if (adopt && lease != null && !owner) {
+            owner = true;
+            playlistId = intent.getLongExtra(EXTRA_PLAYLIST_ID, -1);
+            bitrate = intent.getLongExtra(EXTRA_BITRATE, 0);
+            // Audio-only time off screen counts too
+            stats = new PlaybackModeStats(this, PlaybackModeStats.Mode.AUDIO_ONLY, lease.player.isPlaying());
+            lease.addAnalyticsListener(stats);
+        }
+        // Foreground first, even when there turns out to be nothing to play
+        ServiceCompat.startForeground(this, NOTIFICATION_ID, buildNotification(),
+                ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK);
+        if (lease == null) {
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+
+        if (ACTION_TOGGLE.equals(action)) {
+            if (lease.player.isPlaying()) lease.player.pause();
+            else lease.player.play();
+        } else if (ACTION_STOP.equals(action)) {
+            lease.player.pause();
+            stopSelf();
+        }
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        if (owner) {
+            stats.save();
+            // A no-op when a screen has taken the player back already
+            PlayerPool.getInstance(this).recycle(lease);
+        } else if (lease != null) {
+            lease.removeListener(listener);
+        }
+        lease = null;
+        ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private void updateNotification() {
+        getSystemService(NotificationManager.class).notify(NOTIFICATION_ID, buildNotification());
+    }
+
+    private Notification buildNotification() {
+        boolean playing = lease != null && lease.player.isPlaying();
+        MediaItem item = lease != null ? lease.player.getCurrentMediaItem() : null;
+
+        Intent open = new Intent(this, PlayerActivity.class).addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        if (owner) {
+            // The screen is gone: a new one takes the player back
+            open.putExtra("playlistId", playlistId)
+                    .putExtra("bitrate", bitrate)
+                    .putExtra(PlayerActivity.EXTRA_FROM_BACKGROUND, true);
+        } else {
+            // Back to the screen that is already open, not a new one
+            open.addFlags(Intent.FLAG_ACTIVITY_REORDER_TO_FRONT);
+        }
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_audiotrack)
+                .setContentTitle(item != null ? titleOf(item) : "Video Player")
+                .setContentText(playing ? "Playing audio only" : "Paused")
+                .setContentIntent(PendingIntent.getActivity(this, 0, open,
+                        PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT))
+                .addAction(playing ? R.drawable.ic_pause : R.drawable.ic_play, playing ? "Pause" : "Play",
+                        serviceIntent(ACTION_TOGGLE))
+                .addAction(0, "Stop", serviceIntent(ACTION_STOP))
+                .setCategory(NotificationCompat.CATEGORY_TRANSPORT)
+                .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
+                .setOngoing(playing)
+                .setOnlyAlertOnce(true)
+                .build();
+    }
+
+    private PendingIntent serviceIntent(String action) {
+        Intent intent = new Intent(this, AudioPlaybackService.class).setAction(action);
+        return PendingIntent.getService(this, action.hashCode(), intent, PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    static String titleOf(MediaItem item) {
+        if (item.localConfiguration == null) return item.mediaId;
+        String path = item.localConfiguration.uri.getPath();
+        if (path == null) return item.mediaId;
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+}
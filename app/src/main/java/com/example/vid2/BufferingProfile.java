@@ -0,0 +1,81 @@
+package com.example.vid2;
+
+import android.net.Uri;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DefaultLoadControl;
+import androidx.media3.exoplayer.upstream.DefaultAllocator;
+
+/**
+ * Named buffering configurations for the player's {@link DefaultLoadControl}.
+ *
+ * Local files are read at disk speed, so they need little buffered ahead and can start after a
+ * fraction of a second; network streams keep the larger default-like cushion. Every profile caps
+ * the bytes the allocator may hold, and the cap wins over the time thresholds.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public enum BufferingProfile {
+
+    INSTANT_START_LOCAL("instant start local", 2_000, 10_000, 250, 500, 16 * 1024 * 1024),
+    HIGH_BITRATE_LOCAL("high-bitrate 4K local", 2_000, 6_000, 500, 1_000, 48 * 1024 * 1024),
+    NETWORK_STREAM("network stream", 15_000, 50_000, 2_500, 5_000, 32 * 1024 * 1024);
+
+    // Above this a local file is treated as 4K-class and gets the larger byte budget
+    private static final long HIGH_BITRATE_BPS = 25_000_000L;
+
+    public final String label;
+    final int minBufferMs;
+    final int maxBufferMs;
+    final int bufferForPlaybackMs;
+    final int bufferForPlaybackAfterRebufferMs;
+    public final int maxBufferBytes;
+
+    BufferingProfile(String label, int minBufferMs, int maxBufferMs, int bufferForPlaybackMs,
+                     int bufferForPlaybackAfterRebufferMs, int maxBufferBytes) {
+        this.label = label;
+        this.minBufferMs = minBufferMs;
+        this.maxBufferMs = maxBufferMs;
+        this.bufferForPlaybackMs = bufferForPlaybackMs;
+        this.bufferForPlaybackAfterRebufferMs = bufferForPlaybackAfterRebufferMs;
+        this.maxBufferBytes = maxBufferBytes;
+    }
+
+    /**
+     * Picks a profile from where the media comes from and its average bitrate in bits per
+     * second ({@code <= 0} if unknown).
+     */
+    public static BufferingProfile select(boolean network, long bitrateBps) {
+        if (network) return NETWORK_STREAM;
+        return bitrateBps >= HIGH_BITRATE_BPS ? HIGH_BITRATE_LOCAL : INSTANT_START_LOCAL;
+    }
+
+    /** True for http(s) sources; files and content URIs are read at local speed. */
+    public static boolean isNetwork(@Nullable Uri uri) {
+        String scheme = uri != null ? uri.getScheme() : null;
+        return "http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme);
+    }
+
+    /** Average bitrate from size and duration, or 0 if the duration is unknown. */
+    public static long averageBitrate(long sizeBytes, long durationMs) {
+        return durationMs > 0 ? sizeBytes * 8_000L / durationMs : 0;
+    }
+
+    /** A load control for this profile around {@code allocator}. */
+    public DefaultLoadControl createLoadControl(DefaultAllocator allocator) {
+        return new DefaultLoadControl.Builder()
+                .setAllocator(allocator)
+                .setBufferDurationsMs(minBufferMs, maxBufferMs,
+                        bufferForPlaybackMs, bufferForPlaybackAfterRebufferMs)
+                .setTargetBufferBytes(maxBufferBytes)
+                .setPrioritizeTimeOverSizeThresholds(false)
+                .build();
+    }
+
+    /** An allocator whose usage can be sampled with {@code getTotalBytesAllocated()}. */
+    public static DefaultAllocator createAllocator() {
+        return new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+    }
+}
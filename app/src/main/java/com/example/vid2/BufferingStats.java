@@ -0,0 +1,183 @@
+package com.example.vid2;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.upstream.DefaultAllocator;
+
+/**
+ * Records time-to-first-frame, skip-to-first-frame latency and peak buffer memory for one
+ * playback session and folds them into per-profile totals, so the buffering profiles can be compared across sessions.
+ *
+ * The player may switch profile from one item to the next ({@link ProfileLoadControl}), so a
+ * session is cut into segments at each {@link #setProfile}: every measurement counts for the
+ * profile in force when it is taken. Totals live in a small SharedPreferences file and are logged after each session.
+ * All methods are called on the main thread.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class BufferingStats {
+
+    private static final String TAG = "BufferingStats";
+    private static final String PREFS = "buffering_stats";
+
+    private final Context context;
+    private final DefaultAllocator allocator;
+    private final boolean reusedPlayer;
+    private final long openedAtMs;
+
+    private BufferingProfile profile;
+    private long prepareAtMs = -1;
+    private long skipAtMs = -1;
+    private boolean saved;
+
+    // Time-to-first-frame of the session, added to the segment it falls in
+    private long firstFrameMs = -1;
+    private long openToFrameMs = -1;
+    private boolean firstFrameSaved;
+
+    // The current segment; only one that showed a frame is added to the totals
+    private boolean rendered;
+    private long peakBytes;
+    private long skips;
+    private long skipTotalMs;
+
+    /**
+     * {@code openedAtMs} is when the screen started, before it had a player; with
+     * {@code reusedPlayer} it tells what keeping a player from {@link PlayerPool} saves.
+     */
+    public BufferingStats(Context context, BufferingProfile profile, DefaultAllocator allocator,
+                          boolean reusedPlayer, long openedAtMs) {
+        this.context = context.getApplicationContext();
+        this.profile = profile;
+        this.allocator = allocator;
+        this.reusedPlayer = reusedPlayer;
+        this.openedAtMs = openedAtMs;
+    }
+
+    /**
+     * Call when the player switches to another profile: what was measured so far is added to the
+     * previous profile's totals, and what follows counts for {@code profile}.
+     */
+    public void setProfile(BufferingProfile profile) {
+        if (saved || profile == this.profile) return;
+        saveSegment();
+        this.profile = profile;
+    }
+
+    /** Call right before {@code prepare()}. */
+    public void onPrepare() {
+        if (prepareAtMs < 0) prepareAtMs = SystemClock.elapsedRealtime();
+    }
+
+    /** Call when next/previous is pressed; the following first frame ends the measurement. */
+    public void onSkipRequested() {
+        skipAtMs = SystemClock.elapsedRealtime();
+    }
+
+    public void onRenderedFirstFrame() {
+        rendered = true;
+        sample();
+        if (skipAtMs >= 0) {
+            long latency = SystemClock.elapsedRealtime() - skipAtMs;
+            skipAtMs = -1;
+            skips++;
+            skipTotalMs += latency;
+            Log.d(TAG, profile.label + ": skip to first frame " + latency + " ms");
+        }
+        if (firstFrameMs >= 0 || prepareAtMs < 0) return;
+        firstFrameMs = SystemClock.elapsedRealtime() - prepareAtMs;
+        openToFrameMs = SystemClock.elapsedRealtime() - openedAtMs;
+        Log.d(TAG, profile.label + ": first frame after " + firstFrameMs + " ms, " + openToFrameMs
+                + " ms after opening with a " + (reusedPlayer ? "reused" : "new") + " player");
+    }
+
+    /** Samples the allocator; cheap enough for the progress tick. */
+    public void sample() {
+        long bytes = allocator.getTotalBytesAllocated();
+        if (bytes > peakBytes) peakBytes = bytes;
+    }
+
+    /** Adds the rest of this session to the profile's totals. Only the first call counts. */
+    public void save() {
+        if (saved) return;
+        saved = true;
+        sample();
+        saveSegment();
+        Log.d(TAG, summary(context));
+    }
+
+    private void saveSegment() {
+        if (rendered) {
+            SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+            String key = profile.name();
+            SharedPreferences.Editor editor = prefs.edit()
+                    .putLong(key + ".segments", prefs.getLong(key + ".segments", 0) + 1)
+                    .putLong(key + ".peakBytesMax", Math.max(prefs.getLong(key + ".peakBytesMax", 0), peakBytes))
+                    .putLong(key + ".peakBytesTotal", prefs.getLong(key + ".peakBytesTotal", 0) + peakBytes)
+                    .putLong(key + ".skips", prefs.getLong(key + ".skips", 0) + skips)
+                    .putLong(key + ".skipTotalMs", prefs.getLong(key + ".skipTotalMs", 0) + skipTotalMs);
+            if (firstFrameMs >= 0 && !firstFrameSaved) {
+                firstFrameSaved = true;
+                long best = prefs.getLong(key + ".ttffBestMs", Long.MAX_VALUE);
+                String openKey = key + (reusedPlayer ? ".reused" : ".new");
+                editor.putLong(key + ".sessions", prefs.getLong(key + ".sessions", 0) + 1)
+                        .putLong(key + ".ttffTotalMs", prefs.getLong(key + ".ttffTotalMs", 0) + firstFrameMs)
+                        .putLong(key + ".ttffBestMs", Math.min(best, firstFrameMs))
+                        .putLong(openKey + ".opens", prefs.getLong(openKey + ".opens", 0) + 1)
+                        .putLong(openKey + ".openTotalMs", prefs.getLong(openKey + ".openTotalMs", 0) + openToFrameMs);
+            }
+            editor.apply();
+            Log.d(TAG, profile.label + ": peak buffer " + (peakBytes >> 10) + " KB of "
+                    + (profile.maxBufferBytes >> 10) + " KB");
+        }
+        rendered = false;
+        peakBytes = 0;
+        skips = 0;
+        skipTotalMs = 0;
+    }
+
+    /**
+     * One line per profile: sessions, average/best time-to-first-frame, peak memory per segment,
+     * skips and the time from opening the screen to its first frame with a new or a reused player.
+     */
+    public static String summary(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        StringBuilder sb = new StringBuilder();
+        for (BufferingProfile profile : BufferingProfile.values()) {
+            String key = profile.name();
+            long segments = prefs.getLong(key + ".segments", 0);
+            long sessions = prefs.getLong(key + ".sessions", 0);
+            sb.append(profile.label).append(": ");
+            if (segments == 0) {
+                sb.append("no sessions\n");
+                continue;
+            }
+            // A profile picked after the first item has segments but no session of its own
+            if (sessions > 0) {
+                sb.append(sessions).append(" sessions, first frame avg ")
+                        .append(prefs.getLong(key + ".ttffTotalMs", 0) / sessions).append(" ms, best ")
+                        .append(prefs.getLong(key + ".ttffBestMs", 0)).append(" ms, ");
+            }
+            sb.append(segments).append(" segments, peak buffer avg ")
+                    .append((prefs.getLong(key + ".peakBytesTotal", 0) / segments) >> 10).append(" KB, max ")
+                    .append(prefs.getLong(key + ".peakBytesMax", 0) >> 10).append(" KB");
+            long skipCount = prefs.getLong(key + ".skips", 0);
+            if (skipCount > 0) {
+                sb.append(", skip avg ").append(prefs.getLong(key + ".skipTotalMs", 0) / skipCount).append(" ms");
+            }
+            // Opening the screen to its first frame, with a new player against one kept warm
+            for (String player : new String[]{"new", "reused"}) {
+                long opens = prefs.getLong(key + "." + player + ".opens", 0);
+                if (opens == 0) continue;
+                sb.append(", open avg ").append(prefs.getLong(key + "." + player + ".openTotalMs", 0) / opens)
+                        .append(" ms with a ").append(player).append(" player (").append(opens).append(')');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
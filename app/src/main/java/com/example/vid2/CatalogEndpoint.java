@@ -0,0 +1,250 @@
+package com.example.vid2;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import fi.iki.elonen.NanoHTTPD.IHTTPSession;
+import fi.iki.elonen.NanoHTTPD.Response;
+
+/**
+ * {@code GET /catalog}: the video library as paginated JSON.
+ *
+ * Query parameters: {@code limit} (1-1000, default 100); {@code cursor}, taken from the
+ * previous page's {@code next}; {@code fields}, a comma list of id, name, size, duration,
+ * date, width, height and url (default all); {@code sort}, one of name, size, duration,
+ * date or resolution with an optional leading {@code -} for descending (default: catalog
+ * order, newest first).
+ *
+ * Pages are streamed row by row from the catalog columns through a {@link JsonWriter} into a
+ * chunked, gzip-compressed body, so no object tree is built. The ETag combines the catalog
+ * generation with the query, so revalidating an unchanged page is answered with 304 without
+ * touching the catalog. Sort orders come from a {@link VideoSort} kept for the current
+ * catalog, so they are computed once per generation and shared by every later page and poll.
+ */
+public class CatalogEndpoint {
+
+    public static final String PATH = "/catalog";
+
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+    private static final String[] FIELDS = {"id", "name", "size", "duration", "date", "width", "height", "url"};
+    private static final int ALL_FIELDS = (1 << FIELDS.length) - 1;
+    private static final String MIME_JSON = "application/json; charset=utf-8";
+
+    // ETags handed out by an earlier process never match this one's
+    private final String instanceTag = Long.toString(System.currentTimeMillis(), 36);
+    private volatile VideoSort sorts = new VideoSort(VideoCatalog.EMPTY);
+
+    public Response serve(IHTTPSession session, VideoCatalog catalog) {
+        Map<String, List<String>> params = session.getParameters();
+        int limit;
+        int fields;
+        int offset;
+        try {
+            limit = parseLimit(first(params, "limit"));
+            fields = parseFields(first(params, "fields"));
+            offset = parseCursor(first(params, "cursor"), catalog);
+        } catch (IllegalArgumentException e) {
+            return VideoStreamServer.error(Response.Status.BAD_REQUEST, e.getMessage());
+        }
+        if (offset < 0) {
+            return VideoStreamServer.error(Response.Status.CONFLICT,
+                    "Catalog changed; start again from the first page");
+        }
+        String sort = first(params, "sort");
+        if (sort != null && sortKey(sort) == null) {
+            return VideoStreamServer.error(Response.Status.BAD_REQUEST, "Unknown sort " + sort);
+        }
+
+        String etag = "\"" + instanceTag + "-" + catalog.generation() + "-" + Integer.toHexString(
+                (limit + "|" + offset + "|" + fields + "|" + sort).hashCode()) + "\"";
+        String ifNoneMatch = session.getHeaders().get("if-none-match");
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            // No MIME type, so NanoHTTPD does not try to gzip an empty 304 body
+            Response notModified = VideoStreamServer.newFixedLengthResponse(Response.Status.NOT_MODIFIED,
+                    null, "");
+            notModified.addHeader("ETag", etag);
+            return notModified;
+        }
+
+        int[] rows = sort != null ? order(sort, catalog) : null;
+        return new Page(catalog, rows, offset, limit, fields, etag);
+    }
+
+    private static String first(Map<String, List<String>> params, String name) {
+        List<String> values = params.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    private static int parseLimit(String value) {
+        if (value == null) return DEFAULT_LIMIT;
+        try {
+            int limit = Integer.parseInt(value);
+            if (limit >= 1 && limit <= MAX_LIMIT) return limit;
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("limit must be 1-" + MAX_LIMIT);
+    }
+
+    private static int parseFields(String value) {
+        if (value == null) return ALL_FIELDS;
+        int mask = 0;
+        for (String name : value.split(",")) {
+            int index = Arrays.asList(FIELDS).indexOf(name.trim());
+            if (index < 0) throw new IllegalArgumentException("Unknown field " + name);
+            mask |= 1 << index;
+        }
+        return mask;
+    }
+
+    /** Offset encoded in {@code cursor}, 0 for none, -1 if it belongs to another generation. */
+    private static int parseCursor(String cursor, VideoCatalog catalog) {
+        if (cursor == null) return 0;
+        int dot = cursor.indexOf('.');
+        try {
+            if (dot > 0) {
+                long generation = Long.parseLong(cursor.substring(0, dot), 36);
+                int offset = Integer.parseInt(cursor.substring(dot + 1), 36);
+                if (generation != catalog.generation()) return -1;
+                if (offset >= 0 && offset <= catalog.size()) return offset;
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Malformed cursor");
+    }
+
+    private static String cursor(VideoCatalog catalog, int offset) {
+        return Long.toString(catalog.generation(), 36) + "." + Integer.toString(offset, 36);
+    }
+
+    private int[] order(String sort, VideoCatalog catalog) {
+        VideoSort sorts = this.sorts;
+        if (sorts.catalog() != catalog) {
+            sorts = new VideoSort(catalog);
+            this.sorts = sorts;
+        }
+        return sorts.order(sortKey(sort), sort.startsWith("-"));
+    }
+
+    private static VideoSort.Key sortKey(String sort) {
+        switch (sort.startsWith("-") ? sort.substring(1) : sort) {
+            case "name":
+                return VideoSort.Key.NAME;
+            case "size":
+                return VideoSort.Key.SIZE;
+            case "duration":
+                return VideoSort.Key.DURATION;
+            case "date":
+                return VideoSort.Key.DATE;
+            case "resolution":
+                return VideoSort.Key.RESOLUTION;
+            default:
+                return null;
+        }
+    }
+
+    /** One page, written straight from the catalog columns while it is sent. */
+    private static final class Page extends VideoStreamServer.DirectResponse {
+
+        private final VideoCatalog catalog;
+        private final int[] rows;
+        private final int offset;
+        private final int limit;
+        private final int fields;
+        private final String etag;
+
+        Page(VideoCatalog catalog, int[] rows, int offset, int limit, int fields, String etag) {
+            super(Response.Status.OK, MIME_JSON);
+            this.catalog = catalog;
+            this.rows = rows;
+            this.offset = offset;
+            this.limit = limit;
+            this.fields = fields;
+            this.etag = etag;
+        }
+
+        @Override
+        void appendHeaders(StringBuilder head) {
+            head.append("ETag: ").append(etag).append("\r\n");
+            head.append("Cache-Control: no-cache\r\n");
+            head.append("Vary: Accept-Encoding\r\n");
+            if (isGzip()) head.append("Content-Encoding: gzip\r\n");
+            head.append("Transfer-Encoding: chunked\r\n");
+        }
+
+        @Override
+        void sendBody(OutputStream outputStream) throws IOException {
+            ChunkedOutputStream chunked = new ChunkedOutputStream(outputStream);
+            OutputStream body = isGzip() ? new GZIPOutputStream(chunked, 8192) : chunked;
+            JsonWriter json = new JsonWriter(new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), 8192));
+            int end = Math.min(catalog.size(), offset + limit);
+            json.beginObject();
+            json.name("generation").value(catalog.generation());
+            json.name("total").value(catalog.size());
+            json.name("items").beginArray();
+            for (int i = offset; i < end; i++) writeRow(json, rows != null ? rows[i] : i);
+            json.endArray();
+            json.name("next");
+            if (end < catalog.size()) {
+                json.value(cursor(catalog, end));
+            } else {
+                json.nullValue();
+            }
+            json.endObject();
+            // Finishes the gzip stream and writes the last chunk; the socket stays open
+            json.close();
+        }
+
+        private void writeRow(JsonWriter json, int row) throws IOException {
+            json.beginObject();
+            if ((fields & 1) != 0) json.name("id").value(catalog.id(row));
+            if ((fields & 1 << 1) != 0) json.name("name").value(catalog.name(row));
+            if ((fields & 1 << 2) != 0) json.name("size").value(catalog.sizeBytes(row));
+            if ((fields & 1 << 3) != 0) json.name("duration").value(catalog.durationMs(row));
+            if ((fields & 1 << 4) != 0) json.name("date").value(catalog.dateModifiedMs(row));
+            if ((fields & 1 << 5) != 0) json.name("width").value(catalog.width(row));
+            if ((fields & 1 << 6) != 0) json.name("height").value(catalog.height(row));
+            if ((fields & 1 << 7) != 0) json.name("url").value(VideoStreamServer.VIDEO_PATH + catalog.id(row));
+            json.endObject();
+        }
+    }
+
+    /** HTTP/1.1 chunked framing over the connection; closing ends the body, not the socket. */
+    private static final class ChunkedOutputStream extends OutputStream {
+
+        private final OutputStream out;
+
+        ChunkedOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return;
+            out.write((Integer.toHexString(len) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(b, off, len);
+            out.write('\r');
+            out.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+    }
+}
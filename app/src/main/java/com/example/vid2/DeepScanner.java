@@ -0,0 +1,240 @@
+package com.example.vid2;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional deep scan for videos the regular {@link VideoScanner} cannot see: files on
+ * secondary volumes, and files MediaStore never indexed (folders with a .nomedia marker,
+ * downloads it skipped) under the roots the user picked.
+ *
+ * Every MediaStore volume is queried and the roots are walked by {@link VideoFileWalker} at
+ * the same time, on one fork/join pool. Whatever the main catalog lacks, by path, is kept as
+ * a small catalog of extras, newest first, which {@link #merge} folds into every later
+ * MediaStore catalog without scanning again. Files only the walk found get negative ids.
+ * Call {@link #scan} and {@link #cancel} from the main thread; callbacks run there too.
+ */
+public class DeepScanner {
+
+    private static final String TAG = "DeepScanner";
+    private static final String PREFS = "deep_scan";
+    private static final String KEY_ROOTS = "roots";
+
+    public interface Callback {
+        void onProgress(long directories, long files, long found);
+
+        /** {@code added} videos are now folded in by {@link #merge}. */
+        void onComplete(int added, VideoFileWalker.Result walk);
+    }
+
+    private final Context context;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private volatile VideoCatalog extras = VideoCatalog.EMPTY;
+    private boolean running;
+
+    public DeepScanner(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /** Directories picked for the walk; empty when deep scan is off. */
+    public Set<String> roots() {
+        return new HashSet<>(prefs().getStringSet(KEY_ROOTS, Collections.emptySet()));
+    }
+
+    /** Turns deep scan off when {@code roots} is empty, dropping what it found. */
+    public void setRoots(Set<String> roots) {
+        prefs().edit().putStringSet(KEY_ROOTS, new HashSet<>(roots)).apply();
+        if (roots.isEmpty()) {
+            cancel();
+            extras = VideoCatalog.EMPTY;
+        }
+    }
+
+    public boolean isEnabled() {
+        return !prefs().getStringSet(KEY_ROOTS, Collections.emptySet()).isEmpty();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** Top directory of every mounted shared-storage volume, primary first. */
+    public static List<String> volumeRoots(Context context) {
+        List<String> roots = new ArrayList<>();
+        for (File dir : context.getExternalFilesDirs(null)) {
+            if (dir == null) continue;
+            // e.g. /storage/1234-ABCD/Android/data/com.example.vid2/files
+            String path = dir.getPath();
+            int android = path.indexOf("/Android/data/");
+            if (android > 0) roots.add(path.substring(0, android));
+        }
+        return roots;
+    }
+
+    /**
+     * Queries every volume and walks the saved roots, keeping what {@code mediaStore} lacks.
+     * Replaces a deep scan still running.
+     */
+    public void scan(VideoCatalog mediaStore, Callback callback) {
+        int token = generation.incrementAndGet();
+        List<String> roots = new ArrayList<>(roots());
+        running = true;
+        executor.execute(() -> {
+            if (token == generation.get()) runScan(token, mediaStore, roots, callback);
+        });
+    }
+
+    public void cancel() {
+        generation.incrementAndGet();
+        running = false;
+    }
+
+    public void shutdown() {
+        cancel();
+        // After a scan still running has seen the cancel and returned
+        executor.execute(pool::shutdown);
+        executor.shutdown();
+    }
+
+    /**
+     * {@code mediaStore} plus the videos the last deep scan found that it lacks, by path, in
+     * newest-first order. Returns {@code mediaStore} itself when there is nothing to add.
+     */
+    public VideoCatalog merge(VideoCatalog mediaStore) {
+        VideoCatalog add = extras;
+        if (add.isEmpty()) return mediaStore;
+        VideoCatalog.Builder builder = new VideoCatalog.Builder(mediaStore.size() + add.size());
+        int row = 0;
+        for (int extra = 0; extra < add.size(); extra++) {
+            if (mediaStore.rowOfPath(add.path(extra)) >= 0) continue;
+            while (row < mediaStore.size() && mediaStore.dateModifiedMs(row) >= add.dateModifiedMs(extra)) {
+                builder.addRow(mediaStore, row++);
+            }
+            builder.addRow(add, extra);
+        }
+        while (row < mediaStore.size()) builder.addRow(mediaStore, row++);
+        return builder.size() == mediaStore.size() ? mediaStore : builder.build();
+    }
+
+    private void runScan(int token, VideoCatalog mediaStore, List<String> roots, Callback callback) {
+        // Volume queries wait on MediaStore's process, so they overlap the walk well
+        List<Future<VideoCatalog>> volumes = new ArrayList<>();
+        for (String volume : volumeNames()) volumes.add(pool.submit(() -> queryVolume(volume)));
+
+        VideoFileWalker.Result walk = new VideoFileWalker(pool).walk(roots, () -> token != generation.get(),
+                (directories, files, found) -> mainHandler.post(() -> {
+                    if (token == generation.get()) callback.onProgress(directories, files, found);
+                }));
+        if (walk == null) {
+            for (Future<VideoCatalog> volume : volumes) volume.cancel(true);
+            return;
+        }
+
+        VideoCatalog.Builder builder = new VideoCatalog.Builder(64);
+        Set<String> seen = new HashSet<>();
+        int fromVolumes = 0;
+        for (Future<VideoCatalog> future : volumes) {
+            VideoCatalog volume;
+            try {
+                volume = future.get();
+            } catch (ExecutionException | InterruptedException e) {
+                Log.w(TAG, "Volume query failed", e);
+                continue;
+            }
+            for (int row = 0; row < volume.size(); row++) {
+                String path = volume.path(row);
+                if (mediaStore.rowOfPath(path) >= 0 || !seen.add(path)) continue;
+                builder.addRow(volume, row);
+                fromVolumes++;
+            }
+        }
+        for (VideoFileWalker.Found video : walk.videos) {
+            if (mediaStore.rowOfPath(video.path) >= 0 || !seen.add(video.path)) continue;
+            // The duration is probed once the row is on screen
+            builder.add(syntheticId(video.path), video.path, new File(video.path).getName(),
+                    video.sizeBytes, 0, video.dateModifiedMs, 0, 0);
+        }
+        if (token != generation.get()) return;
+
+        VideoCatalog unordered = builder.build();
+        VideoCatalog.Builder ordered = new VideoCatalog.Builder(unordered.size());
+        for (int row : new VideoSort(unordered).order(VideoSort.Key.DATE, true)) ordered.addRow(unordered, row);
+        Log.d(TAG, "Deep scan: " + walk.directories + " folders, " + walk.files + " files in "
+                + walk.elapsedMs + " ms (" + walk.filesPerSecond() + " files/s); "
+                + fromVolumes + " from other volumes, " + (unordered.size() - fromVolumes)
+                + " only on disk, " + walk.videos.size() + " videos walked");
+        VideoCatalog found = ordered.build();
+        mainHandler.post(() -> {
+            if (token != generation.get()) return;
+            running = false;
+            extras = found;
+            callback.onComplete(found.size(), walk);
+        });
+    }
+
+    private List<String> volumeNames() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return Collections.singletonList(MediaStore.VOLUME_EXTERNAL);
+        }
+        return new ArrayList<>(MediaStore.getExternalVolumeNames(context));
+    }
+
+    private VideoCatalog queryVolume(String volume) {
+        Uri uri = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                ? MediaStore.Video.Media.getContentUri(volume)
+                : MediaStore.Video.Media.EXTERNAL_CONTENT_URI;
+        try (Cursor cursor = context.getContentResolver().query(uri, VideoScanner.PROJECTION,
+                null, null, null)) {
+            if (cursor == null) return VideoCatalog.EMPTY;
+            VideoCatalog.Builder builder = new VideoCatalog.Builder(cursor.getCount());
+            VideoScanner.Columns cols = new VideoScanner.Columns(cursor);
+            while (cursor.moveToNext()) {
+                String path = cursor.getString(cols.data);
+                if (path == null) continue;
+                builder.add(cursor.getLong(cols.id), path, VideoScanner.displayName(cursor, cols, path),
+                        cursor.getLong(cols.size), cursor.getLong(cols.duration),
+                        cursor.getLong(cols.date) * 1000L, cursor.getInt(cols.width), cursor.getInt(cols.height));
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Stable negative id for a file MediaStore has no row for; never -1, the "unknown" id.
+     * {@link ResumeStore} keys every video by it, since the path is always known.
+     */
+    static long syntheticId(String path) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < path.length(); i++) h = (h ^ path.charAt(i)) * 0x100000001b3L;
+        h |= Long.MIN_VALUE;
+        return h == -1 ? -2 : h;
+    }
+
+    private SharedPreferences prefs() {
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
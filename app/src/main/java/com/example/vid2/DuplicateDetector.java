@@ -0,0 +1,75 @@
+package com.example.vid2;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link DuplicateFinder} in the background with its hash cache backed by
+ * {@link VideoMetadataStore}.
+ *
+ * The stored hashes are read once, before the first search; after every search the new
+ * hashes are written back and those of files that are gone are dropped. Hashing uses a
+ * fork/join pool with one worker per core. Call {@link #find} and {@link #cancel} from the
+ * main thread; results are delivered there too.
+ */
+public class DuplicateDetector {
+
+    private static final String TAG = "DuplicateDetector";
+
+    public interface Callback {
+        void onDuplicates(DuplicateFinder.Result result);
+    }
+
+    private final VideoMetadataStore store;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger generation = new AtomicInteger();
+
+    // Only touched on the executor thread
+    private DuplicateFinder.HashCache cache;
+
+    public DuplicateDetector(VideoMetadataStore store) {
+        this.store = store;
+    }
+
+    /** Looks for duplicates in {@code catalog}; replaces any search still running. */
+    public void find(VideoCatalog catalog, Callback callback) {
+        int token = generation.incrementAndGet();
+        executor.execute(() -> {
+            if (token != generation.get()) return;
+            if (cache == null) {
+                cache = new DuplicateFinder.HashCache();
+                store.loadHashes(cache);
+            }
+            DuplicateFinder.Result result = new DuplicateFinder(pool, cache)
+                    .find(catalog, () -> token != generation.get());
+            // Hashes computed before a cancel are still worth keeping
+            store.saveHashes(cache, result != null ? cache.pruneUntouched() : new long[0]);
+            if (result == null) return;
+            Log.d(TAG, result.groupCount() + " groups among " + result.candidates + " candidates in "
+                    + result.elapsedMs + " ms (" + result.sampled + " sampled, "
+                    + result.fullyHashed + " read in full)");
+            mainHandler.post(() -> {
+                if (token == generation.get()) callback.onDuplicates(result);
+            });
+        });
+    }
+
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    public void shutdown() {
+        cancel();
+        // After a search still running has seen the cancel and returned
+        executor.execute(pool::shutdown);
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,493 @@
+package com.example.vid2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Finds videos whose files have identical content.
+ *
+ * Works in three stages, each only looking at what the previous one could not rule out:
+ * files are bucketed by exact size; files sharing a size get a sample hash of three blocks
+ * (head, middle, tail); files whose samples also collide are hashed in full with SHA-256.
+ * Files are read through memory-mapped windows, and the hashing of each stage runs on a
+ * fork/join pool. Hashes are looked up in and added to a {@link HashCache} keyed by path,
+ * size and modification time, so a repeat run only reads new or changed files. Memory is a
+ * few primitive arrays per candidate file plus one mapped window per worker.
+ */
+public final class DuplicateFinder {
+
+    static final int SAMPLE_BYTES = 64 * 1024;
+    private static final int WINDOW_BYTES = 16 * 1024 * 1024;
+    // Files per fork/join leaf task; reading dominates, so keep tasks small
+    private static final int FILES_PER_TASK = 4;
+
+    private final ForkJoinPool pool;
+    private final HashCache cache;
+
+    public DuplicateFinder(ForkJoinPool pool, HashCache cache) {
+        this.pool = pool;
+        this.cache = cache;
+    }
+
+    /** Duplicate groups of {@code catalog}, or null if {@code cancelled} turned true. */
+    public Result find(VideoCatalog catalog, BooleanSupplier cancelled) {
+        long startNs = System.nanoTime();
+
+        // Stage 1: runs of equal size in the size order; empty files are never duplicates
+        int[] bySize = new VideoSort(catalog).order(VideoSort.Key.SIZE, true);
+        int[] found = new int[bySize.length];
+        int count = 0;
+        for (int i = 0; i < bySize.length; ) {
+            long size = catalog.sizeBytes(bySize[i]);
+            int end = i + 1;
+            while (end < bySize.length && catalog.sizeBytes(bySize[end]) == size) end++;
+            if (end - i > 1 && size > 0) {
+                for (int k = i; k < end; k++) found[count++] = bySize[k];
+            }
+            i = end;
+        }
+        int[] candidates = Arrays.copyOf(found, count);
+        long[] sizes = new long[count];
+        for (int i = 0; i < count; i++) sizes[i] = catalog.sizeBytes(candidates[i]);
+
+        // Stage 2: sample hashes, from the cache where the file has not changed
+        long[] keys = new long[count];
+        long[] samples = new long[count];
+        boolean[] failed = new boolean[count];
+        int[] missing = new int[count];
+        int missingCount = 0;
+        for (int i = 0; i < count; i++) {
+            int row = candidates[i];
+            keys[i] = HashCache.fileKey(catalog.path(row), catalog.sizeBytes(row), catalog.dateModifiedMs(row));
+            int slot = cache.find(keys[i]);
+            if (slot >= 0) {
+                samples[i] = cache.sample(slot);
+            } else {
+                missing[missingCount++] = i;
+            }
+        }
+        int sampled = missingCount;
+        if (!hashAll(catalog, candidates, missing, missingCount, false, samples, null, failed, cancelled)) return null;
+        for (int m = 0; m < missingCount; m++) {
+            int i = missing[m];
+            if (!failed[i]) cache.putSample(keys[i], samples[i]);
+        }
+
+        // Within each size, files whose samples collide go on to a full hash
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+        int[] scratch = new int[count];
+        int[] full = new int[count];
+        int fullCount = 0;
+        for (int i = 0; i < count; ) {
+            int end = runEnd(order, i, count, (a, b) -> sizes[a] == sizes[b]);
+            VideoSort.sortRows(order, scratch, i, end, (a, b) -> Long.compare(samples[a], samples[b]));
+            for (int j = i; j < end; ) {
+                int same = runEnd(order, j, end, (a, b) -> samples[a] == samples[b]);
+                if (same - j > 1) {
+                    for (int k = j; k < same; k++) {
+                        if (!failed[order[k]]) full[fullCount++] = order[k];
+                    }
+                }
+                j = same;
+            }
+            i = end;
+        }
+
+        // Stage 3: full hashes, again from the cache where possible
+        long[] fullHi = new long[count];
+        long[] fullLo = new long[count];
+        missingCount = 0;
+        for (int f = 0; f < fullCount; f++) {
+            int i = full[f];
+            int slot = cache.find(keys[i]);
+            if (slot >= 0 && cache.hasFull(slot)) {
+                fullHi[i] = cache.fullHi(slot);
+                fullLo[i] = cache.fullLo(slot);
+            } else {
+                missing[missingCount++] = i;
+            }
+        }
+        int fullyHashed = missingCount;
+        if (!hashAll(catalog, candidates, missing, missingCount, true, fullHi, fullLo, failed, cancelled)) return null;
+        for (int m = 0; m < missingCount; m++) {
+            int i = missing[m];
+            if (!failed[i]) cache.putFull(keys[i], samples[i], fullHi[i], fullLo[i]);
+        }
+
+        // Groups: equal size, sample and full hash. full[] is still ordered by size and sample
+        int[] rows = new int[fullCount];
+        int[] starts = new int[fullCount / 2 + 2];
+        int rowCount = 0;
+        int groupCount = 0;
+        long reclaimable = 0;
+        int[] kept = new int[fullCount];
+        int keptCount = 0;
+        for (int f = 0; f < fullCount; f++) {
+            if (!failed[full[f]]) kept[keptCount++] = full[f];
+        }
+        for (int i = 0; i < keptCount; ) {
+            int end = runEnd(kept, i, keptCount, (a, b) -> sizes[a] == sizes[b] && samples[a] == samples[b]);
+            VideoSort.sortRows(kept, scratch, i, end, (a, b) -> fullHi[a] != fullHi[b]
+                    ? Long.compare(fullHi[a], fullHi[b]) : Long.compare(fullLo[a], fullLo[b]));
+            for (int j = i; j < end; ) {
+                int same = runEnd(kept, j, end, (a, b) -> fullHi[a] == fullHi[b] && fullLo[a] == fullLo[b]);
+                if (same - j > 1) {
+                    starts[groupCount++] = rowCount;
+                    // Newest copy first inside a group, as in the catalog
+                    int groupStart = rowCount;
+                    for (int k = j; k < same; k++) rows[rowCount++] = candidates[kept[k]];
+                    Arrays.sort(rows, groupStart, rowCount);
+                    reclaimable += sizes[kept[j]] * (same - j - 1);
+                }
+                j = same;
+            }
+            i = end;
+        }
+        starts[groupCount] = rowCount;
+        return new Result(catalog, Arrays.copyOf(rows, rowCount), Arrays.copyOf(starts, groupCount + 1),
+                reclaimable, count, sampled, fullyHashed, (System.nanoTime() - startNs) / 1_000_000);
+    }
+
+    private interface Same {
+        boolean test(int a, int b);
+    }
+
+    // End of the run starting at from whose members are all the same as the first
+    private static int runEnd(int[] members, int from, int to, Same same) {
+        int end = from + 1;
+        while (end < to && same.test(members[from], members[end])) end++;
+        return end;
+    }
+
+    // Hashes candidates[indices[0..count)] in parallel into out (and outLo for full hashes)
+    private boolean hashAll(VideoCatalog catalog, int[] candidates, int[] indices, int count, boolean full,
+                            long[] out, long[] outLo, boolean[] failed, BooleanSupplier cancelled) {
+        if (count == 0) return true;
+        pool.invoke(new HashTask(catalog, candidates, indices, 0, count, full, out, outLo, failed, cancelled));
+        return !cancelled.getAsBoolean();
+    }
+
+    private static final class HashTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final VideoCatalog catalog;
+        private final int[] candidates;
+        private final int[] indices;
+        private final int from;
+        private final int to;
+        private final boolean full;
+        private final long[] out;
+        private final long[] outLo;
+        private final boolean[] failed;
+        private final BooleanSupplier cancelled;
+
+        HashTask(VideoCatalog catalog, int[] candidates, int[] indices, int from, int to, boolean full,
+                 long[] out, long[] outLo, boolean[] failed, BooleanSupplier cancelled) {
+            this.catalog = catalog;
+            this.candidates = candidates;
+            this.indices = indices;
+            this.from = from;
+            this.to = to;
+            this.full = full;
+            this.out = out;
+            this.outLo = outLo;
+            this.failed = failed;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > FILES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new HashTask(catalog, candidates, indices, from, mid, full, out, outLo, failed, cancelled),
+                        new HashTask(catalog, candidates, indices, mid, to, full, out, outLo, failed, cancelled));
+                return;
+            }
+            for (int k = from; k < to && !cancelled.getAsBoolean(); k++) {
+                int i = indices[k];
+                File file = new File(catalog.path(candidates[i]));
+                try {
+                    if (full) {
+                        long[] hash = fullHash(file);
+                        out[i] = hash[0];
+                        outLo[i] = hash[1];
+                    } else {
+                        out[i] = sampleHash(file);
+                    }
+                } catch (IOException e) {
+                    // Unreadable or changed underneath us; left out of every group
+                    failed[i] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * 64-bit hash of the first, middle and last {@link #SAMPLE_BYTES} of the file (the whole
+     * file if it is shorter than three samples), mixed with its length.
+     */
+    static long sampleHash(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            long h = size * 0x9E3779B97F4A7C15L;
+            if (size <= 3L * SAMPLE_BYTES) return mix(h, channel, 0, size);
+            h = mix(h, channel, 0, SAMPLE_BYTES);
+            h = mix(h, channel, (size - SAMPLE_BYTES) / 2, SAMPLE_BYTES);
+            return mix(h, channel, size - SAMPLE_BYTES, SAMPLE_BYTES);
+        }
+    }
+
+    private static long mix(long h, FileChannel channel, long offset, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.remaining() >= 8) {
+            h = (h ^ buffer.getLong()) * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 29;
+        }
+        while (buffer.hasRemaining()) {
+            h = (h ^ (buffer.get() & 0xff)) * 0xC2B2AE3D27D4EB4FL;
+        }
+        return h ^ (h >>> 32);
+    }
+
+    /** First 128 bits of the SHA-256 of the file, as {hi, lo}. */
+    static long[] fullHash(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            for (long offset = 0; offset < size; offset += WINDOW_BYTES) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min(WINDOW_BYTES, size - offset)));
+            }
+        }
+        byte[] bytes = digest.digest();
+        long hi = 0;
+        long lo = 0;
+        for (int i = 0; i < 8; i++) {
+            hi = (hi << 8) | (bytes[i] & 0xff);
+            lo = (lo << 8) | (bytes[i + 8] & 0xff);
+        }
+        return new long[]{hi, lo};
+    }
+
+    /** Groups of identical videos; the rows of every group are consecutive, newest first. */
+    public static final class Result {
+        public final VideoCatalog catalog;
+        /** Every duplicate row, group after group, largest files first. */
+        public final int[] rows;
+        /** Bytes freed by keeping one copy of each group. */
+        public final long reclaimableBytes;
+        /** Files that shared a size with another, files sampled and files fully read this run. */
+        public final int candidates;
+        public final int sampled;
+        public final int fullyHashed;
+        public final long elapsedMs;
+        private final int[] starts;
+
+        Result(VideoCatalog catalog, int[] rows, int[] starts, long reclaimableBytes, int candidates,
+               int sampled, int fullyHashed, long elapsedMs) {
+            this.catalog = catalog;
+            this.rows = rows;
+            this.starts = starts;
+            this.reclaimableBytes = reclaimableBytes;
+            this.candidates = candidates;
+            this.sampled = sampled;
+            this.fullyHashed = fullyHashed;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public int groupCount() {
+            return starts.length - 1;
+        }
+
+        public int[] group(int group) {
+            return Arrays.copyOfRange(rows, starts[group], starts[group + 1]);
+        }
+    }
+
+    /**
+     * Sample and full hashes by file version, in an open-addressing table of primitives.
+     * Tracks which entries were added and which were looked up, for writing back and pruning.
+     * Not thread-safe: the finder only touches it between its parallel stages.
+     */
+    public static final class HashCache {
+        private long[] keys = new long[1024];
+        private long[] samples = new long[1024];
+        private long[] fullHis = new long[1024];
+        private long[] fullLos = new long[1024];
+        // Per slot: whether it holds an entry, has a full hash, was added since takeAdded
+        // and was looked up since pruneUntouched
+        private byte[] flags = new byte[1024];
+        private int size;
+
+        private static final int FULL = 1;
+        private static final int ADDED = 2;
+        private static final int TOUCHED = 4;
+        private static final int OCCUPIED = 8;
+
+        /** Identity of one version of a file; a change to any part gives a new key. */
+        public static long fileKey(String path, long size, long mtime) {
+            long h = 1125899906842597L;
+            for (int i = 0; i < path.length(); i++) h = 31 * h + path.charAt(i);
+            h = 31 * h + size;
+            return 31 * h + mtime;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /** Adds a stored entry; {@code hasFull} false leaves the full hash unknown. */
+        public void load(long key, long sample, boolean hasFull, long fullHi, long fullLo) {
+            int slot = slotFor(key);
+            samples[slot] = sample;
+            fullHis[slot] = fullHi;
+            fullLos[slot] = fullLo;
+            flags[slot] = (byte) (hasFull ? OCCUPIED | FULL : OCCUPIED);
+        }
+
+        int find(long key) {
+            int mask = keys.length - 1;
+            for (int slot = slot(key, mask); (flags[slot] & OCCUPIED) != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    flags[slot] |= TOUCHED;
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        long sample(int slot) {
+            return samples[slot];
+        }
+
+        boolean hasFull(int slot) {
+            return (flags[slot] & FULL) != 0;
+        }
+
+        long fullHi(int slot) {
+            return fullHis[slot];
+        }
+
+        long fullLo(int slot) {
+            return fullLos[slot];
+        }
+
+        void putSample(long key, long sample) {
+            int slot = slotFor(key);
+            samples[slot] = sample;
+            flags[slot] = (byte) (OCCUPIED | ADDED | TOUCHED);
+        }
+
+        void putFull(long key, long sample, long fullHi, long fullLo) {
+            int slot = slotFor(key);
+            samples[slot] = sample;
+            fullHis[slot] = fullHi;
+            fullLos[slot] = fullLo;
+            flags[slot] = (byte) (OCCUPIED | FULL | ADDED | TOUCHED);
+        }
+
+        public interface Visitor {
+            void visit(long key, long sample, boolean hasFull, long fullHi, long fullLo);
+        }
+
+        /** Visits the entries added since the last call and clears their mark. */
+        public void takeAdded(Visitor visitor) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if ((flags[slot] & (OCCUPIED | ADDED)) != (OCCUPIED | ADDED)) continue;
+                flags[slot] &= ~ADDED;
+                visitor.visit(keys[slot], samples[slot], (flags[slot] & FULL) != 0, fullHis[slot], fullLos[slot]);
+            }
+        }
+
+        /**
+         * Drops the entries no lookup has touched since the last call (files that were deleted
+         * or changed) and reports their keys; then starts counting afresh.
+         */
+        public long[] pruneUntouched() {
+            long[] dropped = new long[16];
+            int count = 0;
+            long[] oldKeys = keys;
+            long[] oldSamples = samples;
+            long[] oldHis = fullHis;
+            long[] oldLos = fullLos;
+            byte[] oldFlags = flags;
+            allocate(oldKeys.length);
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if ((oldFlags[slot] & OCCUPIED) == 0) continue;
+                if ((oldFlags[slot] & TOUCHED) == 0) {
+                    if (count == dropped.length) dropped = Arrays.copyOf(dropped, count * 2);
+                    dropped[count++] = oldKeys[slot];
+                    continue;
+                }
+                int to = slotFor(oldKeys[slot]);
+                samples[to] = oldSamples[slot];
+                fullHis[to] = oldHis[slot];
+                fullLos[to] = oldLos[slot];
+                flags[to] = (byte) (oldFlags[slot] & ~TOUCHED);
+            }
+            return Arrays.copyOf(dropped, count);
+        }
+
+        private int slotFor(long key) {
+            if ((size + 1) * 2 > keys.length) grow();
+            int mask = keys.length - 1;
+            int slot = slot(key, mask);
+            while ((flags[slot] & OCCUPIED) != 0) {
+                if (keys[slot] == key) return slot;
+                slot = (slot + 1) & mask;
+            }
+            flags[slot] = OCCUPIED;
+            keys[slot] = key;
+            size++;
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldSamples = samples;
+            long[] oldHis = fullHis;
+            long[] oldLos = fullLos;
+            byte[] oldFlags = flags;
+            allocate(oldKeys.length * 2);
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if ((oldFlags[slot] & OCCUPIED) == 0) continue;
+                int to = slotFor(oldKeys[slot]);
+                samples[to] = oldSamples[slot];
+                fullHis[to] = oldHis[slot];
+                fullLos[to] = oldLos[slot];
+                flags[to] = oldFlags[slot];
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            samples = new long[capacity];
+            fullHis = new long[capacity];
+            fullLos = new long[capacity];
+            flags = new byte[capacity];
+            size = 0;
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
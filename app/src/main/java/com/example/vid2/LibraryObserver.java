@@ -0,0 +1,68 @@
+package com.example.vid2;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.provider.MediaStore;
+
+/**
+ * Watches the MediaStore video table and reports bursts of change notifications as one.
+ *
+ * Saving a recording notifies several times (pending insert, data written, publish), so the
+ * callback runs once notifications pause for {@link #QUIET_MS}, and at the latest
+ * {@link #MAX_DELAY_MS} after the first one of a burst. Main thread only.
+ */
+public class LibraryObserver extends ContentObserver {
+
+    private static final long QUIET_MS = 500;
+    private static final long MAX_DELAY_MS = 3_000;
+
+    private final ContentResolver resolver;
+    private final Handler handler;
+    private final Runnable onChanged;
+    private final Runnable fire = this::fire;
+
+    private long burstStartMs = -1;
+    private boolean registered;
+
+    public LibraryObserver(ContentResolver resolver, Runnable onChanged) {
+        this(resolver, new Handler(Looper.getMainLooper()), onChanged);
+    }
+
+    private LibraryObserver(ContentResolver resolver, Handler handler, Runnable onChanged) {
+        super(handler);
+        this.resolver = resolver;
+        this.handler = handler;
+        this.onChanged = onChanged;
+    }
+
+    public void register() {
+        if (registered) return;
+        resolver.registerContentObserver(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, true, this);
+        registered = true;
+    }
+
+    public void unregister() {
+        if (!registered) return;
+        resolver.unregisterContentObserver(this);
+        handler.removeCallbacks(fire);
+        burstStartMs = -1;
+        registered = false;
+    }
+
+    @Override
+    public void onChange(boolean selfChange) {
+        long now = SystemClock.uptimeMillis();
+        if (burstStartMs < 0) burstStartMs = now;
+        handler.removeCallbacks(fire);
+        long deadline = burstStartMs + MAX_DELAY_MS;
+        handler.postAtTime(fire, Math.min(now + QUIET_MS, deadline));
+    }
+
+    private void fire() {
+        burstStartMs = -1;
+        onChanged.run();
+    }
+}
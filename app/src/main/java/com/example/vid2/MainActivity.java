@@ -1,11 +1,15 @@
 package com.example.vid2;
 
 import android.Manifest;
+import android.app.AlertDialog;
+import android.content.Intent;
 import android.content.pm.PackageManager;
-import android.database.Cursor;
+import android.content.res.Configuration;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
-import android.provider.MediaStore;
+import android.os.Environment;
+import android.provider.Settings;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.widget.EditText;
@@ -16,19 +20,54 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 public class MainActivity extends AppCompatActivity {
 
     private RecyclerView videoRecyclerView;
-    private ArrayList<String> videoList;
-    private ArrayList<String> filteredVideoList;
     private VideoAdapter adapter;
+    private VideoRowPool rowPool;
+    private VideoScanner scanner;
+    private VideoSearcher searcher;
     private EditText searchBar;
     private TextView videoCountText;
+    private TextView lanShareText;
+    private TextView sortText;
+    private TextView folderText;
+    private TextView duplicatesText;
+    private DuplicateDetector duplicateDetector;
+    private DuplicateFinder.Result duplicates;
+    private boolean showingDuplicates;
+    // Latest search results, shown again when the duplicates view is left
+    private VideoCatalog resultCatalog = VideoCatalog.EMPTY;
+    private int[] resultRows = new int[0];
+    private TextView deepScanText;
+    private DeepScanner deepScanner;
+    // Last complete MediaStore scan, before the deep scan's finds are merged in
+    private VideoCatalog mediaStoreCatalog = VideoCatalog.EMPTY;
+    private boolean deepScanned;
+    private boolean awaitingFileAccess;
+    private VideoStreamServer streamServer;
+    private LibraryObserver libraryObserver;
+    private ResumeStore resumeStore;
+    private int shownResumeVersion;
+    private static final int STREAM_PORT = 8080;
+    // Picker entries; a null key keeps the search order (best match, else newest first)
+    private static final String[] SORT_LABELS = {"Default order", "Name A-Z", "Name Z-A",
+            "Newest first", "Oldest first", "Largest first", "Smallest first",
+            "Longest first", "Shortest first", "Highest resolution", "Lowest resolution"};
+    private static final VideoSort.Key[] SORT_KEYS = {null, VideoSort.Key.NAME, VideoSort.Key.NAME,
+            VideoSort.Key.DATE, VideoSort.Key.DATE, VideoSort.Key.SIZE, VideoSort.Key.SIZE,
+            VideoSort.Key.DURATION, VideoSort.Key.DURATION, VideoSort.Key.RESOLUTION, VideoSort.Key.RESOLUTION};
+    private static final boolean[] SORT_DESCENDING = {false, false, true, true, false, true, false,
+            true, false, true, false};
     private static final int REQUEST_PERMISSION = 100;
 
     @Override
@@ -39,12 +78,61 @@ public class MainActivity extends AppCompatActivity {
         videoRecyclerView = findViewById(R.id.videoRecyclerView);
         searchBar = findViewById(R.id.searchBar);
         videoCountText = findViewById(R.id.videoCountText);
+        lanShareText = findViewById(R.id.lanShareText);
+        lanShareText.setOnClickListener(v -> toggleLanSharing());
+        sortText = findViewById(R.id.sortText);
+        sortText.setOnClickListener(v -> showSortDialog());
+        folderText = findViewById(R.id.folderText);
+        folderText.setOnClickListener(v -> searcher.loadFolders(this::showFolderDialog));
+        duplicatesText = findViewById(R.id.duplicatesText);
+        duplicatesText.setOnClickListener(v -> onDuplicatesClicked());
+        deepScanText = findViewById(R.id.deepScanText);
+        deepScanText.setOnClickListener(v -> onDeepScanClicked());
 
-        videoRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        // Long-press the title for the playback telemetry summary
+        findViewById(R.id.titleText).setOnLongClickListener(v -> {
+            startActivity(new Intent(this, PlaybackStatsActivity.class));
+            return true;
+        });
+
+        // Rows never change the list's own size, and a whole row of grid cells is kept
+        // attached-ready so scrolling back a little rebinds nothing
+        int columns = getResources().getInteger(R.integer.video_grid_columns);
+        videoRecyclerView.setLayoutManager(columns > 1
+                ? new GridLayoutManager(this, columns) : new LinearLayoutManager(this));
+        videoRecyclerView.setHasFixedSize(true);
+        videoRecyclerView.setItemViewCacheSize(Math.max(2, columns * 2));
+        rowPool = new VideoRowPool(this, columns > 1 ? R.layout.video_tile : R.layout.video_item,
+                screenOfRows(columns));
+        videoRecyclerView.setRecycledViewPool(rowPool);
 
-        // Initialize lists
-        videoList = new ArrayList<>();
-        filteredVideoList = new ArrayList<>();
+        VideoMetadataStore metadataStore = new VideoMetadataStore(this);
+        ThumbnailLoader thumbnails = ThumbnailLoader.getInstance(this);
+        resumeStore = ResumeStore.getInstance(this);
+        adapter = new VideoAdapter(this, thumbnails, new MetadataResolver(metadataStore), resumeStore, rowPool);
+        videoRecyclerView.setAdapter(adapter);
+        // Inflation overlaps the MediaStore query instead of stalling the first frame of rows
+        rowPool.prefill(videoRecyclerView, adapter);
+        videoRecyclerView.addOnScrollListener(new ThumbnailPreloader(adapter, thumbnails));
+        scanner = new VideoScanner(this, metadataStore);
+        searcher = new VideoSearcher((catalog, rows) -> {
+            resultCatalog = catalog;
+            resultRows = rows;
+            if (showingDuplicates) return;
+            updateVideoCount(rows.length);
+            adapter.setData(catalog, rows);
+        });
+        duplicateDetector = new DuplicateDetector(metadataStore);
+        deepScanner = new DeepScanner(this);
+        if (deepScanner.isEnabled()) deepScanText.setText("🔭 Deep scan on");
+        // New recordings and deletions arrive as deltas instead of a rescan
+        libraryObserver = new LibraryObserver(getContentResolver(),
+                () -> scanner.refresh(VideoRepository.getInstance(this)::getCatalog, this::applyDelta));
+        resumeStore.whenLoaded(this::refreshResumeBadges);
+
+        // Show what this process already knows while the scan catches up
+        VideoCatalog known = VideoRepository.getInstance(this).getCatalog();
+        if (!known.isEmpty()) searcher.setCatalog(known);
 
         // Check permissions
         checkPermissions();
@@ -56,7 +144,8 @@ public class MainActivity extends AppCompatActivity {
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                filterVideos(s.toString());
+                showDuplicates(false);
+                searcher.search(s.toString());
             }
 
             @Override
@@ -87,55 +176,229 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void loadVideos() {
-        videoList.clear();
-        filteredVideoList.clear();
-
-        Uri uri = MediaStore.Video.Media.EXTERNAL_CONTENT_URI;
-        String[] projection = {MediaStore.Video.Media.DATA};
-        String sortOrder = MediaStore.Video.Media.DATE_MODIFIED + " DESC";
-
-        Cursor cursor = getContentResolver().query(uri, projection, null, null, sortOrder);
-        if (cursor != null) {
-            while (cursor.moveToNext()) {
-                String path = cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Video.Media.DATA));
-                videoList.add(path);
-                filteredVideoList.add(path);
+        libraryObserver.register();
+        // Query runs off the main thread; pages stream in while the cursor advances
+        scanner.scan(new VideoScanner.Callback() {
+            @Override
+            public void onPage(VideoCatalog page) {
+                showCatalog(page);
+            }
+
+            @Override
+            public void onComplete(VideoCatalog complete) {
+                mediaStoreCatalog = complete;
+                showCatalog(deepScanner.merge(complete));
+                // The walk runs once per launch; later scans reuse what it found
+                if (deepScanner.isEnabled() && !deepScanned) startDeepScan();
+                if (complete.isEmpty()) {
+                    Toast.makeText(MainActivity.this, "No videos found on device", Toast.LENGTH_LONG).show();
+                }
             }
-            cursor.close();
+        });
+    }
+
+    private void showCatalog(VideoCatalog catalog) {
+        VideoRepository.getInstance(this).setCatalog(catalog);
+        searcher.setCatalog(catalog);
+    }
+
+    private void applyDelta(VideoCatalog.Delta delta) {
+        VideoRepository repository = VideoRepository.getInstance(this);
+        if (repository.getCatalog() != delta.previous) {
+            // A scan page landed while the refresh ran; only a full scan is sure to be right
+            loadVideos();
+            return;
         }
+        repository.setCatalog(delta.catalog);
+        searcher.applyDelta(delta);
+    }
 
-        // Update video count
-        updateVideoCount(filteredVideoList.size());
+    private void refreshResumeBadges() {
+        shownResumeVersion = resumeStore.version();
+        adapter.refreshResume();
+    }
 
-        // Set adapter
-        adapter = new VideoAdapter(filteredVideoList, this);
-        videoRecyclerView.setAdapter(adapter);
+    private void showSortDialog() {
+        int selected = 0;
+        for (int i = 0; i < SORT_KEYS.length; i++) {
+            if (SORT_KEYS[i] == searcher.getSortKey() && SORT_DESCENDING[i] == searcher.isDescending()) selected = i;
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Sort videos")
+                .setSingleChoiceItems(SORT_LABELS, selected, (dialog, which) -> {
+                    // Sorting runs on the search thread; the list updates when it is done
+                    searcher.setOrder(SORT_KEYS[which], SORT_DESCENDING[which]);
+                    sortText.setText("↕ " + SORT_LABELS[which]);
+                    dialog.dismiss();
+                })
+                .show();
+    }
 
-        if (videoList.isEmpty()) {
-            Toast.makeText(this, "No videos found on device", Toast.LENGTH_LONG).show();
+    private void showFolderDialog(VideoSort.Folders folders) {
+        if (isFinishing()) return;
+        MediaTextFormatter formatter = new MediaTextFormatter();
+        char[] size = new char[MediaTextFormatter.BUFFER_SIZE];
+        String[] labels = new String[folders.size() + 1];
+        labels[0] = "All folders";
+        int selected = 0;
+        for (int i = 0; i < folders.size(); i++) {
+            int count = folders.count(i);
+            labels[i + 1] = folders.name(i) + "  ·  " + count + (count == 1 ? " video" : " videos")
+                    + ", " + new String(size, 0, formatter.formatFileSize(folders.totalBytes(i), size));
+            if (folders.path(i).equals(searcher.getFolder())) selected = i + 1;
         }
+        new AlertDialog.Builder(this)
+                .setTitle("Show folder")
+                .setSingleChoiceItems(labels, selected, (dialog, which) -> {
+                    searcher.setFolder(which == 0 ? null : folders.path(which - 1));
+                    folderText.setText("📁 " + (which == 0 ? "All folders" : folders.name(which - 1)));
+                    dialog.dismiss();
+                })
+                .show();
     }
 
-    private void filterVideos(String query) {
-        filteredVideoList.clear();
+    // Find, then toggle between the duplicate groups and the normal list
+    private void onDuplicatesClicked() {
+        if (duplicates != null && duplicates.catalog == VideoRepository.getInstance(this).getCatalog()) {
+            showDuplicates(!showingDuplicates);
+            return;
+        }
+        VideoCatalog catalog = VideoRepository.getInstance(this).getCatalog();
+        if (catalog.isEmpty()) return;
+        duplicatesText.setText("🧬 Looking for duplicates…");
+        duplicateDetector.find(catalog, result -> {
+            duplicates = result;
+            if (result.groupCount() == 0) {
+                duplicatesText.setText("🧬 No duplicates found");
+                return;
+            }
+            showDuplicates(true);
+        });
+    }
 
-        if (query.isEmpty()) {
-            filteredVideoList.addAll(videoList);
+    private void showDuplicates(boolean show) {
+        if (show == showingDuplicates || duplicates == null) return;
+        showingDuplicates = show;
+        if (show) {
+            updateVideoCount(duplicates.rows.length);
+            adapter.setData(duplicates.catalog, duplicates.rows);
+            duplicatesText.setText("✕ Back to all videos");
         } else {
-            String lowerCaseQuery = query.toLowerCase();
-            for (String videoPath : videoList) {
-                String fileName = new java.io.File(videoPath).getName().toLowerCase();
-                if (fileName.contains(lowerCaseQuery)) {
-                    filteredVideoList.add(videoPath);
-                }
-            }
+            updateVideoCount(resultRows.length);
+            adapter.setData(resultCatalog, resultRows);
+            MediaTextFormatter formatter = new MediaTextFormatter();
+            char[] size = new char[MediaTextFormatter.BUFFER_SIZE];
+            duplicatesText.setText("🧬 " + duplicates.groupCount() + " sets of duplicates, "
+                    + new String(size, 0, formatter.formatFileSize(duplicates.reclaimableBytes, size))
+                    + " reclaimable");
+        }
+    }
+
+    // Stop a running deep scan, or pick the folders to walk
+    private void onDeepScanClicked() {
+        if (deepScanner.isRunning()) {
+            deepScanner.cancel();
+            deepScanText.setText("🔭 Deep scan stopped");
+            return;
+        }
+        List<String> paths = DeepScanner.volumeRoots(this);
+        Set<String> saved = deepScanner.roots();
+        for (String root : saved) {
+            if (!paths.contains(root)) paths.add(root);
         }
+        String[] items = paths.toArray(new String[0]);
+        boolean[] checked = new boolean[items.length];
+        for (int i = 0; i < items.length; i++) checked[i] = saved.isEmpty() ? i == 0 : saved.contains(items[i]);
+        new AlertDialog.Builder(this)
+                .setTitle("Deep scan folders")
+                .setMultiChoiceItems(items, checked, (dialog, which, isChecked) -> checked[which] = isChecked)
+                .setPositiveButton("Scan", (dialog, which) -> {
+                    Set<String> roots = new HashSet<>();
+                    for (int i = 0; i < items.length; i++) {
+                        if (checked[i]) roots.add(items[i]);
+                    }
+                    if (roots.isEmpty()) {
+                        turnOffDeepScan();
+                        return;
+                    }
+                    deepScanner.setRoots(roots);
+                    if (!hasAllFilesAccess()) {
+                        // Files MediaStore never indexed are only readable with this access
+                        awaitingFileAccess = true;
+                        deepScanText.setText("🔭 Allow access to all files to deep scan");
+                        startActivity(new Intent(Settings.ACTION_MANAGE_APP_ALL_FILES_ACCESS_PERMISSION,
+                                Uri.parse("package:" + getPackageName())));
+                        return;
+                    }
+                    startDeepScan();
+                })
+                .setNeutralButton("Turn off", (dialog, which) -> turnOffDeepScan())
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private void startDeepScan() {
+        if (!hasAllFilesAccess()) {
+            deepScanText.setText("🔭 Deep scan needs access to all files");
+            return;
+        }
+        deepScanned = true;
+        deepScanText.setText("🔭 Deep scan starting…");
+        deepScanner.scan(mediaStoreCatalog, new DeepScanner.Callback() {
+            @Override
+            public void onProgress(long directories, long files, long found) {
+                deepScanText.setText("🔭 " + directories + " folders, " + files + " files, "
+                        + found + " videos… tap to stop");
+            }
+
+            @Override
+            public void onComplete(int added, VideoFileWalker.Result walk) {
+                // Rows changed meanwhile are in the repository's catalog; merging is by path
+                showCatalog(deepScanner.merge(VideoRepository.getInstance(MainActivity.this).getCatalog()));
+                deepScanText.setText("🔭 Deep scan: " + added + " more videos, " + walk.files
+                        + " files at " + walk.filesPerSecond() + " files/s");
+            }
+        });
+    }
+
+    private void turnOffDeepScan() {
+        deepScanner.setRoots(new HashSet<>());
+        deepScanned = false;
+        deepScanText.setText("🔭 Deep scan off");
+        loadVideos();
+    }
 
-        updateVideoCount(filteredVideoList.size());
+    private boolean hasAllFilesAccess() {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.R || Environment.isExternalStorageManager();
+    }
 
-        if (adapter != null) {
-            adapter.notifyDataSetChanged();
+    private void toggleLanSharing() {
+        if (streamServer != null) {
+            streamServer.stop();
+            streamServer = null;
+            lanShareText.setText("📡 LAN sharing off");
+            return;
+        }
+        // Serves whatever catalog the repository holds at request time
+        VideoStreamServer server = new VideoStreamServer(STREAM_PORT, VideoRepository.getInstance(this)::getCatalog);
+        try {
+            server.start();
+        } catch (IOException e) {
+            Toast.makeText(this, "Could not start sharing: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            return;
         }
+        streamServer = server;
+        lanShareText.setText("📡 Sharing at http://" + VideoStreamServer.lanAddress() + ":"
+                + server.getListeningPort());
+    }
+
+    // Rows that fit on the screen, plus one row of cells for the partly visible ones
+    private int screenOfRows(int columns) {
+        Configuration config = getResources().getConfiguration();
+        // Rough heights of a list row and a grid cell (thumbnail plus two text lines), in dp
+        int rowHeightDp = columns > 1 ? config.screenWidthDp / columns * 9 / 14 + 72 : 130;
+        int rows = config.screenHeightDp / Math.max(1, rowHeightDp) + 1;
+        return (rows + 1) * columns;
     }
 
     private void updateVideoCount(int count) {
@@ -158,4 +421,35 @@ public class MainActivity extends AppCompatActivity {
             }
         }
     }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Back from the player: only the badges of videos watched meanwhile change
+        if (resumeStore.version() != shownResumeVersion) refreshResumeBadges();
+        // Back from the all-files access screen
+        if (awaitingFileAccess && hasAllFilesAccess()) {
+            awaitingFileAccess = false;
+            startDeepScan();
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        ThumbnailLoader.getInstance(this).trimMemory(level);
+        PlayerPool.getInstance(this).trimMemory(level);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        libraryObserver.unregister();
+        rowPool.release();
+        scanner.shutdown();
+        duplicateDetector.shutdown();
+        deepScanner.shutdown();
+        searcher.shutdown();
+        if (streamServer != null) streamServer.stop();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,197 @@
+package com.example.vid2;
+
+import java.text.DateFormatSymbols;
+import java.text.DecimalFormatSymbols;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Formats durations, file sizes and dates into caller-owned {@code char[]} buffers without
+ * allocating, for text that is rebound on every scroll or progress tick.
+ *
+ * Each method writes from index 0 and returns the length; pair it with
+ * {@code TextView.setText(char[], int, int)} and give every TextView its own buffer, since
+ * the view keeps reading the array. Locale data (month names, decimal separator) is cached
+ * per locale and the relative-date boundaries are recomputed once per day. Not thread-safe.
+ */
+public final class MediaTextFormatter {
+
+    /** Large enough for every format produced here. */
+    public static final int BUFFER_SIZE = 32;
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private static final char[] TODAY = "Today".toCharArray();
+    private static final char[] YESTERDAY = "Yesterday".toCharArray();
+    private static final char[] DAYS_AGO = " days ago".toCharArray();
+    private static final char[] UNKNOWN = "--:--".toCharArray();
+
+    private static final Map<Locale, char[][]> MONTHS = new HashMap<>();
+    private static final Map<Locale, Character> DECIMAL_SEPARATORS = new HashMap<>();
+
+    private Locale locale;
+    private char[][] months;
+    private char decimalSeparator;
+
+    private TimeZone timeZone;
+    private long todayStartMs;
+    private long tomorrowStartMs = Long.MIN_VALUE;
+    private long todayEpochDay;
+
+    /** {@code 1:02:03} or {@code 02:03}; {@code --:--} for negative input. */
+    public int formatDuration(long milliseconds, char[] out) {
+        if (milliseconds < 0) return copy(UNKNOWN, out, 0);
+        long seconds = milliseconds / 1000;
+        long hours = seconds / 3600;
+        int minutes = (int) ((seconds % 3600) / 60);
+        int secs = (int) (seconds % 60);
+
+        int n = 0;
+        if (hours > 0) {
+            n = writeLong(hours, out, 0);
+            out[n++] = ':';
+        }
+        n = write2(minutes, out, n);
+        out[n++] = ':';
+        return write2(secs, out, n);
+    }
+
+    /** {@code 512 B}, {@code 1.5 KB}, {@code 700.2 MB}, {@code 1.25 GB}. */
+    public int formatFileSize(long bytes, char[] out) {
+        refreshLocale();
+        int n;
+        if (bytes < 1024) {
+            n = writeLong(bytes, out, 0);
+            out[n++] = ' ';
+            out[n++] = 'B';
+            return n;
+        } else if (bytes < 1024 * 1024) {
+            n = writeFixed(bytes, 10, 10, out, 0);
+            out[n++] = ' ';
+            out[n++] = 'K';
+        } else if (bytes < 1024 * 1024 * 1024) {
+            n = writeFixed(bytes, 20, 10, out, 0);
+            out[n++] = ' ';
+            out[n++] = 'M';
+        } else {
+            n = writeFixed(bytes, 30, 100, out, 0);
+            out[n++] = ' ';
+            out[n++] = 'G';
+        }
+        out[n++] = 'B';
+        return n;
+    }
+
+    /**
+     * {@code Today}, {@code Yesterday}, {@code 3 days ago} within the last week (calendar days
+     * in the default time zone), else {@code Mar 05, 2024}.
+     */
+    public int formatDate(long timestampMs, long nowMs, char[] out) {
+        refreshLocale();
+        if (nowMs >= tomorrowStartMs || nowMs < todayStartMs) refreshDay(nowMs);
+
+        if (timestampMs >= todayStartMs) return copy(TODAY, out, 0);
+        long epochDay = Math.floorDiv(timestampMs + timeZone.getOffset(timestampMs), DAY_MS);
+        long daysAgo = todayEpochDay - epochDay;
+        if (daysAgo <= 1) return copy(YESTERDAY, out, 0);
+        if (daysAgo < 7) {
+            int n = writeLong(daysAgo, out, 0);
+            return copy(DAYS_AGO, out, n);
+        }
+        return writeCivilDate(epochDay, out);
+    }
+
+    private void refreshLocale() {
+        Locale current = Locale.getDefault();
+        if (current == locale) return;
+        locale = current;
+        synchronized (MONTHS) {
+            char[][] cached = MONTHS.get(current);
+            if (cached == null) {
+                String[] names = DateFormatSymbols.getInstance(current).getShortMonths();
+                cached = new char[12][];
+                for (int i = 0; i < 12; i++) cached[i] = names[i].toCharArray();
+                MONTHS.put(current, cached);
+            }
+            months = cached;
+            Character separator = DECIMAL_SEPARATORS.get(current);
+            if (separator == null) {
+                separator = DecimalFormatSymbols.getInstance(current).getDecimalSeparator();
+                DECIMAL_SEPARATORS.put(current, separator);
+            }
+            decimalSeparator = separator;
+        }
+    }
+
+    private void refreshDay(long nowMs) {
+        timeZone = TimeZone.getDefault();
+        long offset = timeZone.getOffset(nowMs);
+        todayEpochDay = Math.floorDiv(nowMs + offset, DAY_MS);
+        todayStartMs = todayEpochDay * DAY_MS - offset;
+        tomorrowStartMs = todayStartMs + DAY_MS;
+    }
+
+    /** Writes {@code value / 2^shift} rounded half-up to 1/{@code scale}. */
+    private int writeFixed(long value, int shift, int scale, char[] out, int n) {
+        long scaled = (value * scale + (1L << (shift - 1))) >> shift;
+        n = writeLong(scaled / scale, out, n);
+        out[n++] = decimalSeparator;
+        long fraction = scaled % scale;
+        if (scale == 100) {
+            return write2((int) fraction, out, n);
+        }
+        out[n++] = (char) ('0' + fraction);
+        return n;
+    }
+
+    /** "MMM dd, yyyy" from days since 1970-01-01 (proleptic Gregorian). */
+    private int writeCivilDate(long epochDay, char[] out) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+        int n = copy(months[month - 1], out, 0);
+        out[n++] = ' ';
+        n = write2(day, out, n);
+        out[n++] = ',';
+        out[n++] = ' ';
+        return writeLong(year, out, n);
+    }
+
+    private static int write2(int value, char[] out, int n) {
+        out[n++] = (char) ('0' + value / 10);
+        out[n++] = (char) ('0' + value % 10);
+        return n;
+    }
+
+    private static int writeLong(long value, char[] out, int n) {
+        if (value < 0) {
+            out[n++] = '-';
+            value = -value;
+        }
+        int start = n;
+        do {
+            out[n++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        for (int i = start, j = n - 1; i < j; i++, j--) {
+            char c = out[i];
+            out[i] = out[j];
+            out[j] = c;
+        }
+        return n;
+    }
+
+    private static int copy(char[] text, char[] out, int n) {
+        System.arraycopy(text, 0, out, n, text.length);
+        return n + text.length;
+    }
+}
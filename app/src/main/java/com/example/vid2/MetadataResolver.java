@@ -0,0 +1,138 @@
+package com.example.vid2;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves metadata MediaStore left empty (today: duration) without touching the bind path.
+ *
+ * Requests are deduplicated per video, probed by a small fixed pool, remembered in memory
+ * and written back to {@link VideoMetadataStore} so the next scan already has them. A row
+ * that is recycled before its probe starts drops its interest, and a probe nobody is
+ * waiting for is skipped; if a row asks again before the skip reaches the main thread, the
+ * request is queued again. Call everything from the main thread; listeners run there too.
+ */
+public class MetadataResolver {
+
+    private static final String TAG = "MetadataResolver";
+    private static final int THREADS = 2;
+    private static final int CACHE_ENTRIES = 4096;
+
+    public interface Listener {
+        /** {@code durationMs} is 0 when the file could not be probed. */
+        void onDurationResolved(long videoId, long durationMs);
+    }
+
+    private final VideoMetadataStore store;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS,
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    private final LruCache<Long, Long> durations = new LruCache<>(CACHE_ENTRIES);
+
+    // Main thread only
+    private final Map<Long, Request> inFlight = new HashMap<>();
+    private final Map<Listener, Request> byListener = new HashMap<>();
+
+    public MetadataResolver(VideoMetadataStore store) {
+        this.store = store;
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /** Cached duration for {@code videoId}, or -1 if it has not been resolved yet. */
+    public long cachedDuration(long videoId) {
+        Long duration = durations.get(videoId);
+        return duration != null ? duration : -1;
+    }
+
+    /**
+     * Asks for the duration of {@code video}; {@code listener} is called once it is known.
+     * A listener waits for one video at a time, so this replaces its previous request.
+     */
+    public void requestDuration(VideoEntry video, Listener listener) {
+        cancel(listener);
+        Request request = inFlight.get(video.id);
+        if (request == null) {
+            request = new Request(video);
+            inFlight.put(video.id, request);
+            executor.execute(request);
+        }
+        request.listeners.add(listener);
+        request.waiting = request.listeners.size();
+        byListener.put(listener, request);
+    }
+
+    public void cancel(Listener listener) {
+        Request request = byListener.remove(listener);
+        if (request == null) return;
+        request.listeners.remove(listener);
+        request.waiting = request.listeners.size();
+    }
+
+    // The worker saw nobody waiting, but a listener may have come since it looked
+    private void skipped(Request request) {
+        if (request.listeners.isEmpty()) {
+            inFlight.remove(request.video.id);
+        } else {
+            executor.execute(request);
+        }
+    }
+
+    private void deliver(Request request, long duration) {
+        inFlight.remove(request.video.id);
+        if (duration >= 0) durations.put(request.video.id, duration);
+        for (Listener listener : request.listeners) {
+            byListener.remove(listener);
+            if (duration >= 0) listener.onDurationResolved(request.video.id, duration);
+        }
+        request.listeners.clear();
+    }
+
+    private final class Request implements Runnable {
+        final VideoEntry video;
+        final List<Listener> listeners = new ArrayList<>(1);
+        volatile int waiting;
+
+        Request(VideoEntry video) {
+            this.video = video;
+        }
+
+        @Override
+        public void run() {
+            if (waiting == 0) {
+                mainHandler.post(() -> skipped(this));
+                return;
+            }
+            VideoMetadataStore.Entry entry = new VideoMetadataStore.Entry();
+            entry.mediaId = video.id;
+            entry.path = video.path;
+            entry.name = video.name;
+            entry.size = video.sizeBytes;
+            entry.mtime = video.dateModifiedMs;
+            entry.width = video.width;
+            entry.height = video.height;
+            entry.thumbKey = VideoMetadataStore.thumbnailKey(video.path, video.sizeBytes, video.dateModifiedMs);
+            VideoProber.probe(entry);
+            // Deep-scan finds (negative ids) are not MediaStore rows, so the store never keeps them
+            if (video.id >= 0) {
+                try {
+                    store.apply(Collections.singletonList(entry), Collections.emptyList());
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Could not persist metadata for " + video.path, e);
+                }
+            }
+            long duration = entry.duration;
+            mainHandler.post(() -> deliver(this, duration));
+        }
+    }
+}
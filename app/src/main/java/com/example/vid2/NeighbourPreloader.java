@@ -0,0 +1,93 @@
+package com.example.vid2;
+
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.util.Log;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms the next (and previous) playlist item while the current one plays, so a skip does not
+ * wait on cold storage.
+ *
+ * The player cannot prepare a second source in the background, so this does the parts that
+ * are shareable: parsing the container index once (which pulls the moov/cues into the page
+ * cache wherever they sit in the file) and reading the first few seconds of media. Only one
+ * small buffer lives on the heap; the bytes read per item are capped by {@link #MAX_BYTES}.
+ * A new {@link #preload} call cancels whatever the previous one had not finished.
+ */
+public class NeighbourPreloader {
+
+    private static final String TAG = "NeighbourPreloader";
+
+    private static final int PRELOAD_SECONDS = 5;
+    private static final long MAX_BYTES = 12L * 1024 * 1024;
+    // Used when the container does not report a duration
+    private static final long FALLBACK_BYTES = 4L * 1024 * 1024;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final byte[] buffer = new byte[64 * 1024];
+
+    /** Warms the item after {@code current}, then the one before it. */
+    public void preload(List<String> paths, int current) {
+        int token = generation.incrementAndGet();
+        String next = current + 1 < paths.size() ? paths.get(current + 1) : null;
+        String previous = current > 0 ? paths.get(current - 1) : null;
+        executor.execute(() -> {
+            if (next != null) warm(next, token);
+            if (previous != null) warm(previous, token);
+        });
+    }
+
+    /** Stops any warming in progress, e.g. when the user jumps to an unrelated item. */
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private void warm(String path, int token) {
+        if (generation.get() != token) return;
+        long durationUs = 0;
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(path);
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat format = extractor.getTrackFormat(i);
+                if (format.containsKey(MediaFormat.KEY_DURATION)) {
+                    durationUs = Math.max(durationUs, format.getLong(MediaFormat.KEY_DURATION));
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Could not parse " + path, e);
+            return;
+        } finally {
+            extractor.release();
+        }
+
+        try (FileInputStream in = new FileInputStream(path)) {
+            long length = in.getChannel().size();
+            long budget = durationUs > 0
+                    ? length * PRELOAD_SECONDS * 1_000_000L / durationUs
+                    : FALLBACK_BYTES;
+            budget = Math.min(budget, MAX_BYTES);
+            long read = 0;
+            while (read < budget && generation.get() == token) {
+                int n = in.read(buffer, 0, (int) Math.min(buffer.length, budget - read));
+                if (n < 0) break;
+                read += n;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read " + path, e);
+        }
+    }
+}
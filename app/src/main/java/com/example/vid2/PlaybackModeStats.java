@@ -0,0 +1,169 @@
+package com.example.vid2;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DecoderCounters;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+
+/**
+ * Measures what playing costs with the picture on and in audio-only mode: process CPU time,
+ * how long the video decoder was enabled and how many video frames it got through, per second
+ * of playback in each mode. Only time spent playing counts.
+ *
+ * Totals live in a small SharedPreferences file and are logged after each session, like
+ * {@link BufferingStats}. Events arrive on the main thread.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class PlaybackModeStats implements AnalyticsListener {
+
+    private static final String TAG = "PlaybackModeStats";
+    private static final String PREFS = "playback_mode_stats";
+
+    public enum Mode {
+        VIDEO("Video"),
+        AUDIO_ONLY("Audio only");
+
+        public final String label;
+
+        Mode(String label) {
+            this.label = label;
+        }
+    }
+
+    private final Context context;
+    private final long[] playedMs = new long[Mode.values().length];
+    private final long[] cpuMs = new long[Mode.values().length];
+    private final long[] decoderMs = new long[Mode.values().length];
+    private final long[] frames = new long[Mode.values().length];
+
+    private Mode mode = Mode.VIDEO;
+    private boolean playing;
+    // Start of the segment being measured; -1 while paused
+    private long markMs = -1;
+    private long markCpuMs;
+    private long decoderSinceMs = -1;
+    // Counters of the enabled video decoder, and its frame count at the last mark
+    private DecoderCounters videoCounters;
+    private long videoFramesAtMark;
+    private boolean saved;
+
+    public PlaybackModeStats(Context context) {
+        this(context, Mode.VIDEO, false);
+    }
+
+    /** For a player that is already running in {@code mode}, with its video renderer off. */
+    public PlaybackModeStats(Context context, Mode mode, boolean playing) {
+        this.context = context.getApplicationContext();
+        this.mode = mode;
+        this.playing = playing;
+        if (playing) restart();
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /** Charges what ran so far to the old mode. */
+    public void setMode(Mode mode) {
+        if (mode == this.mode) return;
+        mark();
+        this.mode = mode;
+    }
+
+    @Override
+    public void onIsPlayingChanged(EventTime eventTime, boolean isPlaying) {
+        mark();
+        playing = isPlaying;
+        // Paused time is not measured
+        if (isPlaying) restart();
+        else markMs = -1;
+    }
+
+    @Override
+    public void onVideoEnabled(EventTime eventTime, DecoderCounters counters) {
+        mark();
+        videoCounters = counters;
+        videoFramesAtMark = 0;
+        if (playing) decoderSinceMs = SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void onVideoDisabled(EventTime eventTime, DecoderCounters counters) {
+        mark();
+        videoCounters = null;
+        decoderSinceMs = -1;
+    }
+
+    /** Adds this session to the per-mode totals. Only the first call counts. */
+    public void save() {
+        if (saved) return;
+        saved = true;
+        mark();
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Mode m : Mode.values()) {
+            int i = m.ordinal();
+            if (playedMs[i] == 0) continue;
+            String key = m.name();
+            editor.putLong(key + ".playedMs", prefs.getLong(key + ".playedMs", 0) + playedMs[i])
+                    .putLong(key + ".cpuMs", prefs.getLong(key + ".cpuMs", 0) + cpuMs[i])
+                    .putLong(key + ".decoderMs", prefs.getLong(key + ".decoderMs", 0) + decoderMs[i])
+                    .putLong(key + ".frames", prefs.getLong(key + ".frames", 0) + frames[i]);
+            Log.d(TAG, m.label + ": " + line(playedMs[i], cpuMs[i], decoderMs[i], frames[i]));
+        }
+        editor.apply();
+        Log.d(TAG, "Totals\n" + summary(context));
+    }
+
+    /** One line per mode: time played, CPU per second played, video decoder time and frame rate. */
+    public static String summary(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        StringBuilder sb = new StringBuilder();
+        for (Mode mode : Mode.values()) {
+            String key = mode.name();
+            sb.append(mode.label).append(": ").append(line(prefs.getLong(key + ".playedMs", 0),
+                    prefs.getLong(key + ".cpuMs", 0), prefs.getLong(key + ".decoderMs", 0),
+                    prefs.getLong(key + ".frames", 0))).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String line(long playedMs, long cpuMs, long decoderMs, long frames) {
+        if (playedMs == 0) return "not played";
+        return playedMs / 1000 + " s played, CPU " + cpuMs * 1000 / playedMs
+                + " ms/s, video decoder on " + decoderMs * 100 / playedMs + "%, "
+                + frames * 1000 / playedMs + " frames/s";
+    }
+
+    // Charges the segment since the last mark to the current mode and starts a new one
+    private void mark() {
+        if (videoCounters != null) {
+            videoCounters.ensureUpdated();
+            long total = videoCounters.renderedOutputBufferCount + videoCounters.skippedOutputBufferCount
+                    + videoCounters.droppedBufferCount;
+            if (markMs >= 0) frames[mode.ordinal()] += total - videoFramesAtMark;
+            videoFramesAtMark = total;
+        }
+        if (markMs < 0) return;
+        long now = SystemClock.elapsedRealtime();
+        int i = mode.ordinal();
+        playedMs[i] += now - markMs;
+        cpuMs[i] += Process.getElapsedCpuTime() - markCpuMs;
+        if (decoderSinceMs >= 0) decoderMs[i] += now - decoderSinceMs;
+        markMs = -1;
+        decoderSinceMs = -1;
+        if (playing) restart();
+    }
+
+    private void restart() {
+        markMs = SystemClock.elapsedRealtime();
+        markCpuMs = Process.getElapsedCpuTime();
+        decoderSinceMs = videoCounters != null ? markMs : -1;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.vid2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Performance figures of one played item, as stored in the {@link TelemetryLog} ring file and
+ * exported as JSON (field names are the JSON keys). {@code -1} means "not observed".
+ */
+public class PlaybackSession {
+
+    /** Bytes per record in the ring file; text fields are truncated to fit. */
+    static final int RECORD_SIZE = 256;
+    private static final int NAME_BYTES = 80;
+    private static final int DECODER_BYTES = 48;
+
+    public long startedAtMs;
+    public String videoName = "";
+    public int timeToFirstFrameMs = -1;
+    public String videoDecoder = "";
+    public int videoDecoderInitMs = -1;
+    public String audioDecoder = "";
+    public int audioDecoderInitMs = -1;
+    public int droppedFrames;
+    public int rebufferCount;
+    public int rebufferMs;
+    public int seekCount;
+    public int seekLatencyAvgMs = -1;
+    public int seekLatencyMaxMs = -1;
+    public long bytesLoaded;
+    public int bandwidthKbps = -1;
+
+    void writeTo(ByteBuffer out) {
+        int start = out.position();
+        out.putLong(startedAtMs);
+        out.putInt(timeToFirstFrameMs);
+        out.putInt(videoDecoderInitMs);
+        out.putInt(audioDecoderInitMs);
+        out.putInt(droppedFrames);
+        out.putInt(rebufferCount);
+        out.putInt(rebufferMs);
+        out.putInt(seekCount);
+        out.putInt(seekLatencyAvgMs);
+        out.putInt(seekLatencyMaxMs);
+        out.putLong(bytesLoaded);
+        out.putInt(bandwidthKbps);
+        putString(out, videoName, NAME_BYTES);
+        putString(out, videoDecoder, DECODER_BYTES);
+        putString(out, audioDecoder, DECODER_BYTES);
+        while (out.position() < start + RECORD_SIZE) out.put((byte) 0);
+    }
+
+    static PlaybackSession readFrom(ByteBuffer in) {
+        int start = in.position();
+        PlaybackSession s = new PlaybackSession();
+        s.startedAtMs = in.getLong();
+        s.timeToFirstFrameMs = in.getInt();
+        s.videoDecoderInitMs = in.getInt();
+        s.audioDecoderInitMs = in.getInt();
+        s.droppedFrames = in.getInt();
+        s.rebufferCount = in.getInt();
+        s.rebufferMs = in.getInt();
+        s.seekCount = in.getInt();
+        s.seekLatencyAvgMs = in.getInt();
+        s.seekLatencyMaxMs = in.getInt();
+        s.bytesLoaded = in.getLong();
+        s.bandwidthKbps = in.getInt();
+        s.videoName = getString(in, NAME_BYTES);
+        s.videoDecoder = getString(in, DECODER_BYTES);
+        s.audioDecoder = getString(in, DECODER_BYTES);
+        in.position(start + RECORD_SIZE);
+        return s;
+    }
+
+    // Length-prefixed UTF-8 in a fixed-width slot
+    private static void putString(ByteBuffer out, String value, int width) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, width - 2);
+        // Do not cut a multi-byte character in half
+        while (length > 0 && length < bytes.length && (bytes[length] & 0xC0) == 0x80) length--;
+        int start = out.position();
+        out.putShort((short) length);
+        out.put(bytes, 0, length);
+        out.position(start + width);
+    }
+
+    private static String getString(ByteBuffer in, int width) {
+        int start = in.position();
+        int length = Math.max(0, Math.min(in.getShort(), width - 2));
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(start + width);
+        return value;
+    }
+}
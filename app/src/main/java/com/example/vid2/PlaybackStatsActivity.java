@@ -0,0 +1,101 @@
+package com.example.vid2;
+
+import android.os.Bundle;
+import android.text.format.DateFormat;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.util.List;
+
+/**
+ * Summary of the recorded playback telemetry: averages over every stored session, followed by
+ * the most recent sessions one by one, with an export of the raw records to JSON.
+ */
+public class PlaybackStatsActivity extends AppCompatActivity {
+
+    private static final int RECENT_SESSIONS = 25;
+
+    private TextView txtStats;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_playback_stats);
+
+        txtStats = findViewById(R.id.txtStats);
+        Button btnExport = findViewById(R.id.btnExport);
+
+        TelemetryLog log = TelemetryLog.getInstance(this);
+        log.readAll(this::showSessions);
+        btnExport.setOnClickListener(v -> log.exportJson(file -> {
+            if (file == null) {
+                Toast.makeText(this, "Export failed", Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(this, "Exported to " + file.getPath(), Toast.LENGTH_LONG).show();
+            }
+        }));
+    }
+
+    private void showSessions(List<PlaybackSession> sessions) {
+        if (sessions.isEmpty()) {
+            txtStats.setText("No playback recorded yet");
+            return;
+        }
+
+        long ttffTotal = 0, decoderTotal = 0, seekTotal = 0, bandwidthTotal = 0;
+        int ttffCount = 0, decoderCount = 0, seekCount = 0, bandwidthCount = 0;
+        long dropped = 0, rebuffers = 0, rebufferMs = 0, seeks = 0;
+        for (PlaybackSession s : sessions) {
+            if (s.timeToFirstFrameMs >= 0) { ttffTotal += s.timeToFirstFrameMs; ttffCount++; }
+            if (s.videoDecoderInitMs >= 0) { decoderTotal += s.videoDecoderInitMs; decoderCount++; }
+            if (s.seekLatencyAvgMs >= 0) { seekTotal += s.seekLatencyAvgMs; seekCount++; }
+            if (s.bandwidthKbps >= 0) { bandwidthTotal += s.bandwidthKbps; bandwidthCount++; }
+            dropped += s.droppedFrames;
+            rebuffers += s.rebufferCount;
+            rebufferMs += s.rebufferMs;
+            seeks += s.seekCount;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(sessions.size()).append(" sessions\n\n");
+        sb.append("First frame      avg ").append(average(ttffTotal, ttffCount)).append('\n');
+        sb.append("Decoder init     avg ").append(average(decoderTotal, decoderCount)).append('\n');
+        sb.append("Seek latency     avg ").append(average(seekTotal, seekCount))
+                .append(" over ").append(seeks).append(" seeks\n");
+        sb.append("Rebuffers        ").append(rebuffers).append(", ").append(rebufferMs).append(" ms total\n");
+        sb.append("Dropped frames   ").append(dropped).append('\n');
+        sb.append("Read bandwidth   avg ")
+                .append(bandwidthCount > 0 ? (bandwidthTotal / bandwidthCount) + " kbps" : "n/a").append("\n\n");
+
+        sb.append("Recent sessions\n");
+        int shown = Math.min(RECENT_SESSIONS, sessions.size());
+        for (int i = 0; i < shown; i++) {
+            PlaybackSession s = sessions.get(i);
+            sb.append('\n').append(DateFormat.format("MMM dd HH:mm", s.startedAtMs))
+                    .append("  ").append(s.videoName).append('\n');
+            sb.append("  first frame ").append(ms(s.timeToFirstFrameMs))
+                    .append(", dropped ").append(s.droppedFrames)
+                    .append(", rebuffers ").append(s.rebufferCount)
+                    .append(", seeks ").append(s.seekCount)
+                    .append(" (avg ").append(ms(s.seekLatencyAvgMs)).append(")\n");
+            sb.append("  ").append(s.videoDecoder.isEmpty() ? "no video decoder" : s.videoDecoder)
+                    .append(" in ").append(ms(s.videoDecoderInitMs));
+            if (!s.audioDecoder.isEmpty()) {
+                sb.append(", ").append(s.audioDecoder).append(" in ").append(ms(s.audioDecoderInitMs));
+            }
+            sb.append('\n');
+        }
+        txtStats.setText(sb);
+    }
+
+    private static String average(long total, int count) {
+        return count > 0 ? (total / count) + " ms" : "n/a";
+    }
+
+    private static String ms(int value) {
+        return value >= 0 ? value + " ms" : "n/a";
+    }
+}
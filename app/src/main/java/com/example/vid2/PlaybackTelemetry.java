@@ -0,0 +1,158 @@
+package com.example.vid2;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+import androidx.media3.exoplayer.source.LoadEventInfo;
+import androidx.media3.exoplayer.source.MediaLoadData;
+
+/**
+ * Collects per-item playback performance from the player's analytics events and appends one
+ * {@link PlaybackSession} to the {@link TelemetryLog} whenever the player moves to another item
+ * or is released.
+ *
+ * Time-to-first-frame runs from the first buffering state of an item to its first rendered
+ * frame; a rebuffer is a drop to buffering while playing that was not caused by a seek; seek
+ * latency runs from the seek to the next ready state. Events arrive on the main thread.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class PlaybackTelemetry implements AnalyticsListener {
+
+    private final TelemetryLog log;
+
+    private PlaybackSession session;
+    private long bufferingSinceMs = -1;
+    private long rebufferSinceMs = -1;
+    private long seekSinceMs = -1;
+    private boolean firstFrameSeen;
+    private boolean wasReady;
+    private int completedSeeks;
+    private long seekLatencyTotalMs;
+    private long loadTimeMs;
+
+    public PlaybackTelemetry(TelemetryLog log) {
+        this.log = log;
+    }
+
+    @Override
+    public void onMediaItemTransition(EventTime eventTime, @Nullable MediaItem mediaItem, int reason) {
+        finishSession();
+        if (mediaItem == null) return;
+        session = new PlaybackSession();
+        session.startedAtMs = System.currentTimeMillis();
+        session.videoName = nameOf(mediaItem);
+        // A skip starts buffering the new item right away
+        bufferingSinceMs = eventTime.realtimeMs;
+    }
+
+    @Override
+    public void onPlaybackStateChanged(EventTime eventTime, int state) {
+        if (session == null) return;
+        long now = eventTime.realtimeMs;
+        if (state == Player.STATE_BUFFERING) {
+            if (bufferingSinceMs < 0 && !firstFrameSeen) bufferingSinceMs = now;
+            if (wasReady && seekSinceMs < 0) {
+                rebufferSinceMs = now;
+                session.rebufferCount++;
+            }
+        } else if (state == Player.STATE_READY) {
+            wasReady = true;
+            if (rebufferSinceMs >= 0) {
+                session.rebufferMs += (int) (now - rebufferSinceMs);
+                rebufferSinceMs = -1;
+            }
+            if (seekSinceMs >= 0) {
+                long latency = now - seekSinceMs;
+                seekSinceMs = -1;
+                completedSeeks++;
+                seekLatencyTotalMs += latency;
+                session.seekLatencyMaxMs = (int) Math.max(session.seekLatencyMaxMs, latency);
+            }
+        }
+    }
+
+    @Override
+    public void onPositionDiscontinuity(EventTime eventTime, Player.PositionInfo oldPosition,
+                                        Player.PositionInfo newPosition, int reason) {
+        if (session == null || reason != Player.DISCONTINUITY_REASON_SEEK) return;
+        // Only the seek that finally completes is timed; superseded ones just count
+        seekSinceMs = eventTime.realtimeMs;
+        session.seekCount++;
+    }
+
+    @Override
+    public void onRenderedFirstFrame(EventTime eventTime, Object output, long renderTimeMs) {
+        if (session == null || firstFrameSeen) return;
+        firstFrameSeen = true;
+        if (bufferingSinceMs >= 0) {
+            session.timeToFirstFrameMs = (int) (eventTime.realtimeMs - bufferingSinceMs);
+        }
+    }
+
+    @Override
+    public void onVideoDecoderInitialized(EventTime eventTime, String decoderName,
+                                          long initializedTimestampMs, long initializationDurationMs) {
+        if (session == null) return;
+        session.videoDecoder = decoderName;
+        session.videoDecoderInitMs = (int) initializationDurationMs;
+    }
+
+    @Override
+    public void onAudioDecoderInitialized(EventTime eventTime, String decoderName,
+                                          long initializedTimestampMs, long initializationDurationMs) {
+        if (session == null) return;
+        session.audioDecoder = decoderName;
+        session.audioDecoderInitMs = (int) initializationDurationMs;
+    }
+
+    @Override
+    public void onDroppedVideoFrames(EventTime eventTime, int droppedFrames, long elapsedMs) {
+        if (session != null) session.droppedFrames += droppedFrames;
+    }
+
+    @Override
+    public void onLoadCompleted(EventTime eventTime, LoadEventInfo loadEventInfo, MediaLoadData mediaLoadData) {
+        if (session == null) return;
+        session.bytesLoaded += loadEventInfo.bytesLoaded;
+        loadTimeMs += loadEventInfo.loadDurationMs;
+    }
+
+    @Override
+    public void onPlayerReleased(EventTime eventTime) {
+        finishSession();
+    }
+
+    /** Logs the current item's session now, for a player that outlives this listener. */
+    public void finish() {
+        finishSession();
+    }
+
+    private void finishSession() {
+        if (session == null) return;
+        if (completedSeeks > 0) {
+            session.seekLatencyAvgMs = (int) (seekLatencyTotalMs / completedSeeks);
+        }
+        if (loadTimeMs > 0) session.bandwidthKbps = (int) (session.bytesLoaded * 8 / loadTimeMs);
+        log.append(session);
+
+        session = null;
+        bufferingSinceMs = -1;
+        rebufferSinceMs = -1;
+        seekSinceMs = -1;
+        firstFrameSeen = false;
+        wasReady = false;
+        completedSeeks = 0;
+        seekLatencyTotalMs = 0;
+        loadTimeMs = 0;
+    }
+
+    private static String nameOf(MediaItem item) {
+        if (item.localConfiguration == null) return item.mediaId;
+        String path = item.localConfiguration.uri.getPath();
+        if (path == null) return item.mediaId;
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.vid2;
 
+import android.Manifest;
 import android.app.AlertDialog;
+import android.content.pm.PackageManager;
 import android.media.AudioManager;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.GestureDetector;
 import android.view.MotionEvent;
@@ -17,7 +21,9 @@ import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.media3.common.C;
 import androidx.media3.common.MediaItem;
 import androidx.media3.common.PlaybackException;
 import androidx.media3.common.Player;
@@ -30,8 +36,9 @@ import androidx.media3.ui.SubtitleView;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Locale;
 
 @UnstableApi
 public class PlayerActivity extends AppCompatActivity {
@@ -41,19 +48,51 @@ public class PlayerActivity extends AppCompatActivity {
     private PlayerView playerView;
     private ExoPlayer exoPlayer;
     private DefaultTrackSelector trackSelector;
+    private PlayerPool.Lease playerLease;
 
     private ImageButton btnPlayPause, btnForward, btnRewind, btnNext, btnPrev,
-            btnSpeed, btnSubtitle, btnLoadSubtitle, btnVolume, btnAspectRatio, btnAudioTrack;
+            btnSpeed, btnSubtitle, btnLoadSubtitle, btnVolume, btnAspectRatio, btnAudioTrack, btnAudioOnly;
     private SeekBar seekBar, volumeSeekBar;
     private TextView txtCurrentTime, txtTotalTime, txtSpeed, txtVolume, txtVideoTitle;
     private SubtitleView subtitleView;
+    private SeekPreviewView seekPreview;
     private View volumeLayout, controlLayout, topRightControls;
 
     private final Handler handler = new Handler(Looper.getMainLooper());
+    private final MediaTextFormatter textFormatter = new MediaTextFormatter();
+    private final char[] currentTimeText = new char[MediaTextFormatter.BUFFER_SIZE];
+    private final char[] totalTimeText = new char[MediaTextFormatter.BUFFER_SIZE];
     private AudioManager audioManager;
 
-    private ArrayList<String> videoList = new ArrayList<>();
+    private static final String STATE_PLAYLIST_ID = "playlistId";
+    private static final String STATE_INDEX = "currentIndex";
+    private static final String STATE_POSITION = "positionMs";
+    private static final String STATE_BITRATE = "bitrate";
+    private static final int REQUEST_NOTIFICATIONS = 1;
+    // Opened from the audio-only notification after the last screen had closed
+    static final String EXTRA_FROM_BACKGROUND = "fromBackground";
+
+    private List<String> videoList = Collections.emptyList();
+    private long playlistId = -1;
     private int currentIndex = 0;
+    private long startBitrate;
+    // The item startBitrate belongs to, on a fresh start
+    private String openedPath;
+    private PlaylistWindow playlist;
+    private BufferingStats bufferingStats;
+    private PlaybackModeStats modeStats;
+    private PlaybackTelemetry telemetry;
+    private final NeighbourPreloader preloader = new NeighbourPreloader();
+    private SeekController seekController;
+    private SeekPreviewLoader seekPreviews;
+    private String seekPreviewPath;
+    private final int[] seekBarLocation = new int[2];
+    private final int[] previewParentLocation = new int[2];
+    private final SidecarIndex sidecars = new SidecarIndex();
+    private SubtitleEngine subtitleEngine;
+    private ResumeStore resumeStore;
+    private SubtitleOverlay subtitleOverlay;
+    private String subtitlePath;
     private float currentSpeed = 1.0f;
 
     private boolean subtitlesEnabled = true;
@@ -61,6 +100,9 @@ public class PlayerActivity extends AppCompatActivity {
     private boolean controlsVisible = true;
     private boolean volumeVisible = false;
     private boolean isFullScreenMode = false;
+    private boolean audioOnly = false;
+    // What the background player was on when this screen took it back; null otherwise
+    private String backgroundPath;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -82,6 +124,7 @@ public class PlayerActivity extends AppCompatActivity {
         btnVolume        = findViewById(R.id.btnVolume);
         btnAspectRatio   = findViewById(R.id.btnAspectRatio);
         btnAudioTrack    = findViewById(R.id.btnAudioTrack);
+        btnAudioOnly     = findViewById(R.id.btnAudioOnly);
         seekBar          = findViewById(R.id.seekBar);
         txtCurrentTime   = findViewById(R.id.txtCurrentTime);
         txtTotalTime     = findViewById(R.id.txtTotalTime);
@@ -92,36 +135,48 @@ public class PlayerActivity extends AppCompatActivity {
         volumeLayout     = findViewById(R.id.volumeLayout);
         controlLayout    = findViewById(R.id.controlLayout);
         topRightControls = findViewById(R.id.topRightControls);
-
-        // Get video list from intent
-        ArrayList<String> passed = getIntent().getStringArrayListExtra("videoList");
-        if (passed != null) videoList = passed;
-        currentIndex = getIntent().getIntExtra("currentIndex", 0);
-        if (videoList.isEmpty()) {
-            Toast.makeText(this, "No videos provided", Toast.LENGTH_LONG).show();
-        }
-
-        // Initialize ExoPlayer
-        trackSelector = new DefaultTrackSelector(this);
-        exoPlayer = new ExoPlayer.Builder(this)
-                .setTrackSelector(trackSelector)
-                .setMediaSourceFactory(
-                        new androidx.media3.exoplayer.source.DefaultMediaSourceFactory(this)
-                                .setDataSourceFactory(
-                                        new androidx.media3.datasource.DefaultDataSourceFactory(this)
-                                )
-                )
-                .build();
-        playerView.setPlayer(exoPlayer);
-
-        // Set video title from currentIndex if available
-        if (currentIndex < videoList.size()) {
-            File videoFile = new File(videoList.get(currentIndex));
-            txtVideoTitle.setText(videoFile.getName());
+        seekPreview      = findViewById(R.id.seekPreview);
+        seekPreviews     = SeekPreviewLoader.getInstance(this);
+        subtitleEngine   = SubtitleEngine.getInstance(this);
+        resumeStore      = ResumeStore.getInstance(this);
+
+        // Playlist comes from the shared repository; after process death it is read back from
+        // disk and playback resumes where the saved state left off
+        long startPositionMs = 0;
+        if (savedInstanceState != null) {
+            playlistId = savedInstanceState.getLong(STATE_PLAYLIST_ID, -1);
+            currentIndex = savedInstanceState.getInt(STATE_INDEX, 0);
+            startPositionMs = savedInstanceState.getLong(STATE_POSITION, 0);
+            startBitrate = savedInstanceState.getLong(STATE_BITRATE, 0);
+        } else {
+            playlistId = getIntent().getLongExtra("playlistId", -1);
+            currentIndex = getIntent().getIntExtra("currentIndex", 0);
+            startBitrate = getIntent().getLongExtra("bitrate", 0);
         }
+        // A player left playing in the background stops here: this screen either carries on with
+        // it or plays something else, never on top of it
+        boolean fromBackground = savedInstanceState == null && getIntent().getBooleanExtra(EXTRA_FROM_BACKGROUND, false);
+        long backgroundPositionMs = takeBackFromService(fromBackground);
+        if (fromBackground) startPositionMs = backgroundPositionMs;
+
+        // Take the player from the pool; playlists are mostly local files, so the buffer starts out
+        // sized for disk reads and the profile is picked again for each item once its URI is known
+        long openedAtMs = SystemClock.elapsedRealtime();
+        BufferingProfile bufferingProfile = BufferingProfile.select(false, startBitrate);
+        playerLease = PlayerPool.getInstance(this).acquire(bufferingProfile);
+        bufferingStats = new BufferingStats(this, bufferingProfile, playerLease.allocator,
+                playerLease.reused, openedAtMs);
+        trackSelector = playerLease.trackSelector;
+        exoPlayer = playerLease.player;
+        seekController = new SeekController(exoPlayer);
+        subtitleOverlay = new SubtitleOverlay(exoPlayer, subtitleView);
+        telemetry = new PlaybackTelemetry(TelemetryLog.getInstance(this));
+        playerLease.addAnalyticsListener(telemetry);
+        modeStats = new PlaybackModeStats(this);
+        playerLease.addAnalyticsListener(modeStats);
 
         // Player listeners
-        exoPlayer.addListener(new Player.Listener() {
+        playerLease.addListener(new Player.Listener() {
             @Override
             public void onPlayerError(PlaybackException error) {
                 String errorMsg = "Playback error: ";
@@ -140,6 +195,8 @@ public class PlayerActivity extends AppCompatActivity {
                 if (state == Player.STATE_READY) {
                     updateTotalDuration();
                     updatePlayPauseIcon();
+                    loadSeekPreviews();
+                    loadSidecarSubtitles();
                 }
             }
 
@@ -148,25 +205,60 @@ public class PlayerActivity extends AppCompatActivity {
                 updatePlayPauseIcon();
             }
 
+            @Override
+            public void onRenderedFirstFrame() {
+                bufferingStats.onRenderedFirstFrame();
+            }
+
             @Override
             public void onMediaItemTransition(androidx.media3.common.MediaItem mediaItem, int reason) {
-                if (mediaItem != null) {
-                    int index = exoPlayer.getCurrentMediaItemIndex();
-                    if (index < videoList.size()) {
-                        File videoFile = new File(videoList.get(index));
-                        txtVideoTitle.setText(videoFile.getName());
-                    }
+                if (mediaItem != null && playlist != null) {
+                    selectProfile(mediaItem);
+                    playlist.onMediaItemTransition();
+                    preloader.preload(videoList, playlist.currentIndex());
+                    seekPreviews.cancel();
+                    seekPreview.setSheet(null);
+                    seekPreviewPath = null;
+                    subtitleEngine.cancel();
+                    subtitleOverlay.clear();
+                    subtitlePath = null;
+                    File videoFile = new File(playlist.pathAt(playlist.currentIndex()));
+                    txtVideoTitle.setText(videoFile.getName());
                 }
             }
         });
 
+        // Back from the notification: carry on listening
+        if (fromBackground) setAudioOnly(true);
+
         // Subtitle visibility
         subtitleView.setVisibility(subtitlesEnabled ? View.VISIBLE : View.GONE);
 
-        // Setup playlist and start
-        setupPlaylist();
-        exoPlayer.prepare();
-        exoPlayer.play();
+        // Setup playlist and start once the first window is built
+        final long savedPositionMs = startPositionMs;
+        final boolean restored = savedInstanceState != null || backgroundPath != null;
+        VideoRepository.getInstance(this).loadPlaylist(playlistId, paths -> {
+            if (exoPlayer == null) return;
+            videoList = paths;
+            long resumeAtMs = savedPositionMs;
+            if (backgroundPath != null) {
+                int index = videoList.indexOf(backgroundPath);
+                if (index >= 0) currentIndex = index;
+                else resumeAtMs = 0;
+            }
+            if (videoList.isEmpty()) {
+                Toast.makeText(this, "No videos provided", Toast.LENGTH_LONG).show();
+            } else if (currentIndex < videoList.size()) {
+                // Set video title from currentIndex if available
+                txtVideoTitle.setText(new File(videoList.get(currentIndex)).getName());
+                if (!restored) {
+                    openedPath = videoList.get(currentIndex);
+                    // A fresh start picks up where this video was left last time
+                    resumeAtMs = resumeStore.positionMs(openedPath);
+                }
+            }
+            setupPlaylist(resumeAtMs);
+        });
 
         // Controls listeners (using exoPlayer directly)
         btnPlayPause.setOnClickListener(v -> {
@@ -175,17 +267,25 @@ public class PlayerActivity extends AppCompatActivity {
             updatePlayPauseIcon();
         });
 
-        btnForward.setOnClickListener(v -> exoPlayer.seekTo(exoPlayer.getCurrentPosition() + 10_000));
-        btnRewind.setOnClickListener(v -> exoPlayer.seekTo(Math.max(exoPlayer.getCurrentPosition() - 10_000, 0)));
+        btnForward.setOnClickListener(v -> seekController.seekTo(exoPlayer.getCurrentPosition() + 10_000));
+        btnRewind.setOnClickListener(v -> seekController.seekTo(Math.max(exoPlayer.getCurrentPosition() - 10_000, 0)));
 
         btnNext.setOnClickListener(v -> {
-            if (exoPlayer.hasNextMediaItem()) exoPlayer.seekToNextMediaItem();
-            else Toast.makeText(this, "No next video", Toast.LENGTH_SHORT).show();
+            if (exoPlayer.hasNextMediaItem()) {
+                bufferingStats.onSkipRequested();
+                exoPlayer.seekToNextMediaItem();
+            } else {
+                Toast.makeText(this, "No next video", Toast.LENGTH_SHORT).show();
+            }
         });
 
         btnPrev.setOnClickListener(v -> {
-            if (exoPlayer.hasPreviousMediaItem()) exoPlayer.seekToPreviousMediaItem();
-            else Toast.makeText(this, "No previous video", Toast.LENGTH_SHORT).show();
+            if (exoPlayer.hasPreviousMediaItem()) {
+                bufferingStats.onSkipRequested();
+                exoPlayer.seekToPreviousMediaItem();
+            } else {
+                Toast.makeText(this, "No previous video", Toast.LENGTH_SHORT).show();
+            }
         });
 
         btnSpeed.setOnClickListener(v -> {
@@ -206,7 +306,13 @@ public class PlayerActivity extends AppCompatActivity {
 
         btnLoadSubtitle.setOnClickListener(v -> {
             loadSubtitles = !loadSubtitles;
-            rebuildPlaylistKeepingCurrentIndex();
+            subtitlePath = null;
+            if (loadSubtitles) {
+                loadSidecarSubtitles();
+            } else {
+                subtitleEngine.cancel();
+                subtitleOverlay.clear();
+            }
             Toast.makeText(this, loadSubtitles ? "Subtitles enabled" : "Subtitles disabled", Toast.LENGTH_SHORT).show();
         });
 
@@ -229,6 +335,7 @@ public class PlayerActivity extends AppCompatActivity {
         });
 
         btnAudioTrack.setOnClickListener(v -> showAudioTrackDialog());
+        btnAudioOnly.setOnClickListener(v -> setAudioOnly(!audioOnly));
 
         // SeekBar
         seekBar.setMax(1000);
@@ -236,15 +343,15 @@ public class PlayerActivity extends AppCompatActivity {
             @Override public void onProgressChanged(SeekBar bar, int progress, boolean fromUser) {
                 if (fromUser && exoPlayer.getDuration() > 0) {
                     long posMs = (long) progress * exoPlayer.getDuration() / 1000L;
-                    txtCurrentTime.setText(formatMs(posMs));
+                    showTime(txtCurrentTime, currentTimeText, posMs);
+                    if (seekPreview.hasSheet()) seekPreview.show(posMs, thumbX(bar, progress));
+                    seekController.scrub(posMs);
                 }
             }
             @Override public void onStartTrackingTouch(SeekBar bar) { handler.removeCallbacksAndMessages(null); }
             @Override public void onStopTrackingTouch(SeekBar bar) {
-                if (exoPlayer.getDuration() > 0) {
-                    long posMs = (long) bar.getProgress() * exoPlayer.getDuration() / 1000L;
-                    exoPlayer.seekTo(posMs);
-                }
+                seekPreview.hide();
+                seekController.commit();
                 startProgressUpdater();
             }
         });
@@ -277,6 +384,8 @@ public class PlayerActivity extends AppCompatActivity {
     }
 
     private void setupGestureControls() {
+        // Position when the current horizontal drag started; the drag offset is relative to it
+        final long[] scrubFromMs = {-1};
         final GestureDetector gestureDetector = new GestureDetector(this, new GestureDetector.SimpleOnGestureListener() {
             @Override
             public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
@@ -290,10 +399,11 @@ public class PlayerActivity extends AppCompatActivity {
                     long duration = exoPlayer.getDuration();
 
                     if (duration > 0) {
+                        if (scrubFromMs[0] < 0) scrubFromMs[0] = exoPlayer.getCurrentPosition();
                         long seekAmount = (long) (seekPercentage * duration * 0.1);
-                        long newPosition = exoPlayer.getCurrentPosition() + seekAmount;
+                        long newPosition = scrubFromMs[0] + seekAmount;
                         newPosition = Math.max(0, Math.min(newPosition, duration));
-                        exoPlayer.seekTo(newPosition);
+                        seekController.scrub(newPosition);
                     }
                     return true;
                 }
@@ -338,6 +448,11 @@ public class PlayerActivity extends AppCompatActivity {
         playerView.setOnTouchListener((v, event) -> {
             scaleGestureDetector.onTouchEvent(event);
             boolean handledByGesture = gestureDetector.onTouchEvent(event);
+            int action = event.getActionMasked();
+            if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                scrubFromMs[0] = -1;
+                seekController.commit();
+            }
             if (event.getAction() == MotionEvent.ACTION_UP && handledByGesture) v.performClick();
             return true;
         });
@@ -377,55 +492,68 @@ public class PlayerActivity extends AppCompatActivity {
         txtVolume.setText(percentage + "%");
     }
 
-    private void setupPlaylist() {
-        exoPlayer.clearMediaItems();
+    private void setupPlaylist(long positionMs) {
+        // Removed streamingServer.registerVideo(path) call
+        // Subtitles are looked up again as folders get listed, after the item may be ready already
+        playlist = new PlaylistWindow(exoPlayer, videoList, sidecars, this::buildMediaItem,
+                this::loadSidecarSubtitles);
+        playlist.start(currentIndex, positionMs, () -> {
+            if (exoPlayer == null) return;
+            // Only now: a reused player would show the last screen's frame until its items changed
+            if (!audioOnly) playerView.setPlayer(exoPlayer);
+            // No transition is reported when a reused player already had this item
+            selectProfile(exoPlayer.getCurrentMediaItem());
+            bufferingStats.onPrepare();
+            exoPlayer.prepare();
+            exoPlayer.play();
+            // Neighbours are warmed while this one plays, so next/previous starts from a hot cache
+            preloader.preload(videoList, playlist.currentIndex());
+        });
+    }
+
+    // Sidecar subtitles are not part of the item: SubtitleEngine parses them, off the prepare path
+    private MediaItem buildMediaItem(String videoPath) {
+        return new MediaItem.Builder()
+                .setUri(uriOf(videoPath))
+                .build();
+    }
 
-        for (String path : videoList) {
-            // Removed streamingServer.registerVideo(path) call
-            MediaItem mediaItem = buildMediaItemWithOptionalSubtitle(path);
-            exoPlayer.addMediaItem(mediaItem);
-        }
-        if (currentIndex >= 0 && currentIndex < exoPlayer.getMediaItemCount()) {
-            exoPlayer.seekTo(currentIndex, 0);
-        }
+    // Playlist entries are file paths; anything else, such as a stream URL, is played as given
+    private static Uri uriOf(String path) {
+        return path.startsWith("/") ? Uri.fromFile(new File(path)) : Uri.parse(path);
     }
 
-    private void rebuildPlaylistKeepingCurrentIndex() {
-        int index = exoPlayer.getCurrentMediaItemIndex();
-        long pos = exoPlayer.getCurrentPosition();
-        setupPlaylist();
-        exoPlayer.prepare();
-        if (index >= 0 && index < exoPlayer.getMediaItemCount()) {
-            exoPlayer.seekTo(index, pos);
-        }
-        if (exoPlayer.isPlaying()) exoPlayer.play();
+    // Streams get the network cushion and local files the disk-speed profiles; the switch
+    // applies to what the player loads from now on
+    private void selectProfile(@Nullable MediaItem item) {
+        if (item == null || item.localConfiguration == null) return;
+        Uri uri = item.localConfiguration.uri;
+        boolean network = BufferingProfile.isNetwork(uri);
+        long bitrate = network ? 0 : bitrateOf(uri.getPath());
+        BufferingProfile profile = BufferingProfile.select(network, bitrate);
+        playerLease.loadControl.setProfile(profile);
+        bufferingStats.setProfile(profile);
     }
 
-    private MediaItem buildMediaItemWithOptionalSubtitle(String videoPath) {
-        MediaItem.Builder builder = new MediaItem.Builder()
-                .setUri(Uri.fromFile(new File(videoPath)));
-
-        if (loadSubtitles) {
-            File srt = guessSubtitleFile(videoPath);
-            if (srt != null && srt.exists()) {
-                MediaItem.SubtitleConfiguration subtitleConfig =
-                        new MediaItem.SubtitleConfiguration.Builder(Uri.fromFile(srt))
-                                .setMimeType("application/x-subrip")
-                                .setLanguage("en")
-                                .setSelectionFlags(0)
-                                .build();
-                builder.setSubtitleConfigurations(java.util.Collections.singletonList(subtitleConfig));
-            }
-        }
-        return builder.build();
+    // From the catalog row of a local file; the opening item's bitrate came with the intent
+    private long bitrateOf(@Nullable String path) {
+        if (path == null) return 0;
+        VideoCatalog catalog = VideoRepository.getInstance(this).getCatalog();
+        int row = catalog.rowOfPath(path);
+        if (row >= 0) return BufferingProfile.averageBitrate(catalog.sizeBytes(row), catalog.durationMs(row));
+        return path.equals(openedPath) ? startBitrate : 0;
     }
 
-    private File guessSubtitleFile(String videoPath) {
-        File videoFile = new File(videoPath);
-        String nameNoExt = videoFile.getName();
-        int dot = nameNoExt.lastIndexOf('.');
-        if (dot > 0) nameNoExt = nameNoExt.substring(0, dot);
-        return new File(videoFile.getParentFile(), nameNoExt + ".srt");
+    // Answered from the cached folder listing; parsing and the cue cache live in SubtitleEngine
+    private void loadSidecarSubtitles() {
+        if (!loadSubtitles || playlist == null) return;
+        String path = playlist.pathAt(playlist.currentIndex());
+        if (path.equals(subtitlePath) || !sidecars.isListed(path)) return;
+        subtitlePath = path;
+        SidecarIndex.Sidecar sidecar = SidecarIndex.preferred(sidecars.findSubtitles(path),
+                Locale.getDefault().getLanguage());
+        if (sidecar == null) return;
+        subtitleEngine.load(sidecar, (track, complete) -> subtitleOverlay.setTrack(track));
     }
 
     private void startProgressUpdater() {
@@ -433,13 +561,15 @@ public class PlayerActivity extends AppCompatActivity {
             @Override
             public void run() {
                 if (exoPlayer != null) {
+                    bufferingStats.sample();
                     long pos = exoPlayer.getCurrentPosition();
                     long dur = exoPlayer.getDuration();
-                    txtCurrentTime.setText(formatMs(pos));
+                    showTime(txtCurrentTime, currentTimeText, pos);
                     if (dur > 0) {
-                        txtTotalTime.setText(formatMs(dur));
+                        showTime(txtTotalTime, totalTimeText, dur);
                         int progress = (int) (pos * 1000L / dur);
                         seekBar.setProgress(progress);
+                        recordResume();
                     } else {
                         txtTotalTime.setText("00:00");
                         seekBar.setProgress(0);
@@ -450,32 +580,153 @@ public class PlayerActivity extends AppCompatActivity {
         }, 500);
     }
 
+    // Sprites are built on first play and come from the disk cache afterwards
+    private void loadSeekPreviews() {
+        if (playlist == null || exoPlayer == null) return;
+        String path = playlist.pathAt(playlist.currentIndex());
+        if (path.equals(seekPreviewPath)) return;
+        seekPreviewPath = path;
+        seekPreviews.load(path, exoPlayer.getDuration(), seekPreview::setSheet);
+    }
+
+    // Horizontal centre of the seek bar thumb in the preview's parent coordinates
+    private float thumbX(SeekBar bar, int progress) {
+        bar.getLocationInWindow(seekBarLocation);
+        ((View) seekPreview.getParent()).getLocationInWindow(previewParentLocation);
+        int track = bar.getWidth() - bar.getPaddingLeft() - bar.getPaddingRight();
+        return seekBarLocation[0] - previewParentLocation[0] + bar.getPaddingLeft()
+                + track * (progress / (float) bar.getMax());
+    }
+
     private void updateTotalDuration() {
         long dur = exoPlayer.getDuration();
-        txtTotalTime.setText(formatMs(dur));
+        showTime(txtTotalTime, totalTimeText, dur);
+    }
+
+    // Runs every 500 ms, so format into the view's own buffer instead of a new String
+    private void showTime(TextView view, char[] buffer, long ms) {
+        view.setText(buffer, 0, textFormatter.formatDuration(ms, buffer));
+    }
+
+    // Memory only; ResumeStore writes the journal behind in batches
+    private void recordResume() {
+        if (playlist == null || exoPlayer == null) return;
+        String path = playlist.pathAt(playlist.currentIndex());
+        resumeStore.record(path, exoPlayer.getCurrentPosition(), exoPlayer.getDuration());
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        recordResume();
+        resumeStore.flushSoon();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // Stop in the notification ends the service, not the mode
+        if (audioOnly) AudioPlaybackService.start(this);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Only audio-only mode keeps playing off screen; video would decode for no surface
+        if (!audioOnly && exoPlayer != null) exoPlayer.pause();
+    }
+
+    // The player the service kept playing, if any, goes back to the pool, still warm, for this
+    // screen to take; when it carries on, at the item and position it had reached
+    private long takeBackFromService(boolean carryOn) {
+        PlayerPool pool = PlayerPool.getInstance(this);
+        PlayerPool.Lease background = pool.background();
+        if (background == null) return 0;
+        if (carryOn) {
+            MediaItem item = background.player.getCurrentMediaItem();
+            if (item != null && item.localConfiguration != null) backgroundPath = item.localConfiguration.uri.getPath();
+        }
+        long positionMs = Math.max(0, background.player.getCurrentPosition());
+        // Parked, so the acquire that follows reuses it
+        pool.recycle(background);
+        AudioPlaybackService.stop(this);
+        return positionMs;
+    }
+
+    // Audio only disables the video renderer and lets go of the surface, so no video is decoded.
+    // The source stays prepared, and turning the picture back on is only a track selection change.
+    private void setAudioOnly(boolean on) {
+        if (exoPlayer == null || on == audioOnly) return;
+        audioOnly = on;
+        modeStats.setMode(on ? PlaybackModeStats.Mode.AUDIO_ONLY : PlaybackModeStats.Mode.VIDEO);
+        trackSelector.setParameters(trackSelector.buildUponParameters()
+                .setTrackTypeDisabled(C.TRACK_TYPE_VIDEO, on));
+        playerView.setPlayer(on ? null : exoPlayer);
+        btnAudioOnly.setAlpha(on ? 1f : 0.6f);
+        if (on) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                    && checkSelfPermission(Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+                // Playback goes on either way; this only shows its controls
+                requestPermissions(new String[]{Manifest.permission.POST_NOTIFICATIONS}, REQUEST_NOTIFICATIONS);
+            }
+            AudioPlaybackService.start(this);
+        } else {
+            AudioPlaybackService.stop(this);
+        }
+        Toast.makeText(this, on ? "Audio only, keeps playing in the background" : "Video", Toast.LENGTH_SHORT).show();
     }
 
-    private String formatMs(long ms) {
-        long totalSeconds = TimeUnit.MILLISECONDS.toSeconds(ms);
-        long h = totalSeconds / 3600;
-        long m = (totalSeconds % 3600) / 60;
-        long s = totalSeconds % 60;
-        if (h > 0) return String.format("%d:%02d:%02d", h, m, s);
-        else return String.format("%02d:%02d", m, s);
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        // A few primitives; the playlist itself is persisted by the repository
+        outState.putLong(STATE_PLAYLIST_ID, playlistId);
+        outState.putLong(STATE_BITRATE, startBitrate);
+        if (playlist != null && exoPlayer != null) {
+            outState.putInt(STATE_INDEX, playlist.currentIndex());
+            outState.putLong(STATE_POSITION, Math.max(0, exoPlayer.getCurrentPosition()));
+        } else {
+            outState.putInt(STATE_INDEX, currentIndex);
+        }
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
         handler.removeCallbacksAndMessages(null);
-
+        recordResume();
+        sidecars.shutdown();
+        preloader.shutdown();
+        seekPreviews.cancel();
+        subtitleEngine.cancel();
+        subtitleOverlay.release();
+        bufferingStats.save();
+        modeStats.save();
+        telemetry.finish();
 
         if (exoPlayer != null) {
-            exoPlayer.release();
+            seekController.release();
+            playerView.setPlayer(null);
+            if (audioOnly && isFinishing() && exoPlayer.isPlaying()) {
+                // Left in audio-only mode: the service plays on and gives the player back when done
+                PlayerPool.getInstance(this).transfer(playerLease);
+                AudioPlaybackService.adopt(this, playlistId, startBitrate);
+            } else {
+                // Only a screen in audio-only mode started the service; it may hold another screen's player
+                if (audioOnly) AudioPlaybackService.stop(this);
+                // Kept warm for the next video instead of released
+                PlayerPool.getInstance(this).recycle(playerLease);
+            }
             exoPlayer = null;
         }
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        PlayerPool.getInstance(this).trimMemory(level);
+    }
+
     private void showAudioTrackDialog() {
         if (exoPlayer == null) return;
 
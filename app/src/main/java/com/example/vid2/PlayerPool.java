@@ -0,0 +1,219 @@
+package com.example.vid2;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.AudioAttributes;
+import androidx.media3.common.C;
+import androidx.media3.common.PlaybackParameters;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DefaultDataSourceFactory;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.SeekParameters;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+import androidx.media3.exoplayer.source.DefaultMediaSourceFactory;
+import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
+import androidx.media3.exoplayer.upstream.DefaultAllocator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps one ExoPlayer warm between player screens, so opening the next video skips building
+ * the player, its playback thread, renderers, track selector and source factories, and can
+ * skip setting up the decoders as well.
+ *
+ * A screen takes the player with {@link #acquire} and hands it back with {@link #recycle}. The
+ * listeners added through the {@link Lease} are removed and per-video settings go back to
+ * their defaults, but the player is only paused and taken off its surface, not stopped: its
+ * renderers stay enabled with their codecs and audio track, and the next screen's items reuse
+ * them when the formats allow, as between items of one playlist. A codec is still set up again
+ * for an incompatible format, or on devices that cannot keep a video codec without a surface.
+ * The parked player, with the buffer it holds, is released after a minute unused or at once
+ * under memory pressure. Every player is built around a {@link ProfileLoadControl}, so the
+ * parked one is reused whatever {@link BufferingProfile} the next screen asks for.
+ * {@link BufferingStats} keeps the first-frame times of reused and new players apart, which
+ * shows what reuse saves. Main thread only.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public final class PlayerPool {
+
+    private static final String TAG = "PlayerPool";
+
+    private static final long IDLE_TIMEOUT_MS = 60_000;
+
+    private static PlayerPool instance;
+
+    public static synchronized PlayerPool getInstance(Context context) {
+        if (instance == null) instance = new PlayerPool(context.getApplicationContext());
+        return instance;
+    }
+
+    /** A player on loan to one screen. */
+    public static final class Lease {
+        public final ExoPlayer player;
+        public final DefaultTrackSelector trackSelector;
+        public final DefaultAllocator allocator;
+        public final ProfileLoadControl loadControl;
+        /** True when the player was kept from an earlier screen instead of built for this one. */
+        public final boolean reused;
+
+        private final List<Player.Listener> listeners = new ArrayList<>();
+        private final List<AnalyticsListener> analyticsListeners = new ArrayList<>();
+        private boolean returned;
+
+        Lease(ExoPlayer player, DefaultTrackSelector trackSelector, DefaultAllocator allocator,
+              ProfileLoadControl loadControl, boolean reused) {
+            this.player = player;
+            this.trackSelector = trackSelector;
+            this.allocator = allocator;
+            this.loadControl = loadControl;
+            this.reused = reused;
+        }
+
+        /** Adds a listener that is removed again when the player goes back to the pool. */
+        public void addListener(Player.Listener listener) {
+            listeners.add(listener);
+            player.addListener(listener);
+        }
+
+        public void removeListener(Player.Listener listener) {
+            if (listeners.remove(listener) && !returned) player.removeListener(listener);
+        }
+
+        public void addAnalyticsListener(AnalyticsListener listener) {
+            analyticsListeners.add(listener);
+            player.addAnalyticsListener(listener);
+        }
+    }
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable releaseParked = this::releaseParked;
+
+    // Recycled and waiting for the next screen; null when none is
+    private Lease parked;
+    // Last handed out and not back yet
+    private Lease current;
+    // Passed on with transfer and not back yet
+    private Lease background;
+
+    private PlayerPool(Context context) {
+        this.context = context;
+    }
+
+    /** The parked player, else a new one, buffering for {@code profile}. */
+    public Lease acquire(BufferingProfile profile) {
+        mainHandler.removeCallbacks(releaseParked);
+        Lease lease = parked;
+        parked = null;
+        if (lease != null) {
+            Log.d(TAG, "Reusing the player for " + profile.label);
+            lease.loadControl.setProfile(profile);
+            current = new Lease(lease.player, lease.trackSelector, lease.allocator, lease.loadControl, true);
+            return current;
+        }
+        long start = SystemClock.elapsedRealtime();
+        DefaultAllocator allocator = BufferingProfile.createAllocator();
+        ProfileLoadControl loadControl = new ProfileLoadControl(allocator, profile);
+        DefaultTrackSelector trackSelector = new DefaultTrackSelector(context);
+        ExoPlayer player = new ExoPlayer.Builder(context)
+                .setTrackSelector(trackSelector)
+                .setLoadControl(loadControl)
+                .setMediaSourceFactory(new DefaultMediaSourceFactory(context)
+                        .setDataSourceFactory(new DefaultDataSourceFactory(context)))
+                // Audio-only playback goes on with the screen off
+                .setWakeMode(C.WAKE_MODE_LOCAL)
+                // Gives way to calls and other players, and pauses when headphones come out
+                .setAudioAttributes(AudioAttributes.DEFAULT, true)
+                .setHandleAudioBecomingNoisy(true)
+                .build();
+        Log.d(TAG, "Built a player for " + profile.label + " in " + (SystemClock.elapsedRealtime() - start) + " ms");
+        current = new Lease(player, trackSelector, allocator, loadControl, false);
+        return current;
+    }
+
+    /** The lease most recently handed out, while its holder still has it; else null. */
+    public Lease current() {
+        return current;
+    }
+
+    /**
+     * Passes a player that keeps playing to another holder, such as {@link AudioPlaybackService}
+     * when its screen closes. The old lease's listeners are removed and the player goes on as it
+     * is; the new lease, now {@link #current} and {@link #background}, is recycled by its holder
+     * in turn.
+     */
+    public Lease transfer(Lease lease) {
+        if (lease.returned) throw new IllegalStateException("Lease already returned");
+        detach(lease);
+        current = new Lease(lease.player, lease.trackSelector, lease.allocator, lease.loadControl, true);
+        background = current;
+        return current;
+    }
+
+    /**
+     * The lease last passed on with {@link #transfer}, while it is still out; else null. A screen
+     * recycles it before {@link #acquire}, so two players never play at once.
+     */
+    public Lease background() {
+        return background;
+    }
+
+    /**
+     * Takes the player back. Detach it from its view and end anything that reports per item
+     * first: the player keeps its items, so no item transition will. A second lease coming back
+     * while a player is already parked is released instead.
+     */
+    public void recycle(Lease lease) {
+        if (lease.returned) return;
+        detach(lease);
+        ExoPlayer player = lease.player;
+
+        if (parked != null && parked.player != player) {
+            player.release();
+            return;
+        }
+        // Paused, not stopped, so the renderers keep their codecs
+        player.pause();
+        player.clearVideoSurface();
+        player.setPlaybackParameters(PlaybackParameters.DEFAULT);
+        player.setSeekParameters(SeekParameters.DEFAULT);
+        player.setTrackSelectionParameters(DefaultTrackSelector.Parameters.getDefaults(context));
+        parked = lease;
+        mainHandler.removeCallbacks(releaseParked);
+        mainHandler.postDelayed(releaseParked, IDLE_TIMEOUT_MS);
+    }
+
+    private void detach(Lease lease) {
+        lease.returned = true;
+        if (current == lease) current = null;
+        if (background == lease) background = null;
+        for (Player.Listener listener : lease.listeners) lease.player.removeListener(listener);
+        for (AnalyticsListener listener : lease.analyticsListeners) lease.player.removeAnalyticsListener(listener);
+        lease.listeners.clear();
+        lease.analyticsListeners.clear();
+    }
+
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            releaseParked();
+        }
+    }
+
+    private void releaseParked() {
+        mainHandler.removeCallbacks(releaseParked);
+        if (parked == null) return;
+        Log.d(TAG, "Releasing the parked player");
+        parked.player.release();
+        parked = null;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.vid2;
+
+import androidx.media3.common.MediaItem;
+import androidx.media3.exoplayer.ExoPlayer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keeps only a window of {@link MediaItem}s around the current video in the player.
+ *
+ * The full queue stays a list of paths; the player holds at most {@code 2 * RADIUS + 1}
+ * items and the window slides as playback moves through the queue. Items are set at once;
+ * sidecar folders for the window (and the stretch just beyond it) are listed in the background
+ * alongside, and {@code onListed} runs after each batch, so looking up an item's subtitles
+ * never touches the disk on the main thread nor holds up its first frame.
+ */
+public class PlaylistWindow {
+
+    private static final int RADIUS = 3;
+    // Items beyond the radius are only trimmed once the window overshoots by this much
+    private static final int SLACK = 2;
+
+    private final ExoPlayer player;
+    private final List<String> paths;
+    private final SidecarIndex sidecars;
+    private final Function<String, MediaItem> itemFactory;
+    private final Runnable onListed;
+
+    private int windowStart;
+    private int windowEnd;
+
+    /** {@code onListed} runs on the main thread whenever more sidecar folders have been listed. */
+    public PlaylistWindow(ExoPlayer player, List<String> paths, SidecarIndex sidecars,
+                          Function<String, MediaItem> itemFactory, Runnable onListed) {
+        this.player = player;
+        this.paths = paths;
+        this.sidecars = sidecars;
+        this.itemFactory = itemFactory;
+        this.onListed = onListed;
+    }
+
+    public int size() {
+        return paths.size();
+    }
+
+    /** Queue index of the item the player is on. */
+    public int currentIndex() {
+        return windowStart + Math.max(0, player.getCurrentMediaItemIndex());
+    }
+
+    public String pathAt(int index) {
+        return paths.get(index);
+    }
+
+    /**
+     * Loads the window around {@code index}, seeks to {@code positionMs} and runs
+     * {@code onReady}, then lists the window's sidecar folders.
+     */
+    public void start(int index, long positionMs, Runnable onReady) {
+        if (paths.isEmpty()) {
+            // A player kept from another screen still holds that screen's items
+            player.clearMediaItems();
+            onReady.run();
+            return;
+        }
+        load(Math.max(0, Math.min(index, paths.size() - 1)), positionMs);
+        onReady.run();
+        sidecars.prefetch(paths.subList(windowStart, windowEnd), onListed);
+        prefetchAhead();
+    }
+
+    /** Slides the window after the player moved to another item. */
+    public void onMediaItemTransition() {
+        if (paths.isEmpty()) return;
+        int current = currentIndex();
+        int wantStart = Math.max(0, current - RADIUS);
+        int wantEnd = Math.min(paths.size(), current + RADIUS + 1);
+
+        if (wantEnd > windowEnd) {
+            player.addMediaItems(buildItems(windowEnd, wantEnd));
+            windowEnd = wantEnd;
+        }
+        if (wantStart < windowStart) {
+            player.addMediaItems(0, buildItems(wantStart, windowStart));
+            windowStart = wantStart;
+        }
+        if (wantStart - windowStart > SLACK) {
+            player.removeMediaItems(0, wantStart - windowStart);
+            windowStart = wantStart;
+        }
+        if (windowEnd - wantEnd > SLACK) {
+            player.removeMediaItems(wantEnd - windowStart, windowEnd - windowStart);
+            windowEnd = wantEnd;
+        }
+        prefetchAhead();
+    }
+
+    private void load(int current, long positionMs) {
+        windowStart = Math.max(0, current - RADIUS);
+        windowEnd = Math.min(paths.size(), current + RADIUS + 1);
+        player.setMediaItems(buildItems(windowStart, windowEnd), current - windowStart, positionMs);
+    }
+
+    private List<MediaItem> buildItems(int from, int to) {
+        List<MediaItem> items = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) items.add(itemFactory.apply(paths.get(i)));
+        return items;
+    }
+
+    // List the folders of the next stretch in either direction before the window gets there
+    private void prefetchAhead() {
+        int before = Math.max(0, windowStart - RADIUS);
+        int after = Math.min(paths.size(), windowEnd + RADIUS);
+        List<String> upcoming = new ArrayList<>(paths.subList(before, windowStart));
+        upcoming.addAll(paths.subList(windowEnd, after));
+        // An item can become current before the listing of its folder is done
+        sidecars.prefetch(upcoming, onListed);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.vid2;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DefaultLoadControl;
+import androidx.media3.exoplayer.LoadControl;
+import androidx.media3.exoplayer.Renderer;
+import androidx.media3.exoplayer.source.TrackGroupArray;
+import androidx.media3.exoplayer.trackselection.ExoTrackSelection;
+import androidx.media3.exoplayer.upstream.Allocator;
+import androidx.media3.exoplayer.upstream.DefaultAllocator;
+
+import java.util.EnumMap;
+
+/**
+ * A {@link LoadControl} whose {@link BufferingProfile} can change while the player runs, so
+ * each playlist item is buffered for where it comes from. A player's load control is fixed
+ * when it is built; this one hands every call to a {@link DefaultLoadControl} per profile,
+ * all around the same allocator, and {@link #setProfile} picks which one answers. A switch
+ * applies to what is loaded from then on; what is already buffered stays.
+ *
+ * Set from the main thread, read on the playback thread.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public final class ProfileLoadControl implements LoadControl {
+
+    private final DefaultAllocator allocator;
+    private final EnumMap<BufferingProfile, DefaultLoadControl> controls = new EnumMap<>(BufferingProfile.class);
+    private volatile BufferingProfile profile;
+
+    public ProfileLoadControl(DefaultAllocator allocator, BufferingProfile profile) {
+        this.allocator = allocator;
+        for (BufferingProfile p : BufferingProfile.values()) controls.put(p, p.createLoadControl(allocator));
+        this.profile = profile;
+    }
+
+    public BufferingProfile profile() {
+        return profile;
+    }
+
+    public void setProfile(BufferingProfile profile) {
+        if (this.profile == profile) return;
+        this.profile = profile;
+        allocator.setTargetBufferSize(profile.maxBufferBytes);
+    }
+
+    private DefaultLoadControl current() {
+        return controls.get(profile);
+    }
+
+    @Override
+    public void onPrepared() {
+        for (DefaultLoadControl control : controls.values()) control.onPrepared();
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void onTracksSelected(Renderer[] renderers, TrackGroupArray trackGroups,
+                                 ExoTrackSelection[] trackSelections) {
+        current().onTracksSelected(renderers, trackGroups, trackSelections);
+    }
+
+    @Override
+    public void onStopped() {
+        for (DefaultLoadControl control : controls.values()) control.onStopped();
+    }
+
+    @Override
+    public void onReleased() {
+        for (DefaultLoadControl control : controls.values()) control.onReleased();
+    }
+
+    @Override
+    public Allocator getAllocator() {
+        return allocator;
+    }
+
+    @Override
+    public long getBackBufferDurationUs() {
+        return current().getBackBufferDurationUs();
+    }
+
+    @Override
+    public boolean retainBackBufferFromKeyframe() {
+        return current().retainBackBufferFromKeyframe();
+    }
+
+    @Override
+    public boolean shouldContinueLoading(long playbackPositionUs, long bufferedDurationUs, float playbackSpeed) {
+        return current().shouldContinueLoading(playbackPositionUs, bufferedDurationUs, playbackSpeed);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public boolean shouldStartPlayback(long bufferedDurationUs, float playbackSpeed, boolean rebuffering,
+                                       long targetLiveOffsetUs) {
+        return current().shouldStartPlayback(bufferedDurationUs, playbackSpeed, rebuffering, targetLiveOffsetUs);
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.vid2;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resume positions by file path, held in memory and written behind to an append-only journal.
+ * Videos are keyed by a hash of their path ({@link DeepScanner#syntheticId}), which the player
+ * can compute even before the library is loaded, e.g. after process death.
+ *
+ * {@link #record} only updates an in-memory table and marks the video dirty; dirty videos are
+ * appended to the journal in one batch a few seconds later on a background thread, so a
+ * crash loses at most {@link #FLUSH_DELAY_MS} of position. Each journal record carries a
+ * check word, and a torn or foreign tail is cut off on load. Once the journal holds many
+ * superseded records it is rewritten with only the live ones. Lookups never touch the disk
+ * and are cheap enough for adapter binds. Thread-safe.
+ */
+public class ResumeStore {
+
+    private static final String TAG = "ResumeStore";
+
+    private static final long FLUSH_DELAY_MS = 3_000;
+    // Positions this close to either end are not worth resuming from
+    private static final long MIN_RESUME_MS = 5_000;
+    private static final long END_MARGIN_MS = 10_000;
+    private static final int RECORD_SIZE = 32;
+    // Version 1 records were keyed by MediaStore id and fail this check, so they are dropped
+    private static final long CHECK = 0x5245534d554d4532L; // "RESUME2"
+    private static final int COMPACT_MIN_RECORDS = 512;
+
+    private static ResumeStore instance;
+
+    public static synchronized ResumeStore getInstance(Context context) {
+        if (instance == null) instance = new ResumeStore(context.getApplicationContext());
+        return instance;
+    }
+
+    private final File journal;
+    private final ScheduledExecutorService io = Executors.newSingleThreadScheduledExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Runnable> onLoaded = new ArrayList<>();
+
+    // Guarded by this
+    private final Table table = new Table();
+    private boolean loaded;
+    private boolean flushScheduled;
+    private int version;
+
+    // io thread only
+    private int journalRecords;
+
+    private ResumeStore(Context context) {
+        journal = new File(context.getFilesDir(), "resume.journal");
+        io.execute(this::load);
+    }
+
+    /** Notes the position of a video. Near the start or the end it clears the resume point. */
+    public void record(String path, long positionMs, long durationMs) {
+        long key = DeepScanner.syntheticId(path);
+        long position = positionMs;
+        if (position < MIN_RESUME_MS || (durationMs > 0 && position > durationMs - END_MARGIN_MS)) position = 0;
+        synchronized (this) {
+            if (!table.put(key, position, Math.max(0, durationMs), true)) return;
+            version++;
+            if (flushScheduled) return;
+            flushScheduled = true;
+        }
+        io.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Writes pending positions now, e.g. when the player goes to the background. */
+    public void flushSoon() {
+        synchronized (this) {
+            if (!table.hasDirty()) return;
+            flushScheduled = true;
+        }
+        io.execute(this::flush);
+    }
+
+    /** Resume position of the video, or 0 if it should start from the beginning. */
+    public synchronized long positionMs(String path) {
+        int slot = table.find(DeepScanner.syntheticId(path));
+        return slot < 0 ? 0 : table.positions[slot];
+    }
+
+    /** Watched fraction in thousandths for a progress bar, or 0 when there is no resume point. */
+    public synchronized int progressPermille(String path, long durationMs) {
+        int slot = table.find(DeepScanner.syntheticId(path));
+        if (slot < 0 || table.positions[slot] <= 0) return 0;
+        long duration = durationMs > 0 ? durationMs : table.durations[slot];
+        if (duration <= 0) return 0;
+        return (int) Math.min(1000, table.positions[slot] * 1000 / duration);
+    }
+
+    /** Increases with every change, so a list can tell whether its badges are stale. */
+    public synchronized int version() {
+        return version;
+    }
+
+    /** Runs {@code action} on the main thread once the journal has been read. */
+    public void whenLoaded(Runnable action) {
+        synchronized (this) {
+            if (!loaded) {
+                onLoaded.add(action);
+                return;
+            }
+        }
+        mainHandler.post(action);
+    }
+
+    private void load() {
+        int records = 0;
+        if (journal.exists()) {
+            try (RandomAccessFile raf = new RandomAccessFile(journal, "rw")) {
+                long length = raf.length() - raf.length() % RECORD_SIZE;
+                byte[] data = new byte[(int) Math.min(length, Integer.MAX_VALUE)];
+                raf.readFully(data);
+                ByteBuffer in = ByteBuffer.wrap(data);
+                Table fromDisk = new Table();
+                while (in.remaining() >= RECORD_SIZE) {
+                    long id = in.getLong();
+                    long position = in.getLong();
+                    long duration = in.getLong();
+                    if (in.getLong() != (id ^ position ^ duration ^ CHECK)) break;
+                    fromDisk.put(id, position, duration, false);
+                    records++;
+                }
+                synchronized (this) {
+                    // Positions recorded while the journal was being read are newer
+                    for (int slot = 0; slot < fromDisk.keys.length; slot++) {
+                        if (fromDisk.used[slot] && table.find(fromDisk.keys[slot]) < 0) {
+                            table.put(fromDisk.keys[slot], fromDisk.positions[slot], fromDisk.durations[slot], false);
+                        }
+                    }
+                }
+                // Cut off a half-written or garbled tail so appends continue from a clean record
+                if ((long) records * RECORD_SIZE != raf.length()) raf.setLength((long) records * RECORD_SIZE);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not read resume journal", e);
+            }
+        }
+        journalRecords = records;
+        List<Runnable> actions;
+        synchronized (this) {
+            loaded = true;
+            actions = new ArrayList<>(onLoaded);
+            onLoaded.clear();
+        }
+        for (Runnable action : actions) mainHandler.post(action);
+        compactIfNeeded();
+    }
+
+    private void flush() {
+        long[] batch;
+        synchronized (this) {
+            flushScheduled = false;
+            batch = table.takeDirty();
+        }
+        if (batch.length == 0) return;
+        ByteBuffer out = ByteBuffer.allocate(batch.length / 3 * RECORD_SIZE);
+        for (int i = 0; i < batch.length; i += 3) {
+            out.putLong(batch[i]).putLong(batch[i + 1]).putLong(batch[i + 2])
+                    .putLong(batch[i] ^ batch[i + 1] ^ batch[i + 2] ^ CHECK);
+        }
+        try (FileOutputStream stream = new FileOutputStream(journal, true)) {
+            stream.write(out.array());
+            stream.getFD().sync();
+            journalRecords += batch.length / 3;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not append to resume journal", e);
+        }
+        compactIfNeeded();
+    }
+
+    // Rewrites the journal with one record per live resume point once most records are stale
+    private void compactIfNeeded() {
+        long[] live;
+        synchronized (this) {
+            if (journalRecords < COMPACT_MIN_RECORDS || journalRecords < table.live() * 4) return;
+            live = table.snapshot();
+        }
+        File tmp = new File(journal.getPath() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            for (int i = 0; i < live.length; i += 3) {
+                out.writeLong(live[i]);
+                out.writeLong(live[i + 1]);
+                out.writeLong(live[i + 2]);
+                out.writeLong(live[i] ^ live[i + 1] ^ live[i + 2] ^ CHECK);
+            }
+            out.flush();
+            stream.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not compact resume journal", e);
+            tmp.delete();
+            return;
+        }
+        if (tmp.renameTo(journal)) {
+            Log.d(TAG, "Compacted resume journal from " + journalRecords + " to " + live.length / 3 + " records");
+            journalRecords = live.length / 3;
+        } else {
+            tmp.delete();
+        }
+    }
+
+    /** Open-addressing path hash -> (position, duration) map with a dirty flag per slot. */
+    private static final class Table {
+        long[] keys = new long[64];
+        long[] positions = new long[64];
+        long[] durations = new long[64];
+        boolean[] used = new boolean[64];
+        boolean[] dirty = new boolean[64];
+        int size;
+        int dirtyCount;
+
+        int find(long id) {
+            int mask = keys.length - 1;
+            for (int slot = slot(id, mask); used[slot]; slot = (slot + 1) & mask) {
+                if (keys[slot] == id) return slot;
+            }
+            return -1;
+        }
+
+        /** Returns false when nothing changed. */
+        boolean put(long id, long position, long duration, boolean markDirty) {
+            int slot = find(id);
+            if (slot >= 0) {
+                if (positions[slot] == position && durations[slot] == duration) return false;
+            } else {
+                // Clearing a resume point nobody has is not a change
+                if (position == 0) return false;
+                if ((size + 1) * 2 > keys.length) grow();
+                int mask = keys.length - 1;
+                slot = slot(id, mask);
+                while (used[slot]) slot = (slot + 1) & mask;
+                used[slot] = true;
+                keys[slot] = id;
+                size++;
+            }
+            positions[slot] = position;
+            durations[slot] = duration;
+            if (markDirty && !dirty[slot]) {
+                dirty[slot] = true;
+                dirtyCount++;
+            }
+            return true;
+        }
+
+        boolean hasDirty() {
+            return dirtyCount > 0;
+        }
+
+        /** (id, position, duration) triples of the dirty slots; clears their flags. */
+        long[] takeDirty() {
+            long[] out = new long[dirtyCount * 3];
+            int n = 0;
+            for (int slot = 0; slot < keys.length && n < out.length; slot++) {
+                if (!dirty[slot]) continue;
+                dirty[slot] = false;
+                out[n++] = keys[slot];
+                out[n++] = positions[slot];
+                out[n++] = durations[slot];
+            }
+            dirtyCount = 0;
+            return out;
+        }
+
+        int live() {
+            int live = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (used[slot] && positions[slot] > 0) live++;
+            }
+            return live;
+        }
+
+        /** (id, position, duration) triples of every slot with a resume point. */
+        long[] snapshot() {
+            long[] out = new long[live() * 3];
+            int n = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (!used[slot] || positions[slot] <= 0) continue;
+                out[n++] = keys[slot];
+                out[n++] = positions[slot];
+                out[n++] = durations[slot];
+            }
+            return out;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldPositions = positions;
+            long[] oldDurations = durations;
+            boolean[] oldUsed = used;
+            boolean[] oldDirty = dirty;
+            int capacity = oldKeys.length * 2;
+            keys = new long[capacity];
+            positions = new long[capacity];
+            durations = new long[capacity];
+            used = new boolean[capacity];
+            dirty = new boolean[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (!oldUsed[i]) continue;
+                int slot = slot(oldKeys[i], mask);
+                while (used[slot]) slot = (slot + 1) & mask;
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                positions[slot] = oldPositions[i];
+                durations[slot] = oldDurations[i];
+                dirty[slot] = oldDirty[i];
+            }
+        }
+
+        private static int slot(long id, int mask) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.vid2;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.SeekParameters;
+
+/**
+ * Funnels every seek of the player UI so drags do not flood the decoder.
+ *
+ * While scrubbing, seeks go to the nearest sync frame, at most one is in flight at a time and
+ * the requests arriving meanwhile collapse into the latest target. A seek counts as done once
+ * the player is ready again, i.e. the frame at the new position has been rendered. Releasing
+ * the drag issues one exact seek. Request, seek and latency counts are logged after every
+ * drag. Main thread only.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class SeekController implements Player.Listener {
+
+    private static final String TAG = "SeekController";
+
+    private final ExoPlayer player;
+
+    private boolean scrubbing;
+    private boolean inFlight;
+    private long issuedAtMs;
+    private long pendingTargetMs = -1;
+    private long lastTargetMs = -1;
+
+    private int requests;
+    private int seeks;
+    private int rendered;
+    private long latencyTotalMs;
+    private long latencyMaxMs;
+
+    public SeekController(ExoPlayer player) {
+        this.player = player;
+        player.addListener(this);
+    }
+
+    /** A position update from a drag in progress. */
+    public void scrub(long positionMs) {
+        requests++;
+        lastTargetMs = positionMs;
+        if (!scrubbing) {
+            scrubbing = true;
+            player.setSeekParameters(SeekParameters.CLOSEST_SYNC);
+        }
+        if (inFlight) {
+            pendingTargetMs = positionMs;
+        } else {
+            issue(positionMs);
+        }
+    }
+
+    /** Ends a drag with an exact seek to its last target. No-op if nothing was dragged. */
+    public void commit() {
+        if (!scrubbing) return;
+        scrubbing = false;
+        pendingTargetMs = -1;
+        player.setSeekParameters(SeekParameters.EXACT);
+        issue(lastTargetMs);
+        logStats();
+    }
+
+    /** A one-off exact seek (buttons, resume). */
+    public void seekTo(long positionMs) {
+        requests++;
+        if (scrubbing) {
+            scrubbing = false;
+            pendingTargetMs = -1;
+            player.setSeekParameters(SeekParameters.EXACT);
+        }
+        issue(positionMs);
+    }
+
+    public boolean isScrubbing() {
+        return scrubbing;
+    }
+
+    /** Stops listening, for a player that outlives this controller. */
+    public void release() {
+        player.removeListener(this);
+    }
+
+    @Override
+    public void onPlaybackStateChanged(int state) {
+        if (!inFlight || state == Player.STATE_BUFFERING) return;
+        inFlight = false;
+        if (state == Player.STATE_READY) {
+            long latency = SystemClock.elapsedRealtime() - issuedAtMs;
+            rendered++;
+            latencyTotalMs += latency;
+            latencyMaxMs = Math.max(latencyMaxMs, latency);
+        }
+        if (pendingTargetMs >= 0) {
+            long target = pendingTargetMs;
+            pendingTargetMs = -1;
+            issue(target);
+        }
+    }
+
+    private void issue(long positionMs) {
+        seeks++;
+        // An idle player never reports the seek as done, so do not wait on it
+        inFlight = player.getPlaybackState() != Player.STATE_IDLE;
+        issuedAtMs = SystemClock.elapsedRealtime();
+        player.seekTo(positionMs);
+    }
+
+    private void logStats() {
+        Log.d(TAG, requests + " seek requests, " + seeks + " seeks issued, seek to render avg "
+                + (rendered > 0 ? latencyTotalMs / rendered : 0) + " ms, max " + latencyMaxMs + " ms");
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.vid2;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.media.MediaMetadataRetriever;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds and caches seek-bar preview sprites: one image per video holding a grid of small
+ * frames taken at a fixed interval.
+ *
+ * A sprite is generated in the background the first time a video is played and stored in a
+ * bounded LRU directory keyed by file identity, so scrubbing never decodes video. The layout
+ * (interval, tile count, columns) follows from the duration alone, which is why only the
+ * image itself is stored. Call {@link #load} and {@link #cancel} from the main thread.
+ */
+public class SeekPreviewLoader {
+
+    private static final String TAG = "SeekPreviewLoader";
+
+    private static final long DISK_CACHE_BYTES = 32L * 1024 * 1024;
+    private static final int MAX_TILES = 100;
+    private static final long MIN_INTERVAL_MS = 2_000;
+    private static final int COLUMNS = 10;
+    private static final int TILE_WIDTH = 160;
+
+    private static SeekPreviewLoader instance;
+
+    public static synchronized SeekPreviewLoader getInstance(Context context) {
+        if (instance == null) instance = new SeekPreviewLoader(context.getApplicationContext());
+        return instance;
+    }
+
+    public interface Callback {
+        void onSheetReady(Sheet sheet);
+    }
+
+    /** A decoded sprite and the layout needed to find a position's tile in it. */
+    public static final class Sheet {
+        public final Bitmap bitmap;
+        final long intervalMs;
+        final int count;
+        final int columns;
+        final int tileWidth;
+        final int tileHeight;
+
+        Sheet(Bitmap bitmap, long intervalMs, int count, int columns) {
+            this.bitmap = bitmap;
+            this.intervalMs = intervalMs;
+            this.count = count;
+            this.columns = columns;
+            int rows = (count + columns - 1) / columns;
+            tileWidth = bitmap.getWidth() / columns;
+            tileHeight = bitmap.getHeight() / rows;
+        }
+
+        /** Writes the source rectangle of the tile covering {@code positionMs} into {@code out}. */
+        public void tileAt(long positionMs, Rect out) {
+            int tile = (int) Math.max(0, Math.min(count - 1, positionMs / intervalMs));
+            int left = (tile % columns) * tileWidth;
+            int top = (tile / columns) * tileHeight;
+            out.set(left, top, left + tileWidth, top + tileHeight);
+        }
+    }
+
+    private final ThumbnailDiskCache diskCache;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(() -> {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        r.run();
+    }, "seek-previews"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private SeekPreviewLoader(Context context) {
+        diskCache = new ThumbnailDiskCache(new File(context.getCacheDir(), "seek_previews"), DISK_CACHE_BYTES);
+    }
+
+    /**
+     * Delivers the sprite for {@code path} on the main thread, generating it first on a miss.
+     * Replaces any earlier request; nothing is delivered if this one is cancelled.
+     */
+    public void load(String path, long durationMs, Callback callback) {
+        int token = generation.incrementAndGet();
+        if (durationMs <= 0) return;
+        executor.execute(() -> {
+            if (generation.get() != token) return;
+            long intervalMs = Math.max(MIN_INTERVAL_MS, (durationMs + MAX_TILES - 1) / MAX_TILES);
+            int count = (int) Math.max(1, (durationMs + intervalMs - 1) / intervalMs);
+            int columns = Math.min(COLUMNS, count);
+
+            File file = new File(path);
+            String key = VideoMetadataStore.thumbnailKey(path, file.length(), file.lastModified())
+                    + "-" + intervalMs;
+            Bitmap bitmap = diskCache.get(key);
+            if (bitmap == null) {
+                bitmap = generate(path, intervalMs, count, columns, token);
+                if (bitmap == null) return;
+                diskCache.put(key, bitmap);
+            }
+            Sheet sheet = new Sheet(bitmap, intervalMs, count, columns);
+            mainHandler.post(() -> {
+                if (generation.get() == token) callback.onSheetReady(sheet);
+            });
+        });
+    }
+
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    private Bitmap generate(String path, long intervalMs, int count, int columns, int token) {
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(path);
+            int tileHeight = tileHeight(retriever);
+            int rows = (count + columns - 1) / columns;
+            Bitmap sheet = Bitmap.createBitmap(columns * TILE_WIDTH, rows * tileHeight, Bitmap.Config.RGB_565);
+            Canvas canvas = new Canvas(sheet);
+            Rect dst = new Rect();
+            for (int i = 0; i < count; i++) {
+                // Abandoned half-built sprites are not cached; the next play starts over
+                if (generation.get() != token) return null;
+                Bitmap frame = retriever.getScaledFrameAtTime(i * intervalMs * 1000L,
+                        MediaMetadataRetriever.OPTION_CLOSEST_SYNC, TILE_WIDTH, tileHeight);
+                if (frame == null) continue;
+                int left = (i % columns) * TILE_WIDTH;
+                int top = (i / columns) * tileHeight;
+                dst.set(left, top, left + TILE_WIDTH, top + tileHeight);
+                canvas.drawBitmap(frame, null, dst, null);
+                frame.recycle();
+            }
+            return sheet;
+        } catch (Exception e) {
+            Log.w(TAG, "Preview generation failed for " + path, e);
+            return null;
+        } finally {
+            try {
+                retriever.release();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    // Tiles keep the video's aspect ratio (after rotation) at a fixed width
+    private static int tileHeight(MediaMetadataRetriever retriever) {
+        int w = parse(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH));
+        int h = parse(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT));
+        int rotation = parse(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_ROTATION));
+        if (rotation == 90 || rotation == 270) {
+            int t = w;
+            w = h;
+            h = t;
+        }
+        if (w <= 0 || h <= 0) return TILE_WIDTH * 9 / 16;
+        return Math.max(1, Math.min(TILE_WIDTH * 2, TILE_WIDTH * h / w));
+    }
+
+    private static int parse(String value) {
+        try {
+            return value != null ? Integer.parseInt(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
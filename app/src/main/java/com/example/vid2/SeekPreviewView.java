@@ -0,0 +1,63 @@
+package com.example.vid2;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Shows one tile of a {@link SeekPreviewLoader.Sheet} while the seek bar is dragged. Moving
+ * to another position only changes the source rectangle; nothing is decoded or allocated.
+ */
+public class SeekPreviewView extends View {
+
+    private final Rect src = new Rect();
+    private final Rect dst = new Rect();
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private SeekPreviewLoader.Sheet sheet;
+
+    public SeekPreviewView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public void setSheet(@Nullable SeekPreviewLoader.Sheet sheet) {
+        this.sheet = sheet;
+        if (sheet == null) setVisibility(GONE);
+    }
+
+    public boolean hasSheet() {
+        return sheet != null;
+    }
+
+    /** Shows the tile for {@code positionMs}, centred over {@code anchorX} in the parent. */
+    public void show(long positionMs, float anchorX) {
+        if (sheet == null) return;
+        sheet.tileAt(positionMs, src);
+        View parent = (View) getParent();
+        float max = parent.getWidth() - getWidth();
+        setTranslationX(Math.max(0, Math.min(max, anchorX - getWidth() / 2f)));
+        setVisibility(VISIBLE);
+        invalidate();
+    }
+
+    public void hide() {
+        setVisibility(GONE);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (sheet == null || src.isEmpty()) return;
+        // Letterbox the tile into the view without distorting it
+        int w = getWidth();
+        int h = getHeight();
+        float scale = Math.min(w / (float) src.width(), h / (float) src.height());
+        int dw = Math.round(src.width() * scale);
+        int dh = Math.round(src.height() * scale);
+        dst.set((w - dw) / 2, (h - dh) / 2, (w + dw) / 2, (h + dh) / 2);
+        canvas.drawBitmap(sheet.bitmap, src, dst, paint);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.vid2;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Finds sidecar files (subtitles next to a video) from cached directory listings.
+ *
+ * Each folder is listed at most once, on a background thread, no matter how many videos of
+ * a playlist live in it; lookups only ever consult the cache and never touch the disk. Only
+ * the subtitle files of a listing are kept: {@code .srt}, {@code .vtt}, {@code .ass} and
+ * {@code .ssa}, named after the video with an optional tag such as a language
+ * ({@code movie.fr.srt}).
+ */
+public class SidecarIndex {
+
+    /** A subtitle file found next to a video. */
+    public static final class Sidecar {
+        public final File file;
+        public final SubtitleParser.Format format;
+        /** What sits between the video's name and the extension ("fr", "en.forced"), or null. */
+        public final String tag;
+
+        Sidecar(File file, SubtitleParser.Format format, String tag) {
+            this.file = file;
+            this.format = format;
+            this.tag = tag;
+        }
+
+        /** Language code from the tag, or null. */
+        public String language() {
+            if (tag == null) return null;
+            int dot = tag.indexOf('.');
+            String first = dot > 0 ? tag.substring(0, dot) : tag;
+            int dash = first.indexOf('-');
+            String code = dash > 0 ? first.substring(0, dash) : first;
+            return code.length() == 2 || code.length() == 3 ? code.toLowerCase(Locale.ROOT) : null;
+        }
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, List<String>> listings = new ConcurrentHashMap<>();
+
+    /**
+     * Lists, in one background batch, every folder of {@code videoPaths} not listed yet, then
+     * runs {@code onDone} (may be null) on the main thread.
+     */
+    public void prefetch(Collection<String> videoPaths, Runnable onDone) {
+        Set<String> dirs = new LinkedHashSet<>();
+        for (String path : videoPaths) {
+            String dir = parentOf(path);
+            if (!listings.containsKey(dir)) dirs.add(dir);
+        }
+        if (dirs.isEmpty()) {
+            if (onDone != null) mainHandler.post(onDone);
+            return;
+        }
+        executor.execute(() -> {
+            for (String dir : dirs) {
+                if (listings.containsKey(dir)) continue;
+                String[] names = new File(dir).list();
+                List<String> subtitles = new ArrayList<>();
+                if (names != null) {
+                    for (String name : names) {
+                        if (SubtitleParser.formatOf(name) != null) subtitles.add(name);
+                    }
+                }
+                listings.put(dir, subtitles.isEmpty() ? Collections.emptyList() : subtitles);
+            }
+            if (onDone != null) mainHandler.post(onDone);
+        });
+    }
+
+    /** True once the folder of {@code videoPath} has been listed. */
+    public boolean isListed(String videoPath) {
+        return listings.containsKey(parentOf(videoPath));
+    }
+
+    /** Every subtitle file of the video in the cached listing; empty if none or not listed. */
+    public List<Sidecar> findSubtitles(String videoPath) {
+        String dir = parentOf(videoPath);
+        List<String> names = listings.get(dir);
+        if (names == null || names.isEmpty()) return Collections.emptyList();
+        String base = videoPath.substring(videoPath.lastIndexOf('/') + 1);
+        int dot = base.lastIndexOf('.');
+        if (dot > 0) base = base.substring(0, dot);
+
+        List<Sidecar> found = new ArrayList<>();
+        for (String name : names) {
+            if (!name.startsWith(base) || name.length() <= base.length()
+                    || name.charAt(base.length()) != '.') {
+                continue;
+            }
+            int ext = name.lastIndexOf('.');
+            String tag = ext > base.length() ? name.substring(base.length() + 1, ext) : null;
+            found.add(new Sidecar(new File(dir, name), SubtitleParser.formatOf(name), tag));
+        }
+        return found;
+    }
+
+    /**
+     * The sidecar to show by default: one in {@code language}, else an untagged one, else the
+     * first. Null if there are none.
+     */
+    public static Sidecar preferred(List<Sidecar> sidecars, String language) {
+        Sidecar untagged = null;
+        for (Sidecar sidecar : sidecars) {
+            if (language.equals(sidecar.language())) return sidecar;
+            if (sidecar.tag == null && untagged == null) untagged = sidecar;
+        }
+        if (untagged != null) return untagged;
+        return sidecars.isEmpty() ? null : sidecars.get(0);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static String parentOf(String path) {
+        int slash = path.lastIndexOf('/');
+        return slash > 0 ? path.substring(0, slash) : "/";
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.vid2;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads sidecar subtitles into {@link SubtitleTrack}s off the main thread.
+ *
+ * A file is parsed once: the cue index is then stored in a bounded cache directory keyed by
+ * the subtitle file's identity, and reopening it reads the arrays back instead of parsing
+ * text. While a large file is parsed the cues read so far are delivered first, so the
+ * opening lines show before the whole file is done. Call {@link #load} and {@link #cancel}
+ * from the main thread.
+ */
+public class SubtitleEngine {
+
+    private static final String TAG = "SubtitleEngine";
+
+    private static final long CACHE_BYTES = 16L * 1024 * 1024;
+
+    private static SubtitleEngine instance;
+
+    public static synchronized SubtitleEngine getInstance(Context context) {
+        if (instance == null) instance = new SubtitleEngine(context.getApplicationContext());
+        return instance;
+    }
+
+    public interface Callback {
+        /** {@code complete} is false for the partial track delivered while parsing goes on. */
+        void onTrack(SubtitleTrack track, boolean complete);
+    }
+
+    private final File cacheDir;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private SubtitleEngine(Context context) {
+        cacheDir = new File(context.getCacheDir(), "subtitle_cues");
+    }
+
+    /**
+     * Delivers the cues of {@code sidecar} on the main thread. Replaces any earlier request;
+     * nothing more is delivered once it is cancelled.
+     */
+    public void load(SidecarIndex.Sidecar sidecar, Callback callback) {
+        int token = generation.incrementAndGet();
+        executor.execute(() -> {
+            if (generation.get() != token) return;
+            File file = sidecar.file;
+            File cached = new File(cacheDir, VideoMetadataStore.thumbnailKey(
+                    file.getPath(), file.length(), file.lastModified()) + ".cues");
+            SubtitleTrack track = readCached(cached);
+            if (track == null) {
+                track = parse(sidecar, token, callback);
+                if (track == null) return;
+                writeCached(cached, track);
+            }
+            deliver(token, callback, track, true);
+        });
+    }
+
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    private SubtitleTrack parse(SidecarIndex.Sidecar sidecar, int token, Callback callback) {
+        SubtitleTrack.Builder builder = new SubtitleTrack.Builder();
+        boolean[] shownPartial = {false};
+        long startNs = System.nanoTime();
+        try (InputStream in = new FileInputStream(sidecar.file)) {
+            boolean finished = SubtitleParser.parse(in, sidecar.format, builder, b -> {
+                if (generation.get() != token) return false;
+                // One early delivery covers the start of playback; small files skip it
+                if (!shownPartial[0] && b.size() >= SubtitleParser.BATCH) {
+                    shownPartial[0] = true;
+                    deliver(token, callback, b.build(), false);
+                }
+                return true;
+            });
+            if (!finished) return null;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read " + sidecar.file, e);
+            return null;
+        }
+        SubtitleTrack track = builder.build();
+        Log.d(TAG, "Parsed " + track.size() + " cues from " + sidecar.file.getName()
+                + " in " + (System.nanoTime() - startNs) / 1_000_000 + " ms");
+        return track;
+    }
+
+    private void deliver(int token, Callback callback, SubtitleTrack track, boolean complete) {
+        mainHandler.post(() -> {
+            if (generation.get() == token) callback.onTrack(track, complete);
+        });
+    }
+
+    private SubtitleTrack readCached(File cached) {
+        if (!cached.isFile()) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cached)))) {
+            SubtitleTrack track = SubtitleTrack.readFrom(in);
+            // Keeps the oldest-first trim order meaningful
+            cached.setLastModified(System.currentTimeMillis());
+            return track;
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable cue cache " + cached.getName(), e);
+            cached.delete();
+            return null;
+        }
+    }
+
+    private void writeCached(File cached, SubtitleTrack track) {
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) return;
+        File tmp = new File(cacheDir, cached.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            track.writeTo(out);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not cache cues " + cached.getName(), e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(cached)) {
+            tmp.delete();
+            return;
+        }
+        trim();
+    }
+
+    // Writes are rare (once per new subtitle file), so listing the directory here is fine
+    private void trim() {
+        File[] files = cacheDir.listFiles();
+        if (files == null) return;
+        long total = 0;
+        for (File f : files) total += f.length();
+        if (total <= CACHE_BYTES) return;
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File f : files) {
+            if (total <= CACHE_BYTES) break;
+            total -= f.length();
+            f.delete();
+        }
+    }
+}
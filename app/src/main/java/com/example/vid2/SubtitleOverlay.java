@@ -0,0 +1,116 @@
+package com.example.vid2;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.PlaybackParameters;
+import androidx.media3.common.Player;
+import androidx.media3.common.text.Cue;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.ui.SubtitleView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Shows the cues of a {@link SubtitleTrack} in a {@link SubtitleView} in step with the player.
+ *
+ * Instead of polling, each update looks up the showing cues and schedules the next one for
+ * the moment the set changes, scaled by the playback speed; seeks, pauses and speed changes
+ * trigger an update straight away. The view is only touched when the showing cues change.
+ * Main thread only.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class SubtitleOverlay implements Player.Listener, Runnable {
+
+    private static final int MAX_CUES = 4;
+    // Re-sync at least this often, in case the playback clock drifts from the estimate
+    private static final long MAX_DELAY_MS = 1_000;
+
+    private final Player player;
+    private final SubtitleView view;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final int[] showing = new int[MAX_CUES];
+    private final int[] lookup = new int[MAX_CUES];
+
+    private SubtitleTrack track = SubtitleTrack.EMPTY;
+    private int showingCount;
+
+    public SubtitleOverlay(Player player, SubtitleView view) {
+        this.player = player;
+        this.view = view;
+        player.addListener(this);
+    }
+
+    public void setTrack(SubtitleTrack track) {
+        this.track = track;
+        // Cue indices of the old track mean nothing in the new one
+        showingCount = -1;
+        run();
+    }
+
+    public void clear() {
+        setTrack(SubtitleTrack.EMPTY);
+    }
+
+    public void release() {
+        handler.removeCallbacks(this);
+        player.removeListener(this);
+    }
+
+    @Override
+    public void onIsPlayingChanged(boolean isPlaying) {
+        run();
+    }
+
+    @Override
+    public void onPositionDiscontinuity(Player.PositionInfo oldPosition, Player.PositionInfo newPosition,
+                                        int reason) {
+        run();
+    }
+
+    @Override
+    public void onPlaybackParametersChanged(PlaybackParameters playbackParameters) {
+        run();
+    }
+
+    @Override
+    public void run() {
+        handler.removeCallbacks(this);
+        long positionMs = player.getCurrentPosition();
+        int count = track.cuesAt(positionMs, lookup);
+        if (!isShowing(count)) show(count);
+        if (!player.isPlaying() || track.size() == 0) return;
+        long nextMs = track.nextChangeAfter(positionMs);
+        long delayMs = MAX_DELAY_MS;
+        if (nextMs >= 0) {
+            float speed = player.getPlaybackParameters().speed;
+            delayMs = Math.min(MAX_DELAY_MS, Math.max(1, (long) ((nextMs - positionMs) / speed)));
+        }
+        handler.postDelayed(this, delayMs);
+    }
+
+    private boolean isShowing(int count) {
+        if (count != showingCount) return false;
+        for (int i = 0; i < count; i++) {
+            if (lookup[i] != showing[i]) return false;
+        }
+        return true;
+    }
+
+    private void show(int count) {
+        System.arraycopy(lookup, 0, showing, 0, count);
+        showingCount = count;
+        if (count == 0) {
+            view.setCues(Collections.emptyList());
+            return;
+        }
+        List<Cue> cues = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cues.add(new Cue.Builder().setText(track.text(lookup[i])).build());
+        }
+        view.setCues(cues);
+    }
+}
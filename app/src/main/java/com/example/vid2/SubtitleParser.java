@@ -0,0 +1,315 @@
+package com.example.vid2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Streaming parser for SubRip (.srt), WebVTT (.vtt) and SubStation Alpha (.ass/.ssa) files.
+ *
+ * The file is read line by line into a {@link SubtitleTrack.Builder}; nothing but the current
+ * cue is held besides the builder, and {@link Progress} is told every {@link #BATCH} cues so
+ * the cues read so far can be shown while parsing goes on. Styling is dropped: cues keep
+ * their text and line breaks only. The charset is sniffed from the first bytes.
+ */
+public final class SubtitleParser {
+
+    public enum Format { SRT, VTT, ASS }
+
+    public interface Progress {
+        /** Called on the parsing thread; return false to stop parsing. */
+        boolean onCues(SubtitleTrack.Builder builder);
+    }
+
+    static final int BATCH = 256;
+
+    private static final int SNIFF_BYTES = 16 * 1024;
+
+    private SubtitleParser() {
+    }
+
+    /** Format for a sidecar file name, or null if it is not a subtitle file. */
+    public static Format formatOf(String fileName) {
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".srt")) return Format.SRT;
+        if (lower.endsWith(".vtt")) return Format.VTT;
+        if (lower.endsWith(".ass") || lower.endsWith(".ssa")) return Format.ASS;
+        return null;
+    }
+
+    /**
+     * Parses {@code in} into {@code builder}. Returns false if {@code progress} stopped it;
+     * the builder then holds the cues read until then.
+     */
+    public static boolean parse(InputStream in, Format format, SubtitleTrack.Builder builder,
+                                Progress progress) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, SNIFF_BYTES);
+        Charset charset = detectCharset(buffered);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(buffered, charset));
+        if (format == Format.ASS) return parseAss(reader, builder, progress);
+        return parseTimed(reader, builder, progress);
+    }
+
+    /**
+     * Charset of the stream from its byte order mark, else UTF-16 if the first bytes look like
+     * it, else UTF-8 if they decode as UTF-8, else Windows-1252, the usual legacy encoding of
+     * subtitle files. Leaves the stream where it was.
+     */
+    static Charset detectCharset(BufferedInputStream in) throws IOException {
+        in.mark(SNIFF_BYTES);
+        byte[] head = new byte[SNIFF_BYTES];
+        int n = 0;
+        int read;
+        while (n < head.length && (read = in.read(head, n, head.length - n)) > 0) n += read;
+        in.reset();
+
+        if (n >= 3 && (head[0] & 0xff) == 0xef && (head[1] & 0xff) == 0xbb && (head[2] & 0xff) == 0xbf) {
+            in.skip(3);
+            return StandardCharsets.UTF_8;
+        }
+        if (n >= 2 && (head[0] & 0xff) == 0xff && (head[1] & 0xff) == 0xfe) {
+            in.skip(2);
+            return StandardCharsets.UTF_16LE;
+        }
+        if (n >= 2 && (head[0] & 0xff) == 0xfe && (head[1] & 0xff) == 0xff) {
+            in.skip(2);
+            return StandardCharsets.UTF_16BE;
+        }
+        // Text in UTF-16 without a BOM has a zero in every other byte
+        int evenZeros = 0;
+        int oddZeros = 0;
+        for (int i = 0; i < n; i++) {
+            if (head[i] == 0) {
+                if ((i & 1) == 0) evenZeros++;
+                else oddZeros++;
+            }
+        }
+        if (oddZeros > n / 4) return StandardCharsets.UTF_16LE;
+        if (evenZeros > n / 4) return StandardCharsets.UTF_16BE;
+        if (isUtf8(head, n)) return StandardCharsets.UTF_8;
+        try {
+            return Charset.forName("windows-1252");
+        } catch (IllegalArgumentException e) {
+            return StandardCharsets.ISO_8859_1;
+        }
+    }
+
+    // Strict UTF-8 check; a sequence cut off by the end of the sample still counts as valid
+    private static boolean isUtf8(byte[] bytes, int length) {
+        int i = 0;
+        while (i < length) {
+            int b = bytes[i] & 0xff;
+            int continuation;
+            if (b < 0x80) {
+                i++;
+                continue;
+            } else if (b >= 0xc2 && b <= 0xdf) {
+                continuation = 1;
+            } else if (b >= 0xe0 && b <= 0xef) {
+                continuation = 2;
+            } else if (b >= 0xf0 && b <= 0xf4) {
+                continuation = 3;
+            } else {
+                return false;
+            }
+            for (int k = 1; k <= continuation; k++) {
+                if (i + k >= length) return true;
+                if ((bytes[i + k] & 0xc0) != 0x80) return false;
+            }
+            i += continuation + 1;
+        }
+        return true;
+    }
+
+    // SRT and VTT: a "start --> end" line followed by text lines up to a blank line
+    private static boolean parseTimed(BufferedReader reader, SubtitleTrack.Builder builder,
+                                      Progress progress) throws IOException {
+        StringBuilder text = new StringBuilder();
+        long start = -1;
+        long end = -1;
+        int sinceProgress = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int arrow = line.indexOf("-->");
+            if (arrow >= 0 && (start < 0 || text.length() == 0)) {
+                start = parseTime(line.substring(0, arrow).trim());
+                // VTT appends cue settings after the end time
+                String rest = line.substring(arrow + 3).trim();
+                int space = rest.indexOf(' ');
+                end = parseTime(space > 0 ? rest.substring(0, space) : rest);
+                text.setLength(0);
+                continue;
+            }
+            if (line.trim().isEmpty()) {
+                if (start >= 0 && end >= 0 && text.length() > 0) {
+                    builder.add(start, end, text);
+                    if (++sinceProgress == BATCH) {
+                        sinceProgress = 0;
+                        if (!progress.onCues(builder)) return false;
+                    }
+                }
+                start = -1;
+                end = -1;
+                text.setLength(0);
+                continue;
+            }
+            // Lines outside a cue: SRT counters, the WEBVTT header, NOTE and STYLE blocks
+            if (start < 0) continue;
+            if (text.length() > 0) text.append('\n');
+            appendWithoutTags(line.trim(), text);
+        }
+        if (start >= 0 && end >= 0 && text.length() > 0) builder.add(start, end, text);
+        return progress.onCues(builder);
+    }
+
+    private static boolean parseAss(BufferedReader reader, SubtitleTrack.Builder builder,
+                                    Progress progress) throws IOException {
+        boolean inEvents = false;
+        // Field positions from the [Events] Format line; these are the spec defaults
+        int fieldCount = 10;
+        int startField = 1;
+        int endField = 2;
+        int sinceProgress = 0;
+        StringBuilder text = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.startsWith("[")) {
+                inEvents = line.equalsIgnoreCase("[Events]");
+                continue;
+            }
+            if (!inEvents) continue;
+            if (line.regionMatches(true, 0, "Format:", 0, 7)) {
+                String[] fields = line.substring(7).split(",");
+                fieldCount = fields.length;
+                for (int i = 0; i < fields.length; i++) {
+                    String field = fields[i].trim();
+                    if (field.equalsIgnoreCase("Start")) startField = i;
+                    else if (field.equalsIgnoreCase("End")) endField = i;
+                }
+                continue;
+            }
+            if (!line.regionMatches(true, 0, "Dialogue:", 0, 9)) continue;
+            // Text is the last field and may itself contain commas
+            String[] fields = line.substring(9).split(",", fieldCount);
+            if (fields.length < fieldCount) continue;
+            long start = parseTime(fields[startField].trim());
+            long end = parseTime(fields[endField].trim());
+            if (start < 0 || end < 0) continue;
+            text.setLength(0);
+            appendAssText(fields[fieldCount - 1], text);
+            builder.add(start, end, text);
+            if (++sinceProgress == BATCH) {
+                sinceProgress = 0;
+                if (!progress.onCues(builder)) return false;
+            }
+        }
+        return progress.onCues(builder);
+    }
+
+    /**
+     * Milliseconds of a {@code [h:]mm:ss[.,]fff} timestamp (also ASS's {@code h:mm:ss.cc}),
+     * or -1 if it does not parse.
+     */
+    static long parseTime(String value) {
+        long ms = 0;
+        long field = 0;
+        int digits = 0;
+        boolean fraction = false;
+        long fractionValue = 0;
+        int fractionDigits = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (fraction) {
+                    if (fractionDigits < 3) {
+                        fractionValue = fractionValue * 10 + (c - '0');
+                        fractionDigits++;
+                    }
+                } else {
+                    field = field * 10 + (c - '0');
+                    digits++;
+                }
+            } else if (c == ':' && !fraction && digits > 0) {
+                ms = (ms + field) * 60;
+                field = 0;
+                digits = 0;
+            } else if ((c == '.' || c == ',') && !fraction && digits > 0) {
+                fraction = true;
+            } else {
+                return -1;
+            }
+        }
+        if (digits == 0) return -1;
+        while (fractionDigits++ < 3) fractionValue *= 10;
+        return (ms + field) * 1000 + fractionValue;
+    }
+
+    // Drops <i>, <font ...>, <c.yellow> and similar markup, and unescapes the common entities
+    private static void appendWithoutTags(String line, StringBuilder out) {
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c == '<') {
+                int close = line.indexOf('>', i);
+                if (close > 0) {
+                    i = close + 1;
+                    continue;
+                }
+            } else if (c == '{' && i + 1 < line.length() && line.charAt(i + 1) == '\\') {
+                // ASS override blocks turn up in SRT files converted from ASS
+                int close = line.indexOf('}', i);
+                if (close > 0) {
+                    i = close + 1;
+                    continue;
+                }
+            } else if (c == '&') {
+                int semi = line.indexOf(';', i);
+                if (semi > 0 && semi - i <= 5) {
+                    String entity = line.substring(i + 1, semi);
+                    char decoded = entity.equals("amp") ? '&' : entity.equals("lt") ? '<'
+                            : entity.equals("gt") ? '>' : entity.equals("nbsp") ? ' ' : 0;
+                    if (decoded != 0) {
+                        out.append(decoded);
+                        i = semi + 1;
+                        continue;
+                    }
+                }
+            }
+            out.append(c);
+            i++;
+        }
+    }
+
+    private static void appendAssText(String value, StringBuilder out) {
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            if (c == '{') {
+                int close = value.indexOf('}', i);
+                if (close > 0) {
+                    i = close + 1;
+                    continue;
+                }
+            } else if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(i + 1);
+                if (next == 'N' || next == 'n') {
+                    out.append('\n');
+                    i += 2;
+                    continue;
+                } else if (next == 'h') {
+                    out.append(' ');
+                    i += 2;
+                    continue;
+                }
+            }
+            out.append(c);
+            i++;
+        }
+    }
+}
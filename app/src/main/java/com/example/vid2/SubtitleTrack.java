@@ -0,0 +1,192 @@
+package com.example.vid2;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Parsed subtitle cues as parallel primitive arrays, sorted by start time.
+ *
+ * All cue texts share one string, sliced by offset, so a track of thousands of cues is a
+ * handful of arrays. {@link #cuesAt} finds the cues showing at a position by binary search;
+ * a running maximum of end times bounds the backward scan for overlapping cues. Immutable
+ * once built; {@link #writeTo}/{@link #readFrom} store it in the parsed-cue cache.
+ */
+public final class SubtitleTrack {
+
+    public static final SubtitleTrack EMPTY = new Builder().build();
+
+    private static final int MAGIC = 0x53554231; // "SUB1"
+
+    private final int count;
+    private final long[] starts;
+    private final long[] ends;
+    // Largest end time among cues 0..i, so the scan for overlapping cues knows when to stop
+    private final long[] maxEnds;
+    private final int[] textOffsets;
+    private final String text;
+
+    private SubtitleTrack(int count, long[] starts, long[] ends, int[] textOffsets, String text) {
+        this.count = count;
+        this.starts = starts;
+        this.ends = ends;
+        this.textOffsets = textOffsets;
+        this.text = text;
+        maxEnds = new long[count];
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, ends[i]);
+            maxEnds[i] = max;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public long startMs(int cue) {
+        return starts[cue];
+    }
+
+    public long endMs(int cue) {
+        return ends[cue];
+    }
+
+    public String text(int cue) {
+        return text.substring(textOffsets[cue], textOffsets[cue + 1]);
+    }
+
+    /**
+     * Writes the indices of the cues showing at {@code positionMs} into {@code out}, in start
+     * order, and returns how many there are (at most {@code out.length}).
+     */
+    public int cuesAt(long positionMs, int[] out) {
+        int n = 0;
+        // Walks back from the latest start, so with too many overlaps the latest ones are kept
+        for (int i = lastStartingAtOrBefore(positionMs); i >= 0 && maxEnds[i] > positionMs && n < out.length; i--) {
+            if (ends[i] > positionMs) out[n++] = i;
+        }
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            int t = out[i];
+            out[i] = out[j];
+            out[j] = t;
+        }
+        return n;
+    }
+
+    /** Next time after {@code positionMs} at which the set of showing cues changes, or -1. */
+    public long nextChangeAfter(long positionMs) {
+        int last = lastStartingAtOrBefore(positionMs);
+        long next = last + 1 < count ? starts[last + 1] : Long.MAX_VALUE;
+        for (int i = last; i >= 0 && maxEnds[i] > positionMs; i--) {
+            if (ends[i] > positionMs) next = Math.min(next, ends[i]);
+        }
+        return next == Long.MAX_VALUE ? -1 : next;
+    }
+
+    // Index of the last cue with start <= positionMs, -1 if none
+    private int lastStartingAtOrBefore(long positionMs) {
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= positionMs) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return hi;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            out.writeLong(starts[i]);
+            out.writeLong(ends[i]);
+            out.writeInt(textOffsets[i + 1]);
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static SubtitleTrack readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) throw new IOException("Not a cue file");
+        int count = in.readInt();
+        if (count < 0) throw new IOException("Corrupt cue file");
+        long[] starts = new long[count];
+        long[] ends = new long[count];
+        int[] offsets = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            starts[i] = in.readLong();
+            ends[i] = in.readLong();
+            offsets[i + 1] = in.readInt();
+        }
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        if (count > 0 && offsets[count] != text.length()) throw new IOException("Corrupt cue file");
+        return new SubtitleTrack(count, starts, ends, offsets, text);
+    }
+
+    /**
+     * Collects cues in any order. {@link #build} may be called again as more cues arrive, so
+     * a parser can publish the cues read so far while it keeps going.
+     */
+    public static final class Builder {
+
+        private int size;
+        private long[] starts = new long[64];
+        private long[] ends = new long[64];
+        private int[] textOffsets = new int[65];
+        private final StringBuilder text = new StringBuilder();
+        private boolean sorted = true;
+
+        public Builder add(long startMs, long endMs, CharSequence cueText) {
+            if (endMs <= startMs || cueText.length() == 0) return this;
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                textOffsets = Arrays.copyOf(textOffsets, size * 2 + 1);
+            }
+            if (size > 0 && startMs < starts[size - 1]) sorted = false;
+            starts[size] = startMs;
+            ends[size] = endMs;
+            text.append(cueText);
+            textOffsets[size + 1] = text.length();
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public SubtitleTrack build() {
+            if (sorted) {
+                return new SubtitleTrack(size, Arrays.copyOf(starts, size), Arrays.copyOf(ends, size),
+                        Arrays.copyOf(textOffsets, size + 1), text.toString());
+            }
+            // ASS files list events by layer or style, not by time: sort a permutation
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Long.compare(starts[a], starts[b]));
+            long[] sortedStarts = new long[size];
+            long[] sortedEnds = new long[size];
+            int[] offsets = new int[size + 1];
+            StringBuilder sortedText = new StringBuilder(text.length());
+            for (int i = 0; i < size; i++) {
+                int cue = order[i];
+                sortedStarts[i] = starts[cue];
+                sortedEnds[i] = ends[cue];
+                sortedText.append(text, textOffsets[cue], textOffsets[cue + 1]);
+                offsets[i + 1] = sortedText.length();
+            }
+            return new SubtitleTrack(size, sortedStarts, sortedEnds, offsets, sortedText.toString());
+        }
+    }
+}
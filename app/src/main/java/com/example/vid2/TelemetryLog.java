@@ -0,0 +1,157 @@
+package com.example.vid2;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Fixed-size binary ring file of {@link PlaybackSession} records; the oldest record is
+ * overwritten once it is full, so the file never grows past {@link #CAPACITY} records.
+ *
+ * Layout: a 32-byte header (magic, record size, capacity, next slot, count) followed by the
+ * record slots. Every file access runs on one background thread; callers only hand over a
+ * record and never wait on the disk.
+ */
+public class TelemetryLog {
+
+    private static final String TAG = "TelemetryLog";
+
+    private static final int MAGIC = 0x56544c31; // "VTL1"
+    private static final int HEADER_SIZE = 32;
+    static final int CAPACITY = 500;
+
+    private static TelemetryLog instance;
+
+    public static synchronized TelemetryLog getInstance(Context context) {
+        if (instance == null) instance = new TelemetryLog(context.getApplicationContext());
+        return instance;
+    }
+
+    private final File file;
+    private final File exportDir;
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // io thread only
+    private final ByteBuffer record = ByteBuffer.allocate(PlaybackSession.RECORD_SIZE);
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private int next = -1;
+    private int count;
+
+    private TelemetryLog(Context context) {
+        file = new File(context.getFilesDir(), "playback_telemetry.bin");
+        File external = context.getExternalFilesDir(null);
+        exportDir = external != null ? external : context.getFilesDir();
+    }
+
+    public void append(PlaybackSession session) {
+        io.execute(() -> {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                readHeader(raf);
+                record.clear();
+                session.writeTo(record);
+                raf.seek(HEADER_SIZE + (long) next * PlaybackSession.RECORD_SIZE);
+                raf.write(record.array(), 0, PlaybackSession.RECORD_SIZE);
+                next = (next + 1) % CAPACITY;
+                count = Math.min(CAPACITY, count + 1);
+                writeHeader(raf);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not record session", e);
+            }
+        });
+    }
+
+    /** Delivers all stored sessions, newest first, on the main thread. */
+    public void readAll(Consumer<List<PlaybackSession>> callback) {
+        io.execute(() -> {
+            List<PlaybackSession> sessions = readSessions();
+            mainHandler.post(() -> callback.accept(sessions));
+        });
+    }
+
+    /** Writes all sessions as a JSON array and delivers the file (null on failure) on the main thread. */
+    public void exportJson(Consumer<File> callback) {
+        io.execute(() -> {
+            File out = new File(exportDir, "playback_telemetry.json");
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(out), StandardCharsets.UTF_8)) {
+                new GsonBuilder().setPrettyPrinting().create().toJson(readSessions(), writer);
+            } catch (IOException e) {
+                Log.w(TAG, "Export failed", e);
+                out = null;
+            }
+            File result = out;
+            mainHandler.post(() -> callback.accept(result));
+        });
+    }
+
+    private List<PlaybackSession> readSessions() {
+        if (!file.exists()) return Collections.emptyList();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            readHeader(raf);
+            byte[] data = new byte[count * PlaybackSession.RECORD_SIZE];
+            int oldest = (next - count + CAPACITY) % CAPACITY;
+            // The stored records may wrap around the end of the file
+            int firstRun = Math.min(count, CAPACITY - oldest);
+            raf.seek(HEADER_SIZE + (long) oldest * PlaybackSession.RECORD_SIZE);
+            raf.readFully(data, 0, firstRun * PlaybackSession.RECORD_SIZE);
+            if (firstRun < count) {
+                raf.seek(HEADER_SIZE);
+                raf.readFully(data, firstRun * PlaybackSession.RECORD_SIZE,
+                        (count - firstRun) * PlaybackSession.RECORD_SIZE);
+            }
+            ByteBuffer in = ByteBuffer.wrap(data);
+            List<PlaybackSession> sessions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) sessions.add(PlaybackSession.readFrom(in));
+            Collections.reverse(sessions);
+            return sessions;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read telemetry", e);
+            return Collections.emptyList();
+        }
+    }
+
+    // Loads the cursor once; a missing or foreign header starts an empty log
+    private void readHeader(RandomAccessFile raf) throws IOException {
+        if (next >= 0) return;
+        next = 0;
+        count = 0;
+        if (raf.length() < HEADER_SIZE) return;
+        header.clear();
+        raf.seek(0);
+        raf.readFully(header.array());
+        if (header.getInt() != MAGIC || header.getInt() != PlaybackSession.RECORD_SIZE
+                || header.getInt() != CAPACITY) {
+            return;
+        }
+        int storedNext = header.getInt();
+        int storedCount = header.getInt();
+        if (storedNext < 0 || storedNext >= CAPACITY || storedCount < 0 || storedCount > CAPACITY) return;
+        next = storedNext;
+        count = storedCount;
+    }
+
+    private void writeHeader(RandomAccessFile raf) throws IOException {
+        header.clear();
+        header.putInt(MAGIC).putInt(PlaybackSession.RECORD_SIZE).putInt(CAPACITY).putInt(next).putInt(count);
+        raf.seek(0);
+        raf.write(header.array());
+    }
+}
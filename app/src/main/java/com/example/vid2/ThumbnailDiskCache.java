@@ -0,0 +1,125 @@
+package com.example.vid2;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded directory of encoded thumbnails, evicted least recently used first.
+ *
+ * The directory is listed once, lazily, to rebuild the LRU order from file timestamps;
+ * after that every lookup and write goes through the in-memory index. Thread-safe.
+ */
+public class ThumbnailDiskCache {
+
+    private static final String TAG = "ThumbnailDiskCache";
+
+    private final File dir;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+    private boolean loaded;
+
+    public ThumbnailDiskCache(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Decodes the cached thumbnail for {@code key}, or returns null on a miss. */
+    public Bitmap get(String key) {
+        File file;
+        synchronized (this) {
+            ensureLoaded();
+            // get, not containsKey: only a get moves the entry to the young end of the LRU
+            if (index.get(key) == null) return null;
+            file = fileFor(key);
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+        if (bitmap == null) {
+            remove(key);
+        } else {
+            // Keeps LRU order across launches
+            file.setLastModified(System.currentTimeMillis());
+        }
+        return bitmap;
+    }
+
+    public void put(String key, Bitmap bitmap) {
+        File tmp = new File(dir, key + ".tmp");
+        try {
+            synchronized (this) {
+                ensureLoaded();
+            }
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                bitmap.compress(Bitmap.CompressFormat.JPEG, 85, out);
+            }
+            File file = fileFor(key);
+            if (!tmp.renameTo(file)) throw new IOException("rename failed");
+            synchronized (this) {
+                Long old = index.put(key, file.length());
+                totalBytes += file.length() - (old != null ? old : 0);
+                trim();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not cache thumbnail " + key, e);
+            tmp.delete();
+        }
+    }
+
+    private synchronized void remove(String key) {
+        Long size = index.remove(key);
+        if (size != null) totalBytes -= size;
+        fileFor(key).delete();
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            totalBytes -= eldest.getValue();
+            fileFor(eldest.getKey()).delete();
+            it.remove();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        loaded = true;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "Cannot create " + dir);
+            return;
+        }
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        long[] stamps = new long[files.length];
+        for (int i = 0; i < files.length; i++) stamps[i] = files[i].lastModified();
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(stamps[a], stamps[b]));
+        for (int i : order) {
+            String name = files[i].getName();
+            if (!name.endsWith(".jpg")) {
+                files[i].delete();
+                continue;
+            }
+            long size = files[i].length();
+            index.put(name.substring(0, name.length() - 4), size);
+            totalBytes += size;
+        }
+        trim();
+    }
+
+    private File fileFor(String key) {
+        return new File(dir, key + ".jpg");
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.vid2;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.media.MediaMetadataRetriever;
+import android.media.ThumbnailUtils;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+import android.util.Log;
+import android.util.LruCache;
+import android.util.Size;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thumbnail pipeline for the video list.
+ *
+ * Frames are produced at exactly the card size (140x90dp), preferring MediaStore's own
+ * thumbnails and falling back to frame extraction, then kept in a byte-budgeted memory LRU
+ * and a bounded on-disk LRU keyed by file identity (path, size, mtime). Requests for views
+ * on screen run newest first ahead of prefetches, and requests nobody waits for any more
+ * are dropped before they start. Prefetches have no view to wait for them; only the newest
+ * {@link #MAX_PENDING_PREFETCHES} stay queued, so a long fling does not leave decodes queued
+ * for rows it has passed. Call {@link #load}, {@link #prefetch} and {@link #cancel}
+ * from the main thread.
+ */
+public class ThumbnailLoader {
+
+    private static final String TAG = "ThumbnailLoader";
+
+    private static final int WIDTH_DP = 140;
+    private static final int HEIGHT_DP = 90;
+    private static final long DISK_CACHE_BYTES = 64L * 1024 * 1024;
+
+    private static final int PRIORITY_VISIBLE = 0;
+    private static final int PRIORITY_PREFETCH = 1;
+    // One full lookahead of ThumbnailPreloader
+    static final int MAX_PENDING_PREFETCHES = 48;
+
+    private static ThumbnailLoader instance;
+
+    public static synchronized ThumbnailLoader getInstance(Context context) {
+        if (instance == null) instance = new ThumbnailLoader(context.getApplicationContext());
+        return instance;
+    }
+
+    private final ContentResolver resolver;
+    private final int width;
+    private final int height;
+    private final LruCache<String, Bitmap> memoryCache;
+    private final ThumbnailDiskCache diskCache;
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicLong sequence = new AtomicLong();
+
+    // Main thread only
+    private final Map<String, Job> inFlight = new HashMap<>();
+    // Prefetches queued and not delivered yet, oldest first
+    private final ArrayDeque<Job> prefetches = new ArrayDeque<>();
+
+    private ThumbnailLoader(Context context) {
+        resolver = context.getContentResolver();
+        float density = context.getResources().getDisplayMetrics().density;
+        width = Math.round(WIDTH_DP * density);
+        height = Math.round(HEIGHT_DP * density);
+
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryBudget = am.getMemoryClass() * 1024 * 1024 / 8;
+        memoryCache = new LruCache<String, Bitmap>(memoryBudget) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+        diskCache = new ThumbnailDiskCache(new File(context.getCacheDir(), "thumbnails"), DISK_CACHE_BYTES);
+
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /** Shows the thumbnail for {@code video}: immediately on a memory hit, else once decoded. */
+    public void load(VideoEntry video, ImageView target) {
+        cancel(target);
+        String key = keyFor(video);
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            target.setImageBitmap(cached);
+            return;
+        }
+        target.setImageResource(R.drawable.ic_play_circle);
+
+        Job job = inFlight.get(key);
+        if (job != null && job.priority != PRIORITY_VISIBLE && executor.remove(job)) {
+            prefetches.remove(job);
+            // Promote a prefetch that has not started yet ahead of the other prefetches
+            Job promoted = new Job(key, video, PRIORITY_VISIBLE);
+            promoted.targets.addAll(job.targets);
+            job = promoted;
+            inFlight.put(key, job);
+            executor.execute(job);
+        } else if (job == null) {
+            job = new Job(key, video, PRIORITY_VISIBLE);
+            inFlight.put(key, job);
+            executor.execute(job);
+        }
+        job.addTarget(target);
+        target.setTag(R.id.thumbnail_request, job);
+    }
+
+    /** Warms the caches for a row that is about to scroll into view. */
+    public void prefetch(VideoEntry video) {
+        String key = keyFor(video);
+        if (memoryCache.get(key) != null || inFlight.containsKey(key)) return;
+        Job job = new Job(key, video, PRIORITY_PREFETCH);
+        inFlight.put(key, job);
+        prefetches.add(job);
+        executor.execute(job);
+        while (prefetches.size() > MAX_PENDING_PREFETCHES) {
+            Job stale = prefetches.poll();
+            // Already running if it cannot be removed; it is delivered as usual
+            if (executor.remove(stale)) inFlight.remove(stale.key);
+        }
+    }
+
+    /** Forgets the pending request of a recycled or rebound view. */
+    public void cancel(ImageView target) {
+        Object job = target.getTag(R.id.thumbnail_request);
+        if (job == null) return;
+        target.setTag(R.id.thumbnail_request, null);
+        ((Job) job).removeTarget(target);
+    }
+
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            memoryCache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            memoryCache.trimToSize(memoryCache.maxSize() / 2);
+        }
+    }
+
+    private String keyFor(VideoEntry video) {
+        return VideoMetadataStore.thumbnailKey(video.path, video.sizeBytes, video.dateModifiedMs)
+                + "_" + width + "x" + height;
+    }
+
+    private Bitmap produce(VideoEntry video, String key) {
+        Bitmap bitmap = diskCache.get(key);
+        if (bitmap != null) return bitmap;
+
+        // Both sources fit the frame inside the requested box, so ask for the box that covers
+        // the card once the video's aspect ratio is kept
+        Size cover = coverSize(video);
+        Bitmap frame = null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && video.id >= 0) {
+            try {
+                Uri uri = ContentUris.withAppendedId(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, video.id);
+                frame = resolver.loadThumbnail(uri, cover, null);
+            } catch (Exception e) {
+                Log.d(TAG, "No MediaStore thumbnail for " + video.path);
+            }
+        }
+        if (frame == null) frame = extractFrame(video.path, cover);
+        if (frame == null) return null;
+
+        // Center-crop to exactly the card size; RGB_565 halves the memory of an opaque frame
+        Bitmap exact = ThumbnailUtils.extractThumbnail(frame, width, height, ThumbnailUtils.OPTIONS_RECYCLE_INPUT);
+        Bitmap compact = exact.copy(Bitmap.Config.RGB_565, false);
+        if (compact != null) {
+            exact.recycle();
+            exact = compact;
+        }
+        diskCache.put(key, exact);
+        return exact;
+    }
+
+    private Size coverSize(VideoEntry video) {
+        if (video.width <= 0 || video.height <= 0) return new Size(width * 2, height * 2);
+        float scale = Math.max(width / (float) video.width, height / (float) video.height);
+        return new Size(Math.max(width, Math.round(video.width * scale)),
+                Math.max(height, Math.round(video.height * scale)));
+    }
+
+    private Bitmap extractFrame(String path, Size size) {
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(path);
+            return retriever.getScaledFrameAtTime(1_000_000L, MediaMetadataRetriever.OPTION_CLOSEST_SYNC,
+                    size.getWidth(), size.getHeight());
+        } catch (Exception e) {
+            Log.w(TAG, "Frame extraction failed for " + path, e);
+            return null;
+        } finally {
+            try {
+                retriever.release();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    private void deliver(Job job, Bitmap bitmap) {
+        if (inFlight.get(job.key) == job) inFlight.remove(job.key);
+        if (job.priority == PRIORITY_PREFETCH) prefetches.remove(job);
+        if (bitmap != null) memoryCache.put(job.key, bitmap);
+        for (ImageView view : job.targets) {
+            view.setTag(R.id.thumbnail_request, null);
+            if (bitmap != null) view.setImageBitmap(bitmap);
+        }
+        job.targets.clear();
+    }
+
+    private final class Job implements Runnable, Comparable<Job> {
+        final String key;
+        final VideoEntry video;
+        final int priority;
+        final long order = sequence.incrementAndGet();
+        // Main thread only; the worker just reads the count
+        final List<ImageView> targets = new ArrayList<>(1);
+        volatile int waiting;
+
+        Job(String key, VideoEntry video, int priority) {
+            this.key = key;
+            this.video = video;
+            this.priority = priority;
+        }
+
+        void addTarget(ImageView view) {
+            targets.add(view);
+            waiting = targets.size();
+        }
+
+        void removeTarget(ImageView view) {
+            targets.remove(view);
+            waiting = targets.size();
+        }
+
+        @Override
+        public void run() {
+            // A visible request whose rows have all been recycled is not worth decoding
+            if (priority == PRIORITY_VISIBLE && waiting == 0) {
+                mainHandler.post(() -> deliver(this, null));
+                return;
+            }
+            Bitmap bitmap = produce(video, key);
+            mainHandler.post(() -> deliver(this, bitmap));
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            if (priority != other.priority) return Integer.compare(priority, other.priority);
+            // Newest first: during a fling the rows the user sees now matter most
+            return Long.compare(other.order, order);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.vid2;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+
+/**
+ * Prefetches thumbnails for the rows just past the visible window, in the scroll direction,
+ * so they are in memory before they are bound. The lookahead grows with scroll speed so a
+ * fling still stays ahead of the decoder.
+ */
+public class ThumbnailPreloader extends RecyclerView.OnScrollListener {
+
+    private static final int MIN_LOOKAHEAD = 8;
+    private static final int MAX_LOOKAHEAD = 48;
+
+    private final VideoAdapter adapter;
+    private final ThumbnailLoader loader;
+
+    private int lastFrom = -1;
+    private int lastTo = -1;
+
+    public ThumbnailPreloader(VideoAdapter adapter, ThumbnailLoader loader) {
+        this.adapter = adapter;
+        this.loader = loader;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy == 0 || !(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) return;
+        LinearLayoutManager lm = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = lm.findFirstVisibleItemPosition();
+        int last = lm.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) return;
+
+        int visible = last - first + 1;
+        int rowHeight = Math.max(1, recyclerView.getHeight() / Math.max(1, visible));
+        int lookahead = Math.min(MAX_LOOKAHEAD, MIN_LOOKAHEAD + visible * Math.abs(dy) / rowHeight);
+
+        int from, to;
+        if (dy > 0) {
+            from = last + 1;
+            to = last + lookahead;
+        } else {
+            from = first - lookahead;
+            to = first - 1;
+        }
+        List<VideoEntry> items = adapter.getCurrentList();
+        from = Math.max(0, from);
+        to = Math.min(items.size() - 1, to);
+        if (from > to) return;
+
+        // Prefetches run newest first, so queue the nearest row last. Positions the previous
+        // call already covered are skipped.
+        int step = dy > 0 ? -1 : 1;
+        for (int i = dy > 0 ? to : from; i >= from && i <= to; i += step) {
+            if (i >= lastFrom && i <= lastTo) continue;
+            loader.prefetch(items.get(i));
+        }
+        lastFrom = from;
+        lastTo = to;
+    }
+}
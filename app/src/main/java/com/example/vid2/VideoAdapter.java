@@ -2,155 +2,207 @@ package com.example.vid2;
 
 import android.content.Context;
 import android.content.Intent;
-import android.media.MediaMetadataRetriever;
-import android.net.Uri;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.OptIn;
 import androidx.media3.common.util.UnstableApi;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
+import java.util.List;
 
-import java.io.File;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.Locale;
-import java.util.concurrent.TimeUnit;
+public class VideoAdapter extends ListAdapter<VideoEntry, VideoAdapter.VideoViewHolder> {
 
-public class VideoAdapter extends RecyclerView.Adapter<VideoAdapter.VideoViewHolder> {
+    // Rebind payload that only refreshes the resume badge and progress bar
+    private static final Object PAYLOAD_RESUME = new Object();
 
-    private ArrayList<String> videoList;
-    private Context context;
+    // More changed rows than this and the list is swapped in instead of diffed
+    static final int MAX_DIFFED_EDITS = 100;
+
+    private static final DiffUtil.ItemCallback<VideoEntry> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<VideoEntry>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull VideoEntry oldItem, @NonNull VideoEntry newItem) {
+                    return oldItem.id == newItem.id;
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull VideoEntry oldItem, @NonNull VideoEntry newItem) {
+                    return oldItem.equals(newItem);
+                }
+            };
 
-    public VideoAdapter(ArrayList<String> videoList, Context context) {
-        this.videoList = videoList;
+    private Context context;
+    private final ThumbnailLoader thumbnails;
+    private final MetadataResolver metadata;
+    private final ResumeStore resume;
+    private final VideoRowPool rows;
+    private final MediaTextFormatter formatter = new MediaTextFormatter();
+    // The list on screen; getCurrentList() only exposes a read-only wrapper of it
+    private VideoSnapshot currentSnapshot = VideoSnapshot.EMPTY;
+
+    public VideoAdapter(Context context, ThumbnailLoader thumbnails, MetadataResolver metadata,
+                        ResumeStore resume, VideoRowPool rows) {
+        super(DIFF_CALLBACK);
         this.context = context;
+        this.thumbnails = thumbnails;
+        this.metadata = metadata;
+        this.resume = resume;
+        this.rows = rows;
+        setHasStableIds(true);
+    }
+
+    /** Re-reads resume points for the rows on screen without rebinding anything else. */
+    public void refreshResume() {
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_RESUME);
+    }
+
+    /**
+     * Shows the given catalog rows, in order. When only a few rows were added, removed or moved,
+     * as after a library change, the diff runs in the background and only those rows get
+     * rebound. A re-sort, a new search or another folder replaces the list at once: DiffUtil is
+     * O(N + D²), and reversing 50k rows would keep it busy for seconds.
+     */
+    public void setData(VideoCatalog catalog, int[] rows) {
+        VideoSnapshot snapshot = new VideoSnapshot(catalog, rows);
+        if (snapshot.isSmallEditOf(currentSnapshot, MAX_DIFFED_EDITS)) {
+            submitList(snapshot, () -> currentSnapshot = snapshot);
+            return;
+        }
+        // Both apply right away and drop any diff still running
+        currentSnapshot = snapshot;
+        submitList(null);
+        submitList(snapshot);
     }
 
-    @NonNull
     @Override
-    public VideoViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(context).inflate(R.layout.video_item, parent, false);
-        return new VideoViewHolder(view);
+    public long getItemId(int position) {
+        return getItem(position).id;
     }
 
-    @OptIn(markerClass = UnstableApi.class)
+    // List row or grid cell, whichever layout the pool was made for
     @Override
-    public void onBindViewHolder(@NonNull VideoViewHolder holder, int position) {
-        String path = videoList.get(position);
-        File file = new File(path);
+    public int getItemViewType(int position) {
+        return rows.layout();
+    }
 
-        // Set video name
-        holder.videoName.setText(file.getName());
-
-        // Load thumbnail using Glide
-        Glide.with(context)
-                .load(Uri.fromFile(file))
-                .thumbnail(0.1f)
-                .placeholder(R.drawable.ic_play_circle)
-                .into(holder.videoThumbnail);
-
-        // Get video metadata
-        try {
-            MediaMetadataRetriever retriever = new MediaMetadataRetriever();
-            retriever.setDataSource(path);
-
-            // Duration
-            String durationStr = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
-            if (durationStr != null) {
-                long duration = Long.parseLong(durationStr);
-                holder.videoDuration.setText(formatDuration(duration));
-            }
-
-            retriever.release();
-        } catch (Exception e) {
-            holder.videoDuration.setText("--:--");
-        }
+    @NonNull
+    @Override
+    public VideoViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        // Usually inflated ahead of time on a background thread
+        View view = rows.inflate(parent);
+        VideoViewHolder holder = new VideoViewHolder(view, formatter);
 
-        // File size
-        long sizeInBytes = file.length();
-        String size = formatFileSize(sizeInBytes);
-        holder.videoSize.setText(size);
+        // Handle click (set once per holder, not per bind): open PlayerActivity
+        holder.itemView.setOnClickListener(v -> {
+            int clicked = holder.getBindingAdapterPosition();
+            if (clicked == RecyclerView.NO_POSITION) return;
 
-        // Last modified date
-        long lastModified = file.lastModified();
-        String date = formatDate(lastModified);
-        holder.videoDate.setText(date);
+            // Only an ID crosses the Binder; the player reads the paths from the repository
+            long playlistId = VideoRepository.getInstance(context).registerPlaylist(currentSnapshot);
 
-        // Handle click: open PlayerActivity
-        holder.itemView.setOnClickListener(v -> {
             Intent intent = new Intent(context, PlayerActivity.class);
-            intent.putExtra("videoList", videoList);
-            intent.putExtra("currentIndex", position);
+            intent.putExtra("playlistId", playlistId);
+            intent.putExtra("currentIndex", clicked);
+            VideoEntry video = getItem(clicked);
+            intent.putExtra("bitrate", BufferingProfile.averageBitrate(video.sizeBytes, video.durationMs));
             context.startActivity(intent);
         });
+        return holder;
     }
 
     @Override
-    public int getItemCount() {
-        return videoList.size();
+    public void onBindViewHolder(@NonNull VideoViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (!payloads.isEmpty() && payloads.get(0) == PAYLOAD_RESUME) {
+            bindResume(holder, getItem(position));
+        } else {
+            onBindViewHolder(holder, position);
+        }
     }
 
-    private String formatDuration(long milliseconds) {
-        long seconds = TimeUnit.MILLISECONDS.toSeconds(milliseconds);
-        long hours = seconds / 3600;
-        long minutes = (seconds % 3600) / 60;
-        long secs = seconds % 60;
+    @OptIn(markerClass = UnstableApi.class)
+    @Override
+    public void onBindViewHolder(@NonNull VideoViewHolder holder, int position) {
+        VideoEntry video = getItem(position);
 
-        if (hours > 0) {
-            return String.format(Locale.getDefault(), "%d:%02d:%02d", hours, minutes, secs);
-        } else {
-            return String.format(Locale.getDefault(), "%02d:%02d", minutes, secs);
-        }
+        // Set video name
+        holder.videoName.setText(video.name);
+
+        // Card-sized thumbnail from the memory/disk caches, decoded in the background on a miss
+        thumbnails.load(video, holder.videoThumbnail);
+
+        // Duration comes from MediaStore; when the indexer left it empty it is probed in the
+        // background and the badge updates in place
+        holder.boundId = video.id;
+        metadata.cancel(holder);
+        long duration = video.durationMs > 0 ? video.durationMs : metadata.cachedDuration(video.id);
+        holder.showDuration(duration > 0 ? duration : -1);
+        if (duration < 0) metadata.requestDuration(video, holder);
+
+        // File size and last modified date, formatted into the holder's own buffers
+        char[] size = holder.sizeText;
+        holder.videoSize.setText(size, 0, formatter.formatFileSize(video.sizeBytes, size));
+        char[] date = holder.dateText;
+        holder.videoDate.setText(date, 0, formatter.formatDate(video.dateModifiedMs, System.currentTimeMillis(), date));
+
+        bindResume(holder, video);
     }
 
-    private String formatFileSize(long bytes) {
-        if (bytes < 1024) {
-            return bytes + " B";
-        } else if (bytes < 1024 * 1024) {
-            return String.format(Locale.getDefault(), "%.1f KB", bytes / 1024.0);
-        } else if (bytes < 1024 * 1024 * 1024) {
-            return String.format(Locale.getDefault(), "%.1f MB", bytes / (1024.0 * 1024.0));
-        } else {
-            return String.format(Locale.getDefault(), "%.2f GB", bytes / (1024.0 * 1024.0 * 1024.0));
-        }
+    // In-memory lookup; the resume journal is never read during a bind
+    private void bindResume(VideoViewHolder holder, VideoEntry video) {
+        int permille = resume.progressPermille(video.path, video.durationMs);
+        int visibility = permille > 0 ? View.VISIBLE : View.GONE;
+        holder.resumeBadge.setVisibility(visibility);
+        holder.resumeProgress.setVisibility(visibility);
+        if (permille > 0) holder.resumeProgress.setProgress(permille);
     }
 
-    private String formatDate(long timestamp) {
-        long now = System.currentTimeMillis();
-        long diff = now - timestamp;
-
-        if (diff < 24 * 60 * 60 * 1000) {
-            return "Today";
-        } else if (diff < 48 * 60 * 60 * 1000) {
-            return "Yesterday";
-        } else if (diff < 7 * 24 * 60 * 60 * 1000) {
-            long days = diff / (24 * 60 * 60 * 1000);
-            return days + " days ago";
-        } else {
-            SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-            return sdf.format(new Date(timestamp));
-        }
+    @Override
+    public void onViewRecycled(@NonNull VideoViewHolder holder) {
+        thumbnails.cancel(holder.videoThumbnail);
+        metadata.cancel(holder);
     }
 
-    public static class VideoViewHolder extends RecyclerView.ViewHolder {
+    public static class VideoViewHolder extends RecyclerView.ViewHolder
+            implements MetadataResolver.Listener {
         TextView videoName, videoSize, videoDate, videoDuration;
         ImageView videoThumbnail;
+        TextView resumeBadge;
+        ProgressBar resumeProgress;
+        long boundId;
+
+        // The TextViews keep reading these, so every holder needs its own
+        final char[] durationText = new char[MediaTextFormatter.BUFFER_SIZE];
+        final char[] sizeText = new char[MediaTextFormatter.BUFFER_SIZE];
+        final char[] dateText = new char[MediaTextFormatter.BUFFER_SIZE];
+        private final MediaTextFormatter formatter;
 
-        public VideoViewHolder(@NonNull View itemView) {
+        public VideoViewHolder(@NonNull View itemView, MediaTextFormatter formatter) {
             super(itemView);
+            this.formatter = formatter;
             videoName = itemView.findViewById(R.id.videoName);
             videoSize = itemView.findViewById(R.id.videoSize);
             videoDate = itemView.findViewById(R.id.videoDate);
             videoDuration = itemView.findViewById(R.id.videoDuration);
             videoThumbnail = itemView.findViewById(R.id.videoThumbnail);
+            resumeBadge = itemView.findViewById(R.id.videoResumeBadge);
+            resumeProgress = itemView.findViewById(R.id.videoResumeProgress);
+        }
+
+        @Override
+        public void onDurationResolved(long videoId, long durationMs) {
+            if (videoId == boundId) showDuration(durationMs > 0 ? durationMs : -1);
+        }
+
+        /** Negative shows the unknown placeholder. */
+        void showDuration(long durationMs) {
+            videoDuration.setText(durationText, 0, formatter.formatDuration(durationMs, durationText));
         }
     }
 }
\ No newline at end of file
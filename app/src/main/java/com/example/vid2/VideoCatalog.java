@@ -0,0 +1,309 @@
+package com.example.vid2;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Column-oriented snapshot of the video library.
+ *
+ * Every column is a parallel array indexed by row, so a catalog of tens of thousands of
+ * videos costs a handful of arrays instead of one object per video. A catalog never changes
+ * once built; the scanner publishes growing snapshots from the same {@link Builder}, which
+ * only ever appends past the rows an earlier snapshot can see.
+ */
+public final class VideoCatalog {
+
+    // Declared before EMPTY, which is built during class initialisation
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    public static final VideoCatalog EMPTY = new Builder(0).build();
+
+    private final long generation;
+    private final int size;
+    private final long[] ids;
+    private final String[] paths;
+    private final String[] names;
+    private final long[] sizes;
+    private final long[] durations;
+    private final long[] dateModified;
+    private final int[] widths;
+    private final int[] heights;
+    private final VideoEntry[] entries;
+    private volatile IdTable idTable;
+    private volatile IdTable pathTable;
+
+    private VideoCatalog(Builder builder) {
+        this.generation = GENERATIONS.incrementAndGet();
+        this.size = builder.size;
+        this.ids = builder.ids;
+        this.paths = builder.paths;
+        this.names = builder.names;
+        this.sizes = builder.sizes;
+        this.durations = builder.durations;
+        this.dateModified = builder.dateModified;
+        this.widths = builder.widths;
+        this.heights = builder.heights;
+        this.entries = builder.entries;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Increases with every catalog built in this process, so it identifies this snapshot. */
+    public long generation() {
+        return generation;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** MediaStore {@code _ID} of the row. */
+    public long id(int row) {
+        return ids[checkRow(row)];
+    }
+
+    public String path(int row) {
+        return paths[checkRow(row)];
+    }
+
+    /** Display name, falling back to the last path segment when MediaStore has none. */
+    public String name(int row) {
+        return names[checkRow(row)];
+    }
+
+    /** File size in bytes. */
+    public long sizeBytes(int row) {
+        return sizes[checkRow(row)];
+    }
+
+    /** Duration in milliseconds, or 0 when MediaStore does not know it. */
+    public long durationMs(int row) {
+        return durations[checkRow(row)];
+    }
+
+    /** Last modification time in epoch milliseconds. */
+    public long dateModifiedMs(int row) {
+        return dateModified[checkRow(row)];
+    }
+
+    public int width(int row) {
+        return widths[checkRow(row)];
+    }
+
+    public int height(int row) {
+        return heights[checkRow(row)];
+    }
+
+    /**
+     * Value object for the row, created on first use and shared with every later snapshot of
+     * the same builder. Racing threads may each create one; they are equal and immutable.
+     */
+    public VideoEntry entry(int row) {
+        VideoEntry entry = entries[checkRow(row)];
+        if (entry == null) {
+            entry = new VideoEntry(ids[row], paths[row], names[row], sizes[row], durations[row],
+                    dateModified[row], widths[row], heights[row]);
+            entries[row] = entry;
+        }
+        return entry;
+    }
+
+    /** Row of the video with MediaStore {@code _ID} {@code id}, or -1. The lookup table is built on first use. */
+    public int rowOfId(long id) {
+        IdTable table = idTable;
+        if (table == null) {
+            table = new IdTable(ids, size);
+            idTable = table;
+        }
+        return table.find(id);
+    }
+
+    /** Row of the video at {@code path}, or -1. The lookup table is built on first use. */
+    public int rowOfPath(String path) {
+        IdTable table = pathTable;
+        if (table == null) {
+            long[] hashes = new long[size];
+            for (int row = 0; row < size; row++) hashes[row] = pathHash(paths[row]);
+            table = new IdTable(hashes, size);
+            pathTable = table;
+        }
+        int row = table.find(pathHash(path));
+        return row >= 0 && paths[row].equals(path) ? row : -1;
+    }
+
+    /**
+     * A newer catalog with the rows of {@code changed} added or replaced (by {@code _ID}) and
+     * the rows of {@code removedIds} dropped. Rows stay in newest-first order: the changed
+     * rows are merged in by modification date. Only column references are copied.
+     */
+    public Delta withChanges(VideoCatalog changed, long[] removedIds) {
+        long[] removed = removedIds.clone();
+        Arrays.sort(removed);
+        Builder builder = new Builder(size + changed.size());
+        int[] rowMap = new int[size];
+        int[] inserted = new int[changed.size()];
+        int insertedCount = 0;
+        int next = 0;
+        for (int row = 0; row < size; row++) {
+            while (next < changed.size() && changed.dateModified[next] >= dateModified[row]) {
+                inserted[insertedCount++] = builder.size();
+                builder.addRow(changed, next++);
+            }
+            if (changed.rowOfId(ids[row]) >= 0 || Arrays.binarySearch(removed, ids[row]) >= 0) {
+                rowMap[row] = -1;
+            } else {
+                rowMap[row] = builder.size();
+                builder.addRow(this, row);
+            }
+        }
+        while (next < changed.size()) {
+            inserted[insertedCount++] = builder.size();
+            builder.addRow(changed, next++);
+        }
+        return new Delta(this, builder.build(), rowMap, inserted);
+    }
+
+    /** How the rows of one catalog moved into the next; see {@link #withChanges}. */
+    public static final class Delta {
+        public final VideoCatalog previous;
+        public final VideoCatalog catalog;
+        /** Row in {@link #catalog} of each row of {@link #previous}; -1 if removed or replaced. */
+        public final int[] rowMap;
+        /** Rows of {@link #catalog} that are new or replaced, ascending. */
+        public final int[] insertedRows;
+
+        Delta(VideoCatalog previous, VideoCatalog catalog, int[] rowMap, int[] insertedRows) {
+            this.previous = previous;
+            this.catalog = catalog;
+            this.rowMap = rowMap;
+            this.insertedRows = insertedRows;
+        }
+
+        public boolean isEmpty() {
+            return insertedRows.length == 0 && catalog.size() == previous.size();
+        }
+    }
+
+    private static long pathHash(String path) {
+        long h = 1125899906842597L;
+        for (int i = 0; i < path.length(); i++) h = 31 * h + path.charAt(i);
+        return h;
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + ", size " + size);
+        }
+        return row;
+    }
+
+    // Open-addressing id -> row map; two primitive arrays instead of a boxed HashMap
+    private static final class IdTable {
+        private final long[] keys;
+        private final int[] rows;
+        private final int mask;
+
+        IdTable(long[] ids, int size) {
+            int capacity = Integer.highestOneBit(Math.max(4, size * 2 - 1)) << 1;
+            keys = new long[capacity];
+            rows = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(rows, -1);
+            for (int row = 0; row < size; row++) {
+                int slot = slot(ids[row]);
+                while (rows[slot] >= 0) slot = (slot + 1) & mask;
+                keys[slot] = ids[row];
+                rows[slot] = row;
+            }
+        }
+
+        int find(long id) {
+            for (int slot = slot(id); rows[slot] >= 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == id) return rows[slot];
+            }
+            return -1;
+        }
+
+        private int slot(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+
+    public static final class Builder {
+
+        private int size;
+        private long[] ids;
+        private String[] paths;
+        private String[] names;
+        private long[] sizes;
+        private long[] durations;
+        private long[] dateModified;
+        private int[] widths;
+        private int[] heights;
+        private VideoEntry[] entries;
+
+        public Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 16);
+            ids = new long[capacity];
+            paths = new String[capacity];
+            names = new String[capacity];
+            sizes = new long[capacity];
+            durations = new long[capacity];
+            dateModified = new long[capacity];
+            widths = new int[capacity];
+            heights = new int[capacity];
+            entries = new VideoEntry[capacity];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Builder add(long id, String path, String name, long sizeBytes, long durationMs,
+                           long dateModifiedMs, int width, int height) {
+            if (size == ids.length) grow();
+            ids[size] = id;
+            paths[size] = path;
+            names[size] = name;
+            sizes[size] = sizeBytes;
+            durations[size] = durationMs;
+            dateModified[size] = dateModifiedMs;
+            widths[size] = width;
+            heights[size] = height;
+            size++;
+            return this;
+        }
+
+        // Carries over the row's shared VideoEntry along with its columns
+        Builder addRow(VideoCatalog source, int row) {
+            add(source.ids[row], source.paths[row], source.names[row], source.sizes[row],
+                    source.durations[row], source.dateModified[row], source.widths[row], source.heights[row]);
+            entries[size - 1] = source.entries[row];
+            return this;
+        }
+
+        /**
+         * Returns an immutable catalog of the rows added so far. The builder can keep appending
+         * afterwards: earlier snapshots share the arrays but never look past their own size.
+         */
+        public VideoCatalog build() {
+            return new VideoCatalog(this);
+        }
+
+        private void grow() {
+            int capacity = ids.length + (ids.length >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            paths = Arrays.copyOf(paths, capacity);
+            names = Arrays.copyOf(names, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            durations = Arrays.copyOf(durations, capacity);
+            dateModified = Arrays.copyOf(dateModified, capacity);
+            widths = Arrays.copyOf(widths, capacity);
+            heights = Arrays.copyOf(heights, capacity);
+            entries = Arrays.copyOf(entries, capacity);
+        }
+    }
+}
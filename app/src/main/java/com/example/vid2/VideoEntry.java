@@ -0,0 +1,50 @@
+package com.example.vid2;
+
+/**
+ * Immutable value view of one {@link VideoCatalog} row, used where a per-item object is
+ * unavoidable (list diffing, the adapter's current list). Equality covers every field so a
+ * changed row is rebound while an unchanged one is left alone.
+ */
+public final class VideoEntry {
+
+    public final long id;
+    public final String path;
+    public final String name;
+    public final long sizeBytes;
+    public final long durationMs;
+    public final long dateModifiedMs;
+    public final int width;
+    public final int height;
+
+    VideoEntry(long id, String path, String name, long sizeBytes, long durationMs,
+               long dateModifiedMs, int width, int height) {
+        this.id = id;
+        this.path = path;
+        this.name = name;
+        this.sizeBytes = sizeBytes;
+        this.durationMs = durationMs;
+        this.dateModifiedMs = dateModifiedMs;
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof VideoEntry)) return false;
+        VideoEntry other = (VideoEntry) o;
+        return id == other.id
+                && sizeBytes == other.sizeBytes
+                && durationMs == other.durationMs
+                && dateModifiedMs == other.dateModifiedMs
+                && width == other.width
+                && height == other.height
+                && path.equals(other.path)
+                && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id) * 31 + path.hashCode();
+    }
+}
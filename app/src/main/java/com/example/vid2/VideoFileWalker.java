@@ -0,0 +1,234 @@
+package com.example.vid2;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Finds video files under a set of directories, whether or not MediaStore knows them.
+ *
+ * Every directory is its own fork/join task, so idle workers steal whole subtrees from busy
+ * ones and a deep folder does not hold up its siblings. A file is kept when its extension is
+ * a video one and its first bytes carry the matching container signature, so renamed
+ * documents and truncated downloads stay out; only files that pass the extension check are
+ * opened. Symbolic links are not followed. Pure Java so it can be exercised off-device.
+ */
+public final class VideoFileWalker {
+
+    /** Bytes read from the start of a candidate; enough for two MPEG-TS sync bytes. */
+    static final int HEAD_BYTES = 200;
+
+    private static final long PROGRESS_INTERVAL_NS = 250_000_000L;
+
+    private static final String[] EXTENSIONS = {"mp4", "m4v", "mov", "3gp", "3g2", "mkv", "webm",
+            "avi", "wmv", "asf", "flv", "ts", "m2ts", "mts", "mpg", "mpeg", "ogv"};
+
+    public interface Progress {
+        /** Called from worker threads, at most every 250 ms, with running totals. */
+        void onProgress(long directories, long files, long found);
+    }
+
+    /** A video found on disk. */
+    public static final class Found {
+        public final String path;
+        public final long sizeBytes;
+        public final long dateModifiedMs;
+
+        Found(String path, long sizeBytes, long dateModifiedMs) {
+            this.path = path;
+            this.sizeBytes = sizeBytes;
+            this.dateModifiedMs = dateModifiedMs;
+        }
+    }
+
+    public static final class Result {
+        /** In no particular order. */
+        public final List<Found> videos;
+        public final long directories;
+        public final long files;
+        public final long elapsedMs;
+
+        Result(List<Found> videos, long directories, long files, long elapsedMs) {
+            this.videos = videos;
+            this.directories = directories;
+            this.files = files;
+            this.elapsedMs = elapsedMs;
+        }
+
+        /** Directory entries looked at per second of wall time. */
+        public long filesPerSecond() {
+            return files * 1000L / Math.max(1, elapsedMs);
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    public VideoFileWalker(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Walks every root, skipping roots nested in another. Returns null once
+     * {@code cancelled} turns true; directories already queued are then dropped unread.
+     */
+    public Result walk(List<String> roots, BooleanSupplier cancelled, Progress progress) {
+        long start = System.nanoTime();
+        Walk walk = new Walk(cancelled, progress, start);
+        List<DirectoryTask> tasks = new ArrayList<>();
+        for (String root : distinctRoots(roots)) tasks.add(new DirectoryTask(walk, new File(root)));
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        if (cancelled.getAsBoolean()) return null;
+        List<Found> videos = new ArrayList<>(walk.videos);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000L;
+        return new Result(videos, walk.directories.get(), walk.files.get(), elapsedMs);
+    }
+
+    static boolean hasVideoExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        if (dot < 0 || dot == name.length() - 1 || name.length() - dot > 5) return false;
+        String extension = name.substring(dot + 1).toLowerCase(Locale.ROOT);
+        for (String known : EXTENSIONS) {
+            if (known.equals(extension)) return true;
+        }
+        return false;
+    }
+
+    /** Whether the first {@code length} bytes of a file start a known video container. */
+    static boolean hasVideoSignature(byte[] head, int length) {
+        if (length < 12) return false;
+        // ISO base media (MP4, MOV, 3GP): a box size then "ftyp"; old QuickTime files may
+        // start straight with a moov, mdat, wide or free box
+        if (isAscii(head, 4, "ftyp") || isAscii(head, 4, "moov") || isAscii(head, 4, "mdat")
+                || isAscii(head, 4, "wide") || isAscii(head, 4, "free")) return true;
+        // Matroska and WebM: EBML header
+        if (u8(head, 0) == 0x1A && u8(head, 1) == 0x45 && u8(head, 2) == 0xDF && u8(head, 3) == 0xA3) return true;
+        if (isAscii(head, 0, "RIFF") && isAscii(head, 8, "AVI ")) return true;
+        // ASF and WMV header object GUID
+        if (u8(head, 0) == 0x30 && u8(head, 1) == 0x26 && u8(head, 2) == 0xB2 && u8(head, 3) == 0x75) return true;
+        if (isAscii(head, 0, "FLV") || isAscii(head, 0, "OggS")) return true;
+        // MPEG program stream pack header or video sequence header
+        if (u8(head, 0) == 0 && u8(head, 1) == 0 && u8(head, 2) == 1
+                && (u8(head, 3) == 0xBA || u8(head, 3) == 0xB3)) return true;
+        // MPEG transport stream: a sync byte every 188 bytes, or every 192 in M2TS
+        if (length > 188 && u8(head, 0) == 0x47 && u8(head, 188) == 0x47) return true;
+        return length > 196 && u8(head, 4) == 0x47 && u8(head, 196) == 0x47;
+    }
+
+    private static boolean isAscii(byte[] head, int offset, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (head[offset + i] != text.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int u8(byte[] head, int index) {
+        return head[index] & 0xFF;
+    }
+
+    private static List<String> distinctRoots(List<String> roots) {
+        List<String> sorted = new ArrayList<>(roots);
+        Collections.sort(sorted);
+        List<String> distinct = new ArrayList<>();
+        for (String root : sorted) {
+            String last = distinct.isEmpty() ? null : distinct.get(distinct.size() - 1);
+            if (last != null && (root.equals(last) || root.startsWith(last.endsWith("/") ? last : last + "/"))) continue;
+            distinct.add(root);
+        }
+        return distinct;
+    }
+
+    // State shared by every task of one walk
+    private static final class Walk {
+        final BooleanSupplier cancelled;
+        final Progress progress;
+        final ConcurrentLinkedQueue<Found> videos = new ConcurrentLinkedQueue<>();
+        final AtomicLong directories = new AtomicLong();
+        final AtomicLong files = new AtomicLong();
+        final AtomicLong found = new AtomicLong();
+        final AtomicLong nextProgressNs;
+
+        Walk(BooleanSupplier cancelled, Progress progress, long start) {
+            this.cancelled = cancelled;
+            this.progress = progress;
+            this.nextProgressNs = new AtomicLong(start + PROGRESS_INTERVAL_NS);
+        }
+
+        void maybeReport() {
+            long next = nextProgressNs.get();
+            long now = System.nanoTime();
+            // Only the worker that moves the deadline reports
+            if (now < next || !nextProgressNs.compareAndSet(next, now + PROGRESS_INTERVAL_NS)) return;
+            progress.onProgress(directories.get(), files.get(), found.get());
+        }
+    }
+
+    private static final class DirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Walk walk;
+        private final File directory;
+
+        DirectoryTask(Walk walk, File directory) {
+            this.walk = walk;
+            this.directory = directory;
+        }
+
+        @Override
+        protected void compute() {
+            if (walk.cancelled.getAsBoolean()) return;
+            File[] children = directory.listFiles();
+            walk.directories.incrementAndGet();
+            if (children == null) return;
+            walk.files.addAndGet(children.length);
+
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            byte[] head = null;
+            for (File child : children) {
+                // Folders first: "Trip.mov" or "2023.ts" can be a folder full of videos
+                if (child.isDirectory()) {
+                    if (!Files.isSymbolicLink(child.toPath())) subdirectories.add(new DirectoryTask(walk, child));
+                } else if (hasVideoExtension(child.getName())) {
+                    if (head == null) head = new byte[HEAD_BYTES];
+                    long size = child.length();
+                    if (size > 0 && matches(child, head)) {
+                        walk.videos.add(new Found(child.getPath(), size, child.lastModified()));
+                        walk.found.incrementAndGet();
+                    }
+                }
+            }
+            walk.maybeReport();
+            // Forked subtrees are what idle workers steal
+            if (!subdirectories.isEmpty()) invokeAll(subdirectories);
+        }
+
+        private static boolean matches(File file, byte[] head) {
+            try (InputStream in = new FileInputStream(file)) {
+                int length = 0;
+                while (length < head.length) {
+                    int read = in.read(head, length, head.length - length);
+                    if (read < 0) break;
+                    length += read;
+                }
+                return hasVideoSignature(head, length);
+            } catch (IOException | SecurityException e) {
+                return false;
+            }
+        }
+    }
+}
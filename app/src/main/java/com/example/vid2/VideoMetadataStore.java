@@ -0,0 +1,245 @@
+package com.example.vid2;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Persistent mirror of the video library plus everything we had to probe ourselves
+ * (duration, resolution, codec, thumbnail key).
+ *
+ * Entries are keyed by path and are only trusted while size and modification time still
+ * match what MediaStore reports, so a launch only has to re-probe new or changed files.
+ * The store also remembers the MediaStore version/generation seen by the last complete
+ * scan; when neither moved, the cached catalog can be used as is.
+ */
+public class VideoMetadataStore extends SQLiteOpenHelper {
+
+    private static final String DB_NAME = "video_metadata.db";
+    private static final int DB_VERSION = 2;
+
+    private static final String TABLE = "video_meta";
+    private static final String STATE_TABLE = "scan_state";
+    private static final String HASH_TABLE = "content_hash";
+
+    /**
+     * One cached row. {@code codec == null} means the file has not been probed yet; rows
+     * MediaStore fully described never need to be, and get a codec only if something else
+     * probes them, such as {@link MetadataResolver} for a row it is asked about.
+     */
+    public static class Entry {
+        long mediaId;
+        String path;
+        String name;
+        long size;
+        long mtime;
+        long duration;
+        int width;
+        int height;
+        String codec;
+        String thumbKey;
+
+        boolean matches(long size, long mtime) {
+            return this.size == size && this.mtime == mtime;
+        }
+
+        /** Not probed yet, and missing something the list shows or sorts by. */
+        boolean needsProbe() {
+            return codec == null && (duration <= 0 || width <= 0 || height <= 0);
+        }
+    }
+
+    public VideoMetadataStore(Context context) {
+        super(context.getApplicationContext(), DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + "path TEXT PRIMARY KEY, "
+                + "media_id INTEGER NOT NULL, "
+                + "name TEXT, "
+                + "size INTEGER NOT NULL, "
+                + "mtime INTEGER NOT NULL, "
+                + "duration INTEGER NOT NULL DEFAULT 0, "
+                + "width INTEGER NOT NULL DEFAULT 0, "
+                + "height INTEGER NOT NULL DEFAULT 0, "
+                + "codec TEXT, "
+                + "thumb_key TEXT)");
+        db.execSQL("CREATE INDEX video_meta_mtime ON " + TABLE + " (mtime DESC)");
+        db.execSQL("CREATE TABLE " + STATE_TABLE + " (key TEXT PRIMARY KEY, value TEXT)");
+        createHashTable(db);
+    }
+
+    // Keyed by DuplicateFinder.HashCache.fileKey; full_hi/full_lo are null until read in full
+    private static void createHashTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + HASH_TABLE + " ("
+                + "file_key INTEGER PRIMARY KEY, "
+                + "sample INTEGER NOT NULL, "
+                + "full_hi INTEGER, "
+                + "full_lo INTEGER)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion == 1) {
+            // Only the hash table is new; keep the probed metadata
+            createHashTable(db);
+            return;
+        }
+        // Everything in here can be rebuilt from MediaStore
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        db.execSQL("DROP TABLE IF EXISTS " + STATE_TABLE);
+        db.execSQL("DROP TABLE IF EXISTS " + HASH_TABLE);
+        onCreate(db);
+    }
+
+    /** Loads every cached entry keyed by path, newest first. */
+    public Map<String, Entry> loadAll() {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        try (Cursor c = getReadableDatabase().query(TABLE,
+                new String[]{"path", "media_id", "name", "size", "mtime", "duration",
+                        "width", "height", "codec", "thumb_key"},
+                null, null, null, null, "mtime DESC")) {
+            while (c.moveToNext()) {
+                Entry e = new Entry();
+                e.path = c.getString(0);
+                e.mediaId = c.getLong(1);
+                e.name = c.getString(2);
+                e.size = c.getLong(3);
+                e.mtime = c.getLong(4);
+                e.duration = c.getLong(5);
+                e.width = c.getInt(6);
+                e.height = c.getInt(7);
+                e.codec = c.isNull(8) ? null : c.getString(8);
+                e.thumbKey = c.isNull(9) ? null : c.getString(9);
+                entries.put(e.path, e);
+            }
+        }
+        return entries;
+    }
+
+    /** Builds a catalog straight from cached entries, in iteration order. */
+    public static VideoCatalog toCatalog(Collection<Entry> entries) {
+        VideoCatalog.Builder builder = new VideoCatalog.Builder(entries.size());
+        for (Entry e : entries) {
+            builder.add(e.mediaId, e.path, e.name, e.size, e.duration, e.mtime, e.width, e.height);
+        }
+        return builder.build();
+    }
+
+    /** Upserts changed entries and drops deleted paths in one transaction. */
+    public void apply(Collection<Entry> upserts, Collection<String> deletedPaths) {
+        if (upserts.isEmpty() && deletedPaths.isEmpty()) return;
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " + TABLE
+                    + " (path, media_id, name, size, mtime, duration, width, height, codec, thumb_key)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            for (Entry e : upserts) {
+                insert.clearBindings();
+                insert.bindString(1, e.path);
+                insert.bindLong(2, e.mediaId);
+                if (e.name != null) insert.bindString(3, e.name);
+                insert.bindLong(4, e.size);
+                insert.bindLong(5, e.mtime);
+                insert.bindLong(6, e.duration);
+                insert.bindLong(7, e.width);
+                insert.bindLong(8, e.height);
+                if (e.codec != null) insert.bindString(9, e.codec);
+                if (e.thumbKey != null) insert.bindString(10, e.thumbKey);
+                insert.executeInsert();
+            }
+            insert.close();
+
+            SQLiteStatement delete = db.compileStatement("DELETE FROM " + TABLE + " WHERE path = ?");
+            for (String path : deletedPaths) {
+                delete.bindString(1, path);
+                delete.executeUpdateDelete();
+            }
+            delete.close();
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** MediaStore version/generation recorded by the last complete scan, or null. */
+    public String getScanStamp() {
+        try (Cursor c = getReadableDatabase().query(STATE_TABLE, new String[]{"value"},
+                "key = ?", new String[]{"stamp"}, null, null, null)) {
+            return c.moveToFirst() ? c.getString(0) : null;
+        }
+    }
+
+    public void setScanStamp(String stamp) {
+        ContentValues values = new ContentValues();
+        values.put("key", "stamp");
+        values.put("value", stamp);
+        getWritableDatabase().insertWithOnConflict(STATE_TABLE, null, values,
+                SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /** Reads every stored content hash into {@code cache}. */
+    public void loadHashes(DuplicateFinder.HashCache cache) {
+        try (Cursor c = getReadableDatabase().query(HASH_TABLE,
+                new String[]{"file_key", "sample", "full_hi", "full_lo"},
+                null, null, null, null, null)) {
+            while (c.moveToNext()) {
+                boolean hasFull = !c.isNull(2);
+                cache.load(c.getLong(0), c.getLong(1), hasFull, hasFull ? c.getLong(2) : 0,
+                        hasFull ? c.getLong(3) : 0);
+            }
+        }
+    }
+
+    /** Writes the hashes added to {@code cache} and drops {@code staleKeys}, in one transaction. */
+    public void saveHashes(DuplicateFinder.HashCache cache, long[] staleKeys) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " + HASH_TABLE
+                    + " (file_key, sample, full_hi, full_lo) VALUES (?, ?, ?, ?)");
+            cache.takeAdded((key, sample, hasFull, fullHi, fullLo) -> {
+                insert.clearBindings();
+                insert.bindLong(1, key);
+                insert.bindLong(2, sample);
+                if (hasFull) {
+                    insert.bindLong(3, fullHi);
+                    insert.bindLong(4, fullLo);
+                }
+                insert.executeInsert();
+            });
+            insert.close();
+
+            SQLiteStatement delete = db.compileStatement("DELETE FROM " + HASH_TABLE + " WHERE file_key = ?");
+            for (long key : staleKeys) {
+                delete.bindLong(1, key);
+                delete.executeUpdateDelete();
+            }
+            delete.close();
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Key the thumbnail for this file version is cached under. */
+    public static String thumbnailKey(String path, long size, long mtime) {
+        long h = 1125899906842597L;
+        for (int i = 0; i < path.length(); i++) h = 31 * h + path.charAt(i);
+        h = 31 * h + size;
+        h = 31 * h + mtime;
+        return Long.toHexString(h);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.vid2;
+
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.util.Log;
+
+/**
+ * Reads duration, resolution and video codec from a file's container headers.
+ * Blocking; only call it from a background thread.
+ */
+public final class VideoProber {
+
+    private static final String TAG = "VideoProber";
+
+    private VideoProber() {}
+
+    /**
+     * Fills in whatever the first video track reports. The entry is always marked as probed
+     * (codec becomes "" when nothing usable was found) so broken files are not retried on
+     * every launch.
+     */
+    public static void probe(VideoMetadataStore.Entry entry) {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(entry.path);
+            entry.codec = "";
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat format = extractor.getTrackFormat(i);
+                String mime = format.getString(MediaFormat.KEY_MIME);
+                if (mime == null || !mime.startsWith("video/")) continue;
+
+                entry.codec = mime;
+                if (format.containsKey(MediaFormat.KEY_WIDTH)) entry.width = format.getInteger(MediaFormat.KEY_WIDTH);
+                if (format.containsKey(MediaFormat.KEY_HEIGHT)) entry.height = format.getInteger(MediaFormat.KEY_HEIGHT);
+                if (format.containsKey(MediaFormat.KEY_DURATION)) {
+                    entry.duration = format.getLong(MediaFormat.KEY_DURATION) / 1000L;
+                }
+                break;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Probe failed for " + entry.path, e);
+            entry.codec = "";
+        } finally {
+            extractor.release();
+        }
+    }
+}
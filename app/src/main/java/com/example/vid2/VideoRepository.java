@@ -0,0 +1,168 @@
+package com.example.vid2;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Process-wide home of the video catalog and of the playlists handed to the player.
+ *
+ * Activities exchange a playlist ID instead of parceling every path through an Intent.
+ * Each registered playlist is also written to a small file in the background, so a player
+ * recreated after process death can reload it without a rescan.
+ */
+public final class VideoRepository {
+
+    private static final String TAG = "VideoRepository";
+    private static final int KEPT_PLAYLISTS = 4;
+
+    private static VideoRepository instance;
+
+    public static synchronized VideoRepository getInstance(Context context) {
+        if (instance == null) instance = new VideoRepository(context.getApplicationContext());
+        return instance;
+    }
+
+    private final File playlistDir;
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private volatile VideoCatalog catalog = VideoCatalog.EMPTY;
+    // Unique across process restarts so a stale file is never mistaken for a new playlist
+    private long nextPlaylistId = System.currentTimeMillis();
+    private final Map<Long, List<String>> playlists = new LinkedHashMap<Long, List<String>>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, List<String>> eldest) {
+            return size() > KEPT_PLAYLISTS;
+        }
+    };
+
+    private VideoRepository(Context context) {
+        playlistDir = new File(context.getCacheDir(), "playlists");
+    }
+
+    public VideoCatalog getCatalog() {
+        return catalog;
+    }
+
+    public void setCatalog(VideoCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /** Registers the rows of {@code snapshot} as a playlist and returns its ID. */
+    public synchronized long registerPlaylist(VideoSnapshot snapshot) {
+        long id = ++nextPlaylistId;
+        List<String> paths = new PathList(snapshot);
+        playlists.put(id, paths);
+        io.execute(() -> persist(id, paths));
+        return id;
+    }
+
+    /**
+     * Delivers the playlist on the main thread: straight from memory when this process
+     * registered it, otherwise read back from disk. Delivers an empty list if it is gone.
+     */
+    public void loadPlaylist(long id, Consumer<List<String>> callback) {
+        List<String> paths;
+        synchronized (this) {
+            paths = playlists.get(id);
+        }
+        if (paths != null) {
+            callback.accept(paths);
+            return;
+        }
+        io.execute(() -> {
+            List<String> restored = read(id);
+            synchronized (this) {
+                playlists.put(id, restored);
+            }
+            mainHandler.post(() -> callback.accept(restored));
+        });
+    }
+
+    private void persist(long id, List<String> paths) {
+        if (!playlistDir.isDirectory() && !playlistDir.mkdirs()) return;
+        File tmp = new File(playlistDir, id + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(paths.size());
+            for (String path : paths) out.writeUTF(path);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not persist playlist " + id, e);
+            tmp.delete();
+            return;
+        }
+        tmp.renameTo(fileFor(id));
+        pruneFiles();
+    }
+
+    private List<String> read(long id) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileFor(id))))) {
+            int count = in.readInt();
+            List<String> paths = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) paths.add(in.readUTF());
+            return Collections.unmodifiableList(paths);
+        } catch (IOException e) {
+            Log.w(TAG, "Playlist " + id + " is gone", e);
+            return Collections.emptyList();
+        }
+    }
+
+    private void pruneFiles() {
+        File[] files = playlistDir.listFiles();
+        if (files == null || files.length <= KEPT_PLAYLISTS) return;
+        List<Long> ids = new ArrayList<>();
+        for (File f : files) {
+            String name = f.getName();
+            try {
+                ids.add(Long.parseLong(name.substring(0, name.indexOf('.'))));
+            } catch (RuntimeException e) {
+                f.delete();
+            }
+        }
+        Collections.sort(ids);
+        for (int i = 0; i < ids.size() - KEPT_PLAYLISTS; i++) fileFor(ids.get(i)).delete();
+    }
+
+    private File fileFor(long id) {
+        return new File(playlistDir, id + ".bin");
+    }
+
+    /** Read-only path view over a snapshot; nothing is copied. */
+    private static final class PathList extends AbstractList<String> implements RandomAccess {
+        private final VideoSnapshot snapshot;
+
+        PathList(VideoSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public String get(int index) {
+            return snapshot.catalog().path(snapshot.row(index));
+        }
+
+        @Override
+        public int size() {
+            return snapshot.size();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.vid2;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Recycled-view pool for the video list that is filled before the list first lays out.
+ *
+ * {@link #prefill} inflates the rows one screen needs on a background thread; the views are
+ * handed to {@link #inflate} as the adapter creates holders, and whatever is left over is
+ * wrapped into holders and parked in the pool. The pool is sized to one screen of rows plus a
+ * row of slack, and the row layout doubles as the view type so list rows and grid cells never
+ * share holders. Call everything but the background inflation from the main thread.
+ */
+public class VideoRowPool extends RecyclerView.RecycledViewPool {
+
+    private static final String TAG = "VideoRowPool";
+
+    private final LayoutInflater inflater;
+    // LayoutInflater keeps per-call state, so the background thread gets its own copy
+    private final LayoutInflater backgroundInflater;
+    private final int layout;
+    private final int capacity;
+    private final ConcurrentLinkedQueue<View> inflated = new ConcurrentLinkedQueue<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile boolean released;
+
+    public VideoRowPool(Context context, int layout, int capacity) {
+        this.inflater = LayoutInflater.from(context);
+        this.backgroundInflater = inflater.cloneInContext(context);
+        this.layout = layout;
+        this.capacity = capacity;
+        setMaxRecycledViews(layout, capacity);
+    }
+
+    /** Row layout resource, also used as the adapter's view type. */
+    public int layout() {
+        return layout;
+    }
+
+    /**
+     * Inflates a pool's worth of rows for {@code parent} off the main thread. Views that need
+     * the main thread to construct make it stop early; the rest are then inflated on demand.
+     */
+    public void prefill(RecyclerView parent, RecyclerView.Adapter<?> adapter) {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.execute(() -> {
+            long startNs = System.nanoTime();
+            int count = 0;
+            try {
+                for (; count < capacity && !released; count++) {
+                    inflated.add(backgroundInflater.inflate(layout, parent, false));
+                }
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Background inflation stopped after " + count + " rows", e);
+            }
+            Log.d(TAG, "Inflated " + count + " rows in " + (System.nanoTime() - startNs) / 1_000_000 + " ms");
+            mainHandler.post(() -> park(parent, adapter));
+        });
+        executor.shutdown();
+    }
+
+    /** A pre-inflated row if one is left, else one inflated now. */
+    public View inflate(ViewGroup parent) {
+        View view = inflated.poll();
+        return view != null ? view : inflater.inflate(layout, parent, false);
+    }
+
+    public void release() {
+        released = true;
+        inflated.clear();
+        clear();
+    }
+
+    // Rows the first layout did not take become holders now, so later ones come from the pool
+    private void park(RecyclerView parent, RecyclerView.Adapter<?> adapter) {
+        while (!released && !inflated.isEmpty() && getRecycledViewCount(layout) < capacity) {
+            putRecycledView(adapter.createViewHolder(parent, layout));
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.example.vid2;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Reads the MediaStore video table on a background thread into a {@link VideoCatalog}.
+ *
+ * On a warm start the catalog cached in {@link VideoMetadataStore} is published first, and
+ * MediaStore is only walked again when its generation moved. New or changed files are only
+ * probed when MediaStore left their duration or resolution empty; the codec alone is not
+ * worth opening a file for. On a cold start the first few rows are published as soon
+ * as they are read, then growing pages while the cursor advances. Later changes are picked
+ * up by {@link #refresh}, which reads only the rows changed since the catalog on screen.
+ * Callbacks always run on the main thread.
+ */
+public class VideoScanner {
+
+    private static final String TAG = "VideoScanner";
+
+    private static final int FIRST_PAGE_SIZE = 40;
+    private static final int MAX_PAGE_SIZE = 2000;
+    private static final int PROBE_BATCH_SIZE = 200;
+
+    static final String[] PROJECTION = {
+            MediaStore.Video.Media._ID,
+            MediaStore.Video.Media.DATA,
+            MediaStore.Video.Media.DISPLAY_NAME,
+            MediaStore.Video.Media.SIZE,
+            MediaStore.Video.Media.DURATION,
+            MediaStore.Video.Media.DATE_MODIFIED,
+            MediaStore.Video.Media.WIDTH,
+            MediaStore.Video.Media.HEIGHT
+    };
+
+    public interface Callback {
+        /** A newer view of the library is available; the scan is still running. */
+        void onPage(VideoCatalog catalog);
+
+        /** The scan finished and {@code catalog} holds every row with its final metadata. */
+        void onComplete(VideoCatalog catalog);
+    }
+
+    public interface DeltaCallback {
+        /** Rows were added, changed or removed since the catalog handed to {@link #refresh}. */
+        void onDelta(VideoCatalog.Delta delta);
+    }
+
+    private final Context context;
+    private final ContentResolver resolver;
+    private final VideoMetadataStore store;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private Future<?> running;
+    private int scanToken;
+    // MediaStore generation the last scan or refresh started from; -1 where unknown (API < 30)
+    private volatile long syncedGeneration = -1;
+
+    public VideoScanner(Context context, VideoMetadataStore store) {
+        this.context = context.getApplicationContext();
+        this.resolver = this.context.getContentResolver();
+        this.store = store;
+    }
+
+    /** Starts a new scan, cancelling one that is still in flight. Call from the main thread. */
+    public void scan(Callback callback) {
+        cancel();
+        final int token = ++scanToken;
+        running = executor.submit(() -> runScan(token, callback));
+    }
+
+    /**
+     * Reads only what changed in MediaStore since {@code current} (evaluated on the scan
+     * thread): rows past the last seen generation, or modified or added since the newest row
+     * below API 30, plus the bare {@code _ID} column to spot deletions. Delivers nothing when
+     * nothing changed. A later {@link #scan} supersedes it.
+     */
+    public void refresh(Supplier<VideoCatalog> current, DeltaCallback callback) {
+        final int token = scanToken;
+        executor.execute(() -> runRefresh(token, current.get(), callback));
+    }
+
+    public void cancel() {
+        scanToken++;
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private void runScan(int token, Callback callback) {
+        Map<String, VideoMetadataStore.Entry> known;
+        try {
+            known = store.loadAll();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Metadata store unreadable, doing a cold scan", e);
+            known = new LinkedHashMap<>();
+        }
+
+        // Warm start: show the cached library right away, and stop there if MediaStore
+        // has not changed since the last complete scan
+        String stamp = currentStamp();
+        syncedGeneration = currentGeneration();
+        boolean showedCache = !known.isEmpty();
+        if (showedCache) {
+            VideoCatalog cached = VideoMetadataStore.toCatalog(known.values());
+            if (stamp != null && stamp.equals(store.getScanStamp()) && !hasUnprobed(known)) {
+                publish(token, callback, cached, true);
+                return;
+            }
+            publish(token, callback, cached, false);
+        }
+
+        Uri uri = MediaStore.Video.Media.EXTERNAL_CONTENT_URI;
+        String sortOrder = MediaStore.Video.Media.DATE_MODIFIED + " DESC";
+
+        VideoCatalog.Builder builder;
+        List<VideoMetadataStore.Entry> changed = new ArrayList<>();
+        List<VideoMetadataStore.Entry> toProbe = new ArrayList<>();
+        try (Cursor cursor = resolver.query(uri, PROJECTION, null, null, sortOrder)) {
+            if (cursor == null) {
+                publish(token, callback, VideoCatalog.EMPTY, true);
+                return;
+            }
+            builder = new VideoCatalog.Builder(cursor.getCount());
+            Columns cols = new Columns(cursor);
+
+            int nextPublish = FIRST_PAGE_SIZE;
+            while (cursor.moveToNext()) {
+                if (Thread.currentThread().isInterrupted()) return;
+
+                String path = cursor.getString(cols.data);
+                if (path == null) continue;
+                long mediaId = cursor.getLong(cols.id);
+                String name = displayName(cursor, cols, path);
+                long size = cursor.getLong(cols.size);
+                long mtime = cursor.getLong(cols.date) * 1000L;
+
+                VideoMetadataStore.Entry entry = known.remove(path);
+                if (entry == null || !entry.matches(size, mtime)) {
+                    // New or modified since we last saw it: start over from MediaStore's values
+                    entry = newEntry(cursor, cols, path, name);
+                    changed.add(entry);
+                } else if (entry.mediaId != mediaId || !name.equals(entry.name)) {
+                    entry.mediaId = mediaId;
+                    entry.name = name;
+                    changed.add(entry);
+                }
+                if (entry.needsProbe()) toProbe.add(entry);
+
+                builder.add(mediaId, path, name, size, entry.duration, mtime, entry.width, entry.height);
+
+                // With the cache on screen, partial pages would only make the list shrink
+                if (!showedCache && builder.size() == nextPublish) {
+                    publish(token, callback, builder.build(), false);
+                    nextPublish += Math.min(nextPublish, MAX_PAGE_SIZE);
+                }
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "MediaStore scan failed", e);
+            publish(token, callback, VideoCatalog.EMPTY, true);
+            return;
+        }
+
+        // Whatever is left in the cache no longer exists in MediaStore
+        store.apply(changed, known.keySet());
+        Log.d(TAG, "Scan: " + builder.size() + " videos, " + changed.size() + " changed, "
+                + known.size() + " removed, " + toProbe.size() + " to probe");
+
+        if (toProbe.isEmpty()) {
+            if (stamp != null) store.setScanStamp(stamp);
+            publish(token, callback, builder.build(), true);
+            return;
+        }
+
+        publish(token, callback, builder.build(), false);
+        if (probe(toProbe)) {
+            if (stamp != null) store.setScanStamp(stamp);
+            publish(token, callback, VideoMetadataStore.toCatalog(store.loadAll().values()), true);
+        }
+    }
+
+    private void runRefresh(int token, VideoCatalog current, DeltaCallback callback) {
+        long generation = syncedGeneration;
+        long newGeneration = currentGeneration();
+        String selection;
+        String[] args;
+        if (generation >= 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            selection = MediaStore.MediaColumns.GENERATION_MODIFIED + " > ?";
+            args = new String[]{Long.toString(generation)};
+        } else {
+            // Same-second rows are read again and dropped below if nothing about them changed
+            long newestSec = 0;
+            for (int row = 0; row < current.size(); row++) {
+                if (current.id(row) < 0) continue;
+                newestSec = Math.max(newestSec, current.dateModifiedMs(row) / 1000L);
+            }
+            String since = Long.toString(newestSec);
+            selection = MediaStore.Video.Media.DATE_MODIFIED + " >= ? OR "
+                    + MediaStore.Video.Media.DATE_ADDED + " >= ?";
+            args = new String[]{since, since};
+        }
+
+        Uri uri = MediaStore.Video.Media.EXTERNAL_CONTENT_URI;
+        VideoCatalog.Builder upserts = new VideoCatalog.Builder(16);
+        List<VideoMetadataStore.Entry> changed = new ArrayList<>();
+        List<String> removedPaths = new ArrayList<>();
+        long[] removedIds;
+        try {
+            try (Cursor cursor = resolver.query(uri, PROJECTION, selection, args,
+                    MediaStore.Video.Media.DATE_MODIFIED + " DESC")) {
+                if (cursor == null) return;
+                Columns cols = new Columns(cursor);
+                while (cursor.moveToNext()) {
+                    String path = cursor.getString(cols.data);
+                    if (path == null) continue;
+                    long mediaId = cursor.getLong(cols.id);
+                    String name = displayName(cursor, cols, path);
+                    long size = cursor.getLong(cols.size);
+                    long mtime = cursor.getLong(cols.date) * 1000L;
+                    int row = current.rowOfId(mediaId);
+                    if (row >= 0 && current.sizeBytes(row) == size && current.dateModifiedMs(row) == mtime
+                            && current.path(row).equals(path) && current.name(row).equals(name)) {
+                        continue;
+                    }
+                    VideoMetadataStore.Entry entry = newEntry(cursor, cols, path, name);
+                    // A handful of rows at most, so probing inline keeps the delta final
+                    if (entry.needsProbe()) VideoProber.probe(entry);
+                    changed.add(entry);
+                    upserts.add(mediaId, path, name, size, entry.duration, mtime, entry.width, entry.height);
+                    // A moved file keeps its _ID; its old path is gone from the store
+                    if (row >= 0 && !current.path(row).equals(path)) removedPaths.add(current.path(row));
+                }
+            }
+
+            // Deletions: one long column for the whole table instead of every row's metadata
+            long[] ids;
+            try (Cursor cursor = resolver.query(uri, new String[]{MediaStore.Video.Media._ID},
+                    null, null, null)) {
+                if (cursor == null) return;
+                ids = new long[cursor.getCount()];
+                int n = 0;
+                while (cursor.moveToNext() && n < ids.length) ids[n++] = cursor.getLong(0);
+                ids = Arrays.copyOf(ids, n);
+            }
+            Arrays.sort(ids);
+            long[] removed = new long[current.size()];
+            int removedCount = 0;
+            for (int row = 0; row < current.size(); row++) {
+                // Negative ids are files only a deep scan found; MediaStore never lists them
+                if (current.id(row) >= 0 && Arrays.binarySearch(ids, current.id(row)) < 0) {
+                    removed[removedCount++] = current.id(row);
+                    removedPaths.add(current.path(row));
+                }
+            }
+            removedIds = Arrays.copyOf(removed, removedCount);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "MediaStore refresh failed", e);
+            return;
+        }
+
+        syncedGeneration = newGeneration;
+        if (changed.isEmpty() && removedIds.length == 0) return;
+        store.apply(changed, removedPaths);
+        String stamp = currentStamp();
+        if (stamp != null) store.setScanStamp(stamp);
+
+        VideoCatalog.Delta delta = current.withChanges(upserts.build(), removedIds);
+        Log.d(TAG, "Refresh: " + changed.size() + " changed, " + removedIds.length + " removed");
+        mainHandler.post(() -> {
+            if (token == scanToken) callback.onDelta(delta);
+        });
+    }
+
+    /** Column indices of {@link #PROJECTION} in a cursor. */
+    static final class Columns {
+        final int id, data, name, size, duration, date, width, height;
+
+        Columns(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow(MediaStore.Video.Media._ID);
+            data = cursor.getColumnIndexOrThrow(MediaStore.Video.Media.DATA);
+            name = cursor.getColumnIndexOrThrow(MediaStore.Video.Media.DISPLAY_NAME);
+            size = cursor.getColumnIndexOrThrow(MediaStore.Video.Media.SIZE);
+            duration = cursor.getColumnIndexOrThrow(MediaStore.Video.Media.DURATION);
+            date = cursor.getColumnIndexOrThrow(MediaStore.Video.Media.DATE_MODIFIED);
+            width = cursor.getColumnIndexOrThrow(MediaStore.Video.Media.WIDTH);
+            height = cursor.getColumnIndexOrThrow(MediaStore.Video.Media.HEIGHT);
+        }
+    }
+
+    static String displayName(Cursor cursor, Columns cols, String path) {
+        String name = cursor.getString(cols.name);
+        return name == null || name.isEmpty() ? new File(path).getName() : name;
+    }
+
+    // Metadata store entry from MediaStore's values alone
+    private static VideoMetadataStore.Entry newEntry(Cursor cursor, Columns cols, String path, String name) {
+        VideoMetadataStore.Entry entry = new VideoMetadataStore.Entry();
+        entry.path = path;
+        entry.size = cursor.getLong(cols.size);
+        entry.mtime = cursor.getLong(cols.date) * 1000L;
+        entry.duration = cursor.getLong(cols.duration);
+        entry.width = cursor.getInt(cols.width);
+        entry.height = cursor.getInt(cols.height);
+        entry.thumbKey = VideoMetadataStore.thumbnailKey(path, entry.size, entry.mtime);
+        entry.mediaId = cursor.getLong(cols.id);
+        entry.name = name;
+        return entry;
+    }
+
+    /**
+     * Probes entries MediaStore could not fully describe, persisting progress in batches so
+     * an interrupted run resumes where it stopped. Returns false when interrupted.
+     */
+    private boolean probe(List<VideoMetadataStore.Entry> entries) {
+        List<VideoMetadataStore.Entry> batch = new ArrayList<>(PROBE_BATCH_SIZE);
+        for (VideoMetadataStore.Entry entry : entries) {
+            if (Thread.currentThread().isInterrupted()) {
+                store.apply(batch, Collections.emptyList());
+                return false;
+            }
+            VideoProber.probe(entry);
+            batch.add(entry);
+            if (batch.size() == PROBE_BATCH_SIZE) {
+                store.apply(batch, Collections.emptyList());
+                batch.clear();
+            }
+        }
+        store.apply(batch, Collections.emptyList());
+        return true;
+    }
+
+    private static boolean hasUnprobed(Map<String, VideoMetadataStore.Entry> entries) {
+        for (VideoMetadataStore.Entry e : entries.values()) {
+            if (e.needsProbe()) return true;
+        }
+        return false;
+    }
+
+    /** MediaStore version + generation, or null where the platform cannot tell us (API < 30). */
+    private String currentStamp() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) return null;
+        try {
+            return MediaStore.getVersion(context, MediaStore.VOLUME_EXTERNAL) + ":"
+                    + MediaStore.getGeneration(context, MediaStore.VOLUME_EXTERNAL);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private long currentGeneration() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) return -1;
+        try {
+            return MediaStore.getGeneration(context, MediaStore.VOLUME_EXTERNAL);
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private void publish(int token, Callback callback, VideoCatalog catalog, boolean complete) {
+        mainHandler.post(() -> {
+            if (token != scanToken) return;
+            if (complete) {
+                running = null;
+                callback.onComplete(catalog);
+            } else {
+                callback.onPage(catalog);
+            }
+        });
+    }
+}
@@ -0,0 +1,375 @@
+package com.example.vid2;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Substring search over a {@link VideoCatalog}.
+ *
+ * Names and parent folder names are normalized once (lower case, accents stripped,
+ * {@code _ . -} treated as spaces) and every distinct trigram is mapped to the ascending
+ * list of rows containing it. A query of three or more characters only verifies the rows
+ * found in all of its trigrams' posting lists; a query that extends the previous one only
+ * re-checks the previous matches. A library change arrives as a {@link VideoCatalog.Delta}:
+ * existing rows are renumbered and only new rows are normalized and indexed. Not
+ * thread-safe: build, extend and search from one thread.
+ */
+public final class VideoSearchIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    private static final int SCORE_EXACT = 5;
+    private static final int SCORE_PREFIX = 4;
+    private static final int SCORE_WORD = 3;
+    private static final int SCORE_SUBSTRING = 2;
+    private static final int SCORE_FOLDER = 1;
+
+    /** Rows matching a query, best match first. */
+    public static final class Result {
+        public final String query;
+        public final boolean matchFolders;
+        public final int[] rows;
+        final VideoCatalog catalog;
+        final String normalizedQuery;
+
+        Result(VideoSearchIndex index, String query, String normalizedQuery, boolean matchFolders, int[] rows) {
+            this.catalog = index.catalog;
+            this.query = query;
+            this.normalizedQuery = normalizedQuery;
+            this.matchFolders = matchFolders;
+            this.rows = rows;
+        }
+
+        public VideoCatalog catalog() {
+            return catalog;
+        }
+    }
+
+    private VideoCatalog catalog;
+    private int size;
+    private String[] names;
+    private String[] folders;
+    private final TrigramTable nameTrigrams = new TrigramTable();
+    private final TrigramTable folderTrigrams = new TrigramTable();
+
+    private VideoSearchIndex() {}
+
+    public static VideoSearchIndex build(VideoCatalog catalog) {
+        VideoSearchIndex index = new VideoSearchIndex();
+        index.names = new String[Math.max(catalog.size(), 16)];
+        index.folders = new String[index.names.length];
+        index.catalog = catalog;
+        index.addRows(catalog, 0);
+        return index;
+    }
+
+    /**
+     * Brings the index up to date with {@code newer}. When {@code newer} only appends rows to
+     * the indexed catalog (a scan page), the new rows are indexed in place; otherwise a fresh
+     * index is built. Returns the index to use from now on.
+     */
+    public VideoSearchIndex update(VideoCatalog newer) {
+        if (newer == catalog) return this;
+        if (!extendsCatalog(newer)) return build(newer);
+        int from = size;
+        if (newer.size() > names.length) {
+            int capacity = Math.max(newer.size(), names.length + (names.length >> 1));
+            names = Arrays.copyOf(names, capacity);
+            folders = Arrays.copyOf(folders, capacity);
+        }
+        catalog = newer;
+        addRows(newer, from);
+        return this;
+    }
+
+    /**
+     * Moves the index to {@code delta.catalog} by remapping the rows it already has and
+     * indexing only the inserted ones; falls back to {@link #update} if the index is not on
+     * {@code delta.previous}. Returns the index to use from now on.
+     */
+    public VideoSearchIndex apply(VideoCatalog.Delta delta) {
+        if (delta.previous != catalog) return update(delta.catalog);
+        VideoCatalog newer = delta.catalog;
+        String[] newNames = new String[Math.max(newer.size(), 16)];
+        String[] newFolders = new String[newNames.length];
+        for (int row = 0; row < size; row++) {
+            int moved = delta.rowMap[row];
+            if (moved < 0) continue;
+            newNames[moved] = names[row];
+            newFolders[moved] = folders[row];
+        }
+        names = newNames;
+        folders = newFolders;
+        nameTrigrams.remap(delta.rowMap);
+        folderTrigrams.remap(delta.rowMap);
+        catalog = newer;
+        for (int row : delta.insertedRows) indexRow(newer, row, true);
+        size = newer.size();
+        return this;
+    }
+
+    /**
+     * {@code previous}, taken before {@code delta}, carried over to this index (already moved
+     * by {@link #apply}): removed rows drop out and only the inserted rows are scored.
+     */
+    public Result remap(Result previous, VideoCatalog.Delta delta) {
+        if (previous.normalizedQuery.isEmpty()) {
+            return search(previous.query, previous.matchFolders, null, () -> false);
+        }
+        String q = previous.normalizedQuery;
+        long[] keys = new long[previous.rows.length + delta.insertedRows.length];
+        int matches = 0;
+        for (int row : previous.rows) {
+            int moved = delta.rowMap[row];
+            if (moved >= 0) keys[matches++] = key(moved, q, previous.matchFolders);
+        }
+        for (int row : delta.insertedRows) {
+            long key = key(row, q, previous.matchFolders);
+            if (key >= 0) keys[matches++] = key;
+        }
+        Arrays.sort(keys, 0, matches);
+        int[] rows = new int[matches];
+        for (int i = 0; i < matches; i++) rows[i] = (int) keys[i];
+        return new Result(this, previous.query, q, previous.matchFolders, rows);
+    }
+
+    // Sort key of a row for a query, or -1 if it does not match
+    private long key(int row, String q, boolean matchFolders) {
+        int score = score(names[row], q);
+        if (score == 0 && matchFolders && folders[row].contains(q)) score = SCORE_FOLDER;
+        return score == 0 ? -1 : ((long) (SCORE_EXACT - score) << 32) | row;
+    }
+
+    public VideoCatalog catalog() {
+        return catalog;
+    }
+
+    /**
+     * Runs {@code query} against the index. When {@code previous} came from this index with the
+     * same folder option and its query is a prefix of this one, only its rows are re-checked.
+     * Returns null if {@code cancelled} reports true part-way through.
+     */
+    public Result search(String query, boolean matchFolders, Result previous, BooleanSupplier cancelled) {
+        String q = normalize(query);
+        if (q.isEmpty()) {
+            int[] all = new int[size];
+            for (int i = 0; i < size; i++) all[i] = i;
+            return new Result(this, query, q, matchFolders, all);
+        }
+
+        int[] candidates;
+        int candidateCount;
+        if (previous != null && previous.catalog == catalog && previous.matchFolders == matchFolders
+                && !previous.normalizedQuery.isEmpty() && q.startsWith(previous.normalizedQuery)) {
+            candidates = previous.rows;
+            candidateCount = candidates.length;
+        } else if (q.length() >= 3) {
+            candidates = trigramCandidates(nameTrigrams, q);
+            if (matchFolders) candidates = union(candidates, trigramCandidates(folderTrigrams, q));
+            candidateCount = candidates.length;
+        } else {
+            candidates = null;
+            candidateCount = size;
+        }
+
+        // Score every candidate; key = (inverted score, row) so a plain sort ranks them
+        long[] keys = new long[Math.min(candidateCount, 1024)];
+        int matches = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            if ((i % CANCEL_CHECK_INTERVAL) == 0 && cancelled.getAsBoolean()) return null;
+            long key = key(candidates != null ? candidates[i] : i, q, matchFolders);
+            if (key < 0) continue;
+            if (matches == keys.length) keys = Arrays.copyOf(keys, keys.length * 2);
+            keys[matches++] = key;
+        }
+        Arrays.sort(keys, 0, matches);
+
+        int[] rows = new int[matches];
+        for (int i = 0; i < matches; i++) rows[i] = (int) keys[i];
+        return new Result(this, query, q, matchFolders, rows);
+    }
+
+    /** Lower-cases, strips accents and folds the usual file name separators to spaces. */
+    public static String normalize(String text) {
+        String s = text.toLowerCase(Locale.ROOT);
+        boolean ascii = true;
+        for (int i = 0; i < s.length() && ascii; i++) ascii = s.charAt(i) < 0x80;
+        if (!ascii) s = MARKS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("");
+        return s.replace('_', ' ').replace('.', ' ').replace('-', ' ').trim();
+    }
+
+    private static int score(String name, String q) {
+        int at = name.indexOf(q);
+        if (at < 0) return 0;
+        if (at == 0) {
+            // "clip" vs "clip mp4": the whole name except its extension
+            int end = q.length();
+            if (end == name.length() || name.lastIndexOf(' ') == end) return SCORE_EXACT;
+            return SCORE_PREFIX;
+        }
+        do {
+            if (name.charAt(at - 1) == ' ') return SCORE_WORD;
+            at = name.indexOf(q, at + 1);
+        } while (at > 0);
+        return SCORE_SUBSTRING;
+    }
+
+    private boolean extendsCatalog(VideoCatalog newer) {
+        if (newer.size() < size) return false;
+        for (int row = 0; row < size; row++) {
+            if (newer.id(row) != catalog.id(row)) return false;
+        }
+        return true;
+    }
+
+    private void addRows(VideoCatalog source, int from) {
+        for (int row = from; row < source.size(); row++) indexRow(source, row, false);
+        size = source.size();
+    }
+
+    // Rows past the last indexed one are appended to the posting lists, others inserted in order
+    private void indexRow(VideoCatalog source, int row, boolean insert) {
+        String name = normalize(source.name(row));
+        String path = source.path(row);
+        int slash = path.lastIndexOf('/');
+        int parentSlash = slash > 0 ? path.lastIndexOf('/', slash - 1) : -1;
+        String folder = slash > 0 ? normalize(path.substring(parentSlash + 1, slash)) : "";
+        names[row] = name;
+        folders[row] = folder;
+        nameTrigrams.addAll(name, row, insert);
+        folderTrigrams.addAll(folder, row, insert);
+    }
+
+    private static int[] trigramCandidates(TrigramTable table, String q) {
+        int[] result = null;
+        for (int i = 0; i + 3 <= q.length(); i++) {
+            int slot = table.find(trigram(q, i));
+            if (slot < 0) return new int[0];
+            int[] postings = table.postings[slot];
+            int count = table.counts[slot];
+            result = result == null ? Arrays.copyOf(postings, count) : intersect(result, postings, count);
+            if (result.length == 0) break;
+        }
+        return result;
+    }
+
+    private static int[] intersect(int[] a, int[] b, int bCount) {
+        int[] out = new int[Math.min(a.length, bCount)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < bCount) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) out[n++] = a[i++];
+            else if (i == a.length || b[j] < a[i]) out[n++] = b[j++];
+            else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    /** Open-addressing map from packed trigram to an ascending, duplicate-free row list. */
+    private static final class TrigramTable {
+        // Stored keys carry this bit so that 0 can mean "empty slot"
+        private static final long PRESENT = 1L << 62;
+
+        long[] keys = new long[1024];
+        int[][] postings = new int[1024][];
+        int[] counts = new int[1024];
+        int used;
+
+        void addAll(String text, int row, boolean insert) {
+            for (int i = 0; i + 3 <= text.length(); i++) add(trigram(text, i), row, insert);
+        }
+
+        void add(long trigram, int row, boolean insert) {
+            if (used * 2 >= keys.length) rehash();
+            int slot = slotFor(keys, trigram | PRESENT);
+            if (keys[slot] == 0) {
+                keys[slot] = trigram | PRESENT;
+                postings[slot] = new int[4];
+                used++;
+            }
+            int[] list = postings[slot];
+            int count = counts[slot];
+            int at = count;
+            if (insert) {
+                int found = Arrays.binarySearch(list, 0, count, row);
+                if (found >= 0) return;
+                at = -found - 1;
+            } else if (count > 0 && list[count - 1] == row) {
+                return;
+            }
+            if (count == list.length) postings[slot] = list = Arrays.copyOf(list, count * 2);
+            System.arraycopy(list, at, list, at + 1, count - at);
+            list[at] = row;
+            counts[slot] = count + 1;
+        }
+
+        /** Renumbers every posting through {@code rowMap}, dropping rows mapped to -1. */
+        void remap(int[] rowMap) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] == 0) continue;
+                int[] list = postings[slot];
+                int count = counts[slot];
+                int kept = 0;
+                // Surviving rows keep their relative order, so the lists stay ascending
+                for (int i = 0; i < count; i++) {
+                    int moved = rowMap[list[i]];
+                    if (moved >= 0) list[kept++] = moved;
+                }
+                counts[slot] = kept;
+            }
+        }
+
+        int find(long trigram) {
+            int slot = slotFor(keys, trigram | PRESENT);
+            return keys[slot] == 0 ? -1 : slot;
+        }
+
+        private static int slotFor(long[] keys, long key) {
+            int mask = keys.length - 1;
+            int slot = (int) (key ^ (key >>> 29) ^ (key >>> 17)) * 0x9E3779B9 >>> 7 & mask;
+            while (keys[slot] != 0 && keys[slot] != key) slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[][] oldPostings = postings;
+            int[] oldCounts = counts;
+            keys = new long[oldKeys.length * 2];
+            postings = new int[keys.length][];
+            counts = new int[keys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == 0) continue;
+                int slot = slotFor(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                postings[slot] = oldPostings[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.vid2;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link VideoSearchIndex} queries on a background thread, then puts the matches in the
+ * chosen sort order and folder.
+ *
+ * Keystrokes are debounced, and every new query or catalog supersedes whatever is still
+ * queued or running, so only the latest result ever reaches the listener. The index is
+ * updated on the same thread whenever the catalog changes. Changing the order or folder
+ * re-arranges the last result through the catalog's cached {@link VideoSort} without
+ * searching again. Call everything from the main thread; results are delivered there too.
+ */
+public class VideoSearcher {
+
+    private static final long DEBOUNCE_MS = 150;
+
+    public interface Listener {
+        void onResults(VideoCatalog catalog, int[] rows);
+    }
+
+    public interface FoldersCallback {
+        void onFolders(VideoSort.Folders folders);
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger generation = new AtomicInteger();
+    private final Listener listener;
+
+    private volatile String query = "";
+    private volatile boolean matchFolders = true;
+    // Null keeps the search order: best match first, or newest first without a query
+    private volatile VideoSort.Key sortKey;
+    private volatile boolean descending;
+    private volatile String folder;
+    private final Runnable debounced = this::submit;
+
+    // Only touched on the executor thread
+    private VideoSearchIndex index;
+    private VideoSearchIndex.Result lastResult;
+    private VideoSort sort = new VideoSort(VideoCatalog.EMPTY);
+
+    public VideoSearcher(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Re-indexes for a new catalog and re-runs the current query against it right away. */
+    public void setCatalog(VideoCatalog catalog) {
+        mainHandler.removeCallbacks(debounced);
+        int token = generation.incrementAndGet();
+        executor.execute(() -> {
+            index = index == null ? VideoSearchIndex.build(catalog) : index.update(catalog);
+            run(token);
+        });
+    }
+
+    /**
+     * Applies a library change to the index and carries the current results over to it,
+     * scoring only the inserted rows; the full query only re-runs if none are available.
+     */
+    public void applyDelta(VideoCatalog.Delta delta) {
+        mainHandler.removeCallbacks(debounced);
+        int token = generation.incrementAndGet();
+        executor.execute(() -> {
+            if (index == null) {
+                index = VideoSearchIndex.build(delta.catalog);
+            } else {
+                index = index.apply(delta);
+            }
+            VideoSearchIndex.Result previous = lastResult;
+            if (previous == null || previous.catalog() != delta.previous || !previous.query.equals(query)
+                    || previous.matchFolders != matchFolders || index.catalog() != delta.catalog) {
+                run(token);
+                return;
+            }
+            VideoSearchIndex.Result result = index.remap(previous, delta);
+            lastResult = result;
+            deliver(token, result);
+        });
+    }
+
+    /** Orders the results by {@code key}, or in search order for null. */
+    public void setOrder(VideoSort.Key key, boolean descending) {
+        this.sortKey = key;
+        this.descending = descending;
+        rearrange();
+    }
+
+    /** Shows only the videos directly inside {@code path}; null shows every folder. */
+    public void setFolder(String path) {
+        this.folder = path;
+        rearrange();
+    }
+
+    public VideoSort.Key getSortKey() {
+        return sortKey;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public String getFolder() {
+        return folder;
+    }
+
+    /** Delivers the folders of the current catalog on the main thread. */
+    public void loadFolders(FoldersCallback callback) {
+        executor.execute(() -> {
+            if (index == null) return;
+            VideoSort.Folders folders = sortFor(index.catalog()).folders();
+            mainHandler.post(() -> callback.onFolders(folders));
+        });
+    }
+
+    /** Searches for {@code text} once typing pauses. */
+    public void search(String text) {
+        query = text;
+        generation.incrementAndGet();
+        mainHandler.removeCallbacks(debounced);
+        mainHandler.postDelayed(debounced, text.isEmpty() ? 0 : DEBOUNCE_MS);
+    }
+
+    public void setMatchFolders(boolean matchFolders) {
+        if (this.matchFolders == matchFolders) return;
+        this.matchFolders = matchFolders;
+        search(query);
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void shutdown() {
+        generation.incrementAndGet();
+        mainHandler.removeCallbacks(debounced);
+        executor.shutdownNow();
+    }
+
+    private void submit() {
+        int token = generation.incrementAndGet();
+        executor.execute(() -> run(token));
+    }
+
+    private void run(int token) {
+        if (index == null || token != generation.get()) return;
+        String text = query;
+        boolean folders = matchFolders;
+        VideoSearchIndex.Result result = index.search(text, folders, lastResult,
+                () -> token != generation.get());
+        if (result == null) return;
+        lastResult = result;
+        deliver(token, result);
+    }
+
+    private void rearrange() {
+        mainHandler.removeCallbacks(debounced);
+        int token = generation.incrementAndGet();
+        executor.execute(() -> {
+            VideoSearchIndex.Result result = lastResult;
+            // A query still being typed, or a different one, has to run first
+            if (result == null || !result.query.equals(query) || result.matchFolders != matchFolders) {
+                run(token);
+            } else if (token == generation.get()) {
+                deliver(token, result);
+            }
+        });
+    }
+
+    private void deliver(int token, VideoSearchIndex.Result result) {
+        int[] rows = arrange(result);
+        mainHandler.post(() -> {
+            if (token == generation.get()) listener.onResults(result.catalog(), rows);
+        });
+    }
+
+    private int[] arrange(VideoSearchIndex.Result result) {
+        VideoSort.Key key = sortKey;
+        String path = folder;
+        if (key == null && path == null) return result.rows;
+        VideoSort sort = sortFor(result.catalog());
+        int[] rows = result.rows;
+        if (path != null) {
+            VideoSort.Folders folders = sort.folders();
+            int index = folders.indexOf(path);
+            rows = index < 0 ? new int[0] : folders.filter(rows, index);
+        }
+        return key == null ? rows : sort.sort(rows, key, descending);
+    }
+
+    private VideoSort sortFor(VideoCatalog catalog) {
+        if (sort.catalog() != catalog) sort = new VideoSort(catalog);
+        return sort;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.vid2;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of catalog rows as handed to the adapter. Entries are materialized from the
+ * catalog on demand, so a snapshot of 50k rows is just the row array until something asks.
+ */
+public final class VideoSnapshot extends AbstractList<VideoEntry> implements RandomAccess {
+
+    public static final VideoSnapshot EMPTY = new VideoSnapshot(VideoCatalog.EMPTY, new int[0]);
+
+    private final VideoCatalog catalog;
+    private final int[] rows;
+
+    public VideoSnapshot(VideoCatalog catalog, int[] rows) {
+        this.catalog = catalog;
+        this.rows = rows;
+    }
+
+    public VideoCatalog catalog() {
+        return catalog;
+    }
+
+    /** Catalog row shown at {@code position}. */
+    public int row(int position) {
+        return rows[position];
+    }
+
+    /**
+     * Whether this list is {@code previous} with at most {@code maxEdits} rows added, removed or
+     * out of their old order, matched by id. Linear in both sizes, so it can tell a library
+     * update, worth diffing row by row, from a re-sort or a new filter, which is cheaper to swap
+     * in whole.
+     */
+    public boolean isSmallEditOf(VideoSnapshot previous, int maxEdits) {
+        if (Math.abs(rows.length - previous.rows.length) > maxEdits) return false;
+        boolean sameCatalog = previous.catalog == catalog;
+        boolean[] shown = new boolean[catalog.size()];
+        for (int row : rows) shown[row] = true;
+
+        // Rows shown before and still shown, in their old order, as rows of this catalog
+        int[] kept = new int[Math.min(rows.length, previous.rows.length)];
+        boolean[] wasShown = new boolean[catalog.size()];
+        int keptCount = 0;
+        int edits = 0;
+        for (int old : previous.rows) {
+            int row = sameCatalog ? old : catalog.rowOfId(previous.catalog.id(old));
+            if (row < 0 || !shown[row]) {
+                if (++edits > maxEdits) return false;
+            } else if (keptCount < kept.length) {
+                kept[keptCount++] = row;
+                wasShown[row] = true;
+            }
+        }
+        // Added rows, then rows that kept their place in neither order
+        int k = 0;
+        for (int row : rows) {
+            if (!wasShown[row]) {
+                edits++;
+            } else if (k >= keptCount || kept[k++] != row) {
+                edits++;
+            }
+            if (edits > maxEdits) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public VideoEntry get(int position) {
+        return catalog.entry(rows[position]);
+    }
+
+    @Override
+    public int size() {
+        return rows.length;
+    }
+}
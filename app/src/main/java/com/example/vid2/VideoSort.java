@@ -0,0 +1,272 @@
+package com.example.vid2;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sort orders and folder groups of one {@link VideoCatalog}.
+ *
+ * Each key is first reduced to a primitive {@code long} per row (names to their rank in a
+ * case-insensitive order), and an order is a stable merge sort of row indices over that
+ * array, so no row is boxed and equal keys keep the catalog's newest-first order. Orders and
+ * their inverse, the position of every row, are computed on first use and cached, so
+ * switching back to an order is free and a filtered row set is put in order through the
+ * positions instead of being compared again. Thread-safe; meant to be used off the main
+ * thread.
+ */
+public final class VideoSort {
+
+    public enum Key { NAME, SIZE, DURATION, DATE, RESOLUTION }
+
+    private static final int KEYS = Key.values().length;
+
+    private final VideoCatalog catalog;
+    private final long[][] keys = new long[KEYS][];
+    // Indexed by key * 2 + (descending ? 1 : 0)
+    private final int[][] orders = new int[KEYS * 2][];
+    private final int[][] positions = new int[KEYS * 2][];
+    private Folders folders;
+
+    public VideoSort(VideoCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    public VideoCatalog catalog() {
+        return catalog;
+    }
+
+    /** Every row of the catalog in the given order. Shared; do not modify. */
+    public synchronized int[] order(Key key, boolean descending) {
+        int slot = key.ordinal() * 2 + (descending ? 1 : 0);
+        if (orders[slot] == null) {
+            long[] values = keys(key);
+            int n = catalog.size();
+            int[] rows = new int[n];
+            for (int i = 0; i < n; i++) rows[i] = i;
+            sortRows(rows, values, descending);
+            int[] position = new int[n];
+            for (int i = 0; i < n; i++) position[rows[i]] = i;
+            orders[slot] = rows;
+            positions[slot] = position;
+        }
+        return orders[slot];
+    }
+
+    /**
+     * {@code rows} (each at most once) in the given order. Uses the cached full order: small
+     * sets sort their positions, large ones are picked out of the order in one pass.
+     */
+    public int[] sort(int[] rows, Key key, boolean descending) {
+        int[] order = order(key, descending);
+        int[] position;
+        synchronized (this) {
+            position = positions[key.ordinal() * 2 + (descending ? 1 : 0)];
+        }
+        int n = order.length;
+        if (rows.length == n) return order.clone();
+        int[] sorted = new int[rows.length];
+        if (rows.length < n / 16) {
+            for (int i = 0; i < rows.length; i++) sorted[i] = position[rows[i]];
+            Arrays.sort(sorted);
+            for (int i = 0; i < sorted.length; i++) sorted[i] = order[sorted[i]];
+        } else {
+            boolean[] member = new boolean[n];
+            for (int row : rows) member[position[row]] = true;
+            int count = 0;
+            for (int i = 0; i < n; i++) {
+                if (member[i]) sorted[count++] = order[i];
+            }
+        }
+        return sorted;
+    }
+
+    /** The catalog grouped by containing folder; built on first use. */
+    public synchronized Folders folders() {
+        if (folders == null) folders = new Folders(catalog);
+        return folders;
+    }
+
+    private long[] keys(Key key) {
+        long[] values = keys[key.ordinal()];
+        if (values != null) return values;
+        int n = catalog.size();
+        values = new long[n];
+        switch (key) {
+            case NAME:
+                // Strings are compared once, here; the orders then only compare ranks
+                int[] rows = new int[n];
+                for (int i = 0; i < n; i++) rows[i] = i;
+                mergeSort(rows, new int[n], 0, n,
+                        (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(catalog.name(a), catalog.name(b)));
+                for (int i = 0, rank = -1; i < n; i++) {
+                    if (i == 0 || String.CASE_INSENSITIVE_ORDER.compare(catalog.name(rows[i]), catalog.name(rows[i - 1])) != 0) rank++;
+                    values[rows[i]] = rank;
+                }
+                break;
+            case SIZE:
+                for (int row = 0; row < n; row++) values[row] = catalog.sizeBytes(row);
+                break;
+            case DURATION:
+                for (int row = 0; row < n; row++) values[row] = catalog.durationMs(row);
+                break;
+            case DATE:
+                for (int row = 0; row < n; row++) values[row] = catalog.dateModifiedMs(row);
+                break;
+            case RESOLUTION:
+                for (int row = 0; row < n; row++) values[row] = (long) catalog.width(row) * catalog.height(row);
+                break;
+        }
+        keys[key.ordinal()] = values;
+        return values;
+    }
+
+    private static void sortRows(int[] rows, long[] values, boolean descending) {
+        RowComparator comparator = descending
+                ? (a, b) -> Long.compare(values[b], values[a])
+                : (a, b) -> Long.compare(values[a], values[b]);
+        mergeSort(rows, new int[rows.length], 0, rows.length, comparator);
+    }
+
+    interface RowComparator {
+        int compare(int a, int b);
+    }
+
+    /**
+     * Stable sort of {@code rows[from, to)} without boxing, for {@link DuplicateFinder} too.
+     * {@code scratch} must be at least as long as {@code rows}.
+     */
+    static void sortRows(int[] rows, int[] scratch, int from, int to, RowComparator comparator) {
+        mergeSort(rows, scratch, from, to, comparator);
+    }
+
+    // Stable top-down merge sort of int rows; runs already in order cost one comparison
+    private static void mergeSort(int[] rows, int[] scratch, int from, int to, RowComparator comparator) {
+        if (to - from < 16) {
+            for (int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(rows[j], row) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(rows, scratch, from, mid, comparator);
+        mergeSort(rows, scratch, mid, to, comparator);
+        if (comparator.compare(rows[mid - 1], rows[mid]) <= 0) return;
+        System.arraycopy(rows, from, scratch, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && comparator.compare(scratch[left], scratch[right]) <= 0)) {
+                rows[i] = scratch[left++];
+            } else {
+                rows[i] = scratch[right++];
+            }
+        }
+    }
+
+    /** Folders holding videos, by name, with their video counts and total sizes. */
+    public static final class Folders {
+        private final String[] paths;
+        private final int[] counts;
+        private final long[] totalBytes;
+        // Folder index of every catalog row
+        private final int[] folderOf;
+
+        Folders(VideoCatalog catalog) {
+            int n = catalog.size();
+            Map<String, Integer> indexOf = new HashMap<>();
+            String[] found = new String[16];
+            int[] rowFolder = new int[n];
+            for (int row = 0; row < n; row++) {
+                String folder = parent(catalog.path(row));
+                Integer index = indexOf.get(folder);
+                if (index == null) {
+                    index = indexOf.size();
+                    indexOf.put(folder, index);
+                    if (index == found.length) found = Arrays.copyOf(found, index * 2);
+                    found[index] = folder;
+                }
+                rowFolder[row] = index;
+            }
+
+            // Few folders, so boxing their indices for the name sort is fine
+            int count = indexOf.size();
+            String[] unsorted = found;
+            Integer[] byName = new Integer[count];
+            for (int i = 0; i < count; i++) byName[i] = i;
+            Arrays.sort(byName, (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(
+                    displayName(unsorted[a]), displayName(unsorted[b])));
+            int[] renumber = new int[count];
+            paths = new String[count];
+            for (int i = 0; i < count; i++) {
+                renumber[byName[i]] = i;
+                paths[i] = unsorted[byName[i]];
+            }
+
+            counts = new int[count];
+            totalBytes = new long[count];
+            folderOf = new int[n];
+            for (int row = 0; row < n; row++) {
+                int folder = renumber[rowFolder[row]];
+                folderOf[row] = folder;
+                counts[folder]++;
+                totalBytes[folder] += catalog.sizeBytes(row);
+            }
+        }
+
+        public int size() {
+            return paths.length;
+        }
+
+        public String path(int folder) {
+            return paths[folder];
+        }
+
+        /** Last path segment, e.g. "Camera" for /storage/emulated/0/DCIM/Camera. */
+        public String name(int folder) {
+            return displayName(paths[folder]);
+        }
+
+        public int count(int folder) {
+            return counts[folder];
+        }
+
+        public long totalBytes(int folder) {
+            return totalBytes[folder];
+        }
+
+        /** Index of the folder with this path, or -1. */
+        public int indexOf(String path) {
+            for (int i = 0; i < paths.length; i++) {
+                if (paths[i].equals(path)) return i;
+            }
+            return -1;
+        }
+
+        /** The rows of {@code rows} inside {@code folder}, in the same order. */
+        public int[] filter(int[] rows, int folder) {
+            int[] kept = new int[Math.min(rows.length, counts[folder])];
+            int count = 0;
+            for (int row : rows) {
+                if (folderOf[row] == folder) kept[count++] = row;
+            }
+            return count == kept.length ? kept : Arrays.copyOf(kept, count);
+        }
+
+        private static String parent(String path) {
+            int slash = path.lastIndexOf('/');
+            return slash > 0 ? path.substring(0, slash) : "/";
+        }
+
+        private static String displayName(String folder) {
+            int slash = folder.lastIndexOf('/');
+            return slash >= 0 && slash < folder.length() - 1 ? folder.substring(slash + 1) : folder;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.example.vid2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import fi.iki.elonen.NanoHTTPD;
+
+/**
+ * LAN streaming server for the video catalog: {@code GET /videos/<id>} serves the file with
+ * the MediaStore {@code _ID} {@code id}, honouring single {@code Range} requests with
+ * {@code 206 Partial Content}, and {@code GET /catalog} lists the library
+ * (see {@link CatalogEndpoint}).
+ *
+ * File bodies go from the {@link FileChannel} straight to the socket channel with
+ * {@code transferTo} (sendfile where the platform has it) instead of NanoHTTPD's buffered
+ * stream copy. Connections are served by a bounded worker pool; HTTP/1.1 keep-alive is
+ * honoured while no connection waits for a worker, and an idle connection gives its worker
+ * back after the socket read timeout.
+ */
+public class VideoStreamServer extends NanoHTTPD {
+
+    public static final String VIDEO_PATH = "/videos/";
+
+    private static final int WORKERS = 8;
+    private static final int BACKLOG = 32;
+    private static final int IDLE_TIMEOUT_MS = 5_000;
+
+    // Socket channel of the connection the current worker is serving
+    private static final ThreadLocal<WritableByteChannel> CLIENT_CHANNEL = new ThreadLocal<>();
+
+    private final Supplier<VideoCatalog> catalog;
+    private final BoundedRunner runner = new BoundedRunner(WORKERS, BACKLOG);
+    private final CatalogEndpoint catalogEndpoint = new CatalogEndpoint();
+
+    /** {@code port} 0 picks a free port; see {@link #getListeningPort()}. */
+    public VideoStreamServer(int port, Supplier<VideoCatalog> catalog) {
+        super(port);
+        this.catalog = catalog;
+        // Sockets accepted from a channel expose getChannel(), which transferTo needs
+        setServerSocketFactory(() -> ServerSocketChannel.open().socket());
+        setAsyncRunner(runner);
+    }
+
+    public void start() throws IOException {
+        start(IDLE_TIMEOUT_MS, true);
+    }
+
+    @Override
+    protected ClientHandler createClientHandler(Socket socket, InputStream inputStream) {
+        return new ClientHandler(inputStream, socket) {
+            @Override
+            public void run() {
+                CLIENT_CHANNEL.set(socket.getChannel());
+                try {
+                    super.run();
+                } finally {
+                    CLIENT_CHANNEL.remove();
+                }
+            }
+        };
+    }
+
+    @Override
+    public Response serve(IHTTPSession session) {
+        Response response = route(session);
+        if (runner.hasBacklog()) {
+            // Hand the worker to a waiting connection instead of idling on this one
+            response.closeConnection(true);
+            response.addHeader("Connection", "close");
+        }
+        return response;
+    }
+
+    protected Response route(IHTTPSession session) {
+        String uri = session.getUri();
+        if (uri.startsWith(VIDEO_PATH)) return serveVideo(session, uri.substring(VIDEO_PATH.length()));
+        if (uri.equals(CatalogEndpoint.PATH)) {
+            if (session.getMethod() != Method.GET && session.getMethod() != Method.HEAD) {
+                return error(Response.Status.METHOD_NOT_ALLOWED, "GET or HEAD only");
+            }
+            return catalogEndpoint.serve(session, catalog.get());
+        }
+        return error(Response.Status.NOT_FOUND, "Not found");
+    }
+
+    private Response serveVideo(IHTTPSession session, String idText) {
+        if (session.getMethod() != Method.GET && session.getMethod() != Method.HEAD) {
+            return error(Response.Status.METHOD_NOT_ALLOWED, "GET or HEAD only");
+        }
+        long id;
+        try {
+            id = Long.parseLong(idText);
+        } catch (NumberFormatException e) {
+            return error(Response.Status.NOT_FOUND, "Unknown video");
+        }
+        VideoCatalog videos = catalog.get();
+        int row = videos.rowOfId(id);
+        if (row < 0) return error(Response.Status.NOT_FOUND, "Unknown video");
+
+        File file = new File(videos.path(row));
+        if (!file.isFile()) return error(Response.Status.NOT_FOUND, "File is gone");
+        long length = file.length();
+        String mime = getMimeTypeForFile(file.getName());
+
+        long[] range = parseRange(session.getHeaders().get("range"), length);
+        if (range == null) {
+            return new FileResponse(Response.Status.OK, mime, file, 0, length, length);
+        }
+        if (range[0] >= length) {
+            Response response = error(Response.Status.RANGE_NOT_SATISFIABLE, "Range not satisfiable");
+            response.addHeader("Content-Range", "bytes */" + length);
+            return response;
+        }
+        return new FileResponse(Response.Status.PARTIAL_CONTENT, mime, file,
+                range[0], range[1] - range[0] + 1, length);
+    }
+
+    /**
+     * {@code {first, last}} (inclusive) of a single byte range, clamped to the file, or null
+     * when there is no usable Range header and the whole file should be sent. A first byte at
+     * or past the end is returned as is, to be answered with 416.
+     */
+    static long[] parseRange(String header, long length) {
+        if (header == null || !header.startsWith("bytes=")) return null;
+        String spec = header.substring(6).trim();
+        // Multiple ranges would need multipart/byteranges; sending the whole file is allowed
+        if (spec.indexOf(',') >= 0) return null;
+        int dash = spec.indexOf('-');
+        if (dash < 0) return null;
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // Suffix range: the final N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) return null;
+                return new long[]{Math.max(0, length - suffix), length - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            if (start < 0 || (end < start && start < length)) return null;
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** First site-local IPv4 address of this device, for showing the server's URL. */
+    public static String lanAddress() {
+        try {
+            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+            if (interfaces == null) return "127.0.0.1";
+            for (NetworkInterface nif : Collections.list(interfaces)) {
+                if (!nif.isUp() || nif.isLoopback()) continue;
+                for (InetAddress address : Collections.list(nif.getInetAddresses())) {
+                    if (address instanceof Inet4Address && address.isSiteLocalAddress()) {
+                        return address.getHostAddress();
+                    }
+                }
+            }
+        } catch (SocketException ignored) {
+        }
+        return "127.0.0.1";
+    }
+
+    static Response error(Response.IStatus status, String message) {
+        return newFixedLengthResponse(status, MIME_PLAINTEXT, message);
+    }
+
+    /**
+     * Response that writes its own status line and headers, then its body straight to the
+     * connection instead of through NanoHTTPD's buffered copy.
+     */
+    abstract static class DirectResponse extends Response {
+
+        private static final ThreadLocal<SimpleDateFormat> HTTP_DATE = ThreadLocal.withInitial(() -> {
+            SimpleDateFormat format = new SimpleDateFormat("E, d MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            return format;
+        });
+
+        private boolean keepAlive = true;
+        private boolean gzip;
+
+        DirectResponse(IStatus status, String mime) {
+            super(status, mime, null, 0);
+        }
+
+        @Override
+        public void setKeepAlive(boolean useKeepAlive) {
+            super.setKeepAlive(useKeepAlive);
+            keepAlive = useKeepAlive;
+        }
+
+        @Override
+        public void setGzipEncoding(boolean encodeAsGzip) {
+            super.setGzipEncoding(encodeAsGzip);
+            gzip = encodeAsGzip;
+        }
+
+        /** True when the client accepts gzip and NanoHTTPD would compress this MIME type. */
+        boolean isGzip() {
+            return gzip;
+        }
+
+        /** Appends the response's own header lines, each ending in CRLF. */
+        abstract void appendHeaders(StringBuilder head);
+
+        abstract void sendBody(OutputStream outputStream) throws IOException;
+
+        @Override
+        protected void send(OutputStream outputStream) {
+            StringBuilder head = new StringBuilder(256);
+            head.append("HTTP/1.1 ").append(getStatus().getDescription()).append("\r\n");
+            head.append("Date: ").append(HTTP_DATE.get().format(new Date())).append("\r\n");
+            head.append("Content-Type: ").append(getMimeType()).append("\r\n");
+            appendHeaders(head);
+            head.append("Connection: ").append(keepAlive && !isCloseConnection() ? "keep-alive" : "close")
+                    .append("\r\n\r\n");
+            try {
+                outputStream.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+                outputStream.flush();
+                if (getRequestMethod() != Method.HEAD) sendBody(outputStream);
+            } catch (IOException e) {
+                // Client went away mid-transfer (seeking players do this all the time)
+                closeConnection(true);
+            }
+        }
+    }
+
+    /** A file or a byte range of it, moved with {@link FileChannel#transferTo}. */
+    private static final class FileResponse extends DirectResponse {
+
+        private final File file;
+        private final long offset;
+        private final long count;
+        private final long fileLength;
+
+        FileResponse(Response.Status status, String mime, File file, long offset, long count, long fileLength) {
+            super(status, mime);
+            this.file = file;
+            this.offset = offset;
+            this.count = count;
+            this.fileLength = fileLength;
+        }
+
+        @Override
+        void appendHeaders(StringBuilder head) {
+            head.append("Accept-Ranges: bytes\r\n");
+            head.append("Content-Length: ").append(count).append("\r\n");
+            if (getStatus() == Response.Status.PARTIAL_CONTENT) {
+                head.append("Content-Range: bytes ").append(offset).append('-')
+                        .append(offset + count - 1).append('/').append(fileLength).append("\r\n");
+            }
+        }
+
+        // Nothing of the file passes through the Java heap
+        @Override
+        void sendBody(OutputStream outputStream) throws IOException {
+            WritableByteChannel target = CLIENT_CHANNEL.get();
+            if (target == null) target = Channels.newChannel(outputStream);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+                FileChannel channel = raf.getChannel();
+                long position = offset;
+                long end = offset + count;
+                while (position < end) {
+                    long sent = channel.transferTo(position, end - position, target);
+                    // transferTo reports 0 at end of file: the file shrank under us
+                    if (sent <= 0) throw new IOException("File truncated: " + file);
+                    position += sent;
+                }
+            }
+        }
+    }
+
+    /** Fixed worker pool with a bounded queue; connections beyond it are closed at once. */
+    private static final class BoundedRunner implements AsyncRunner {
+
+        private final ThreadPoolExecutor pool;
+        private final Set<ClientHandler> running = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+        BoundedRunner(int workers, int backlog) {
+            pool = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(backlog), r -> {
+                        Thread t = new Thread(r, "stream-worker");
+                        t.setDaemon(true);
+                        return t;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+        }
+
+        boolean hasBacklog() {
+            return !pool.getQueue().isEmpty();
+        }
+
+        @Override
+        public void exec(ClientHandler handler) {
+            running.add(handler);
+            try {
+                pool.execute(handler);
+            } catch (RejectedExecutionException e) {
+                running.remove(handler);
+                handler.close();
+            }
+        }
+
+        @Override
+        public void closed(ClientHandler handler) {
+            running.remove(handler);
+        }
+
+        @Override
+        public void closeAll() {
+            for (ClientHandler handler : new ArrayList<>(running)) handler.close();
+        }
+    }
+}
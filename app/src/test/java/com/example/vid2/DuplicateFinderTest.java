@@ -0,0 +1,133 @@
+package com.example.vid2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link DuplicateFinder} over real temporary files: exact copies must be grouped,
+ * files that only differ outside the sampled blocks must be told apart by the full hash,
+ * and a second run must answer everything from the hash cache. Run times are measured in
+ * the benchmarks module.
+ */
+public class DuplicateFinderTest {
+
+    private static final int UNIQUE_FILES = 400;
+    private static final int FILE_SIZE = 1024 * 1024;
+
+    private File dir;
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("duplicates", "");
+        assertTrue(dir.delete() && dir.mkdir());
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        dir.delete();
+    }
+
+    @Test
+    public void groupsCopiesAndUsesTheCache() throws IOException {
+        Random random = new Random(5);
+        VideoCatalog.Builder builder = new VideoCatalog.Builder(UNIQUE_FILES + 64);
+        long id = 1;
+        long date = 1_700_000_000_000L;
+
+        // Unique files, half of them the same size so they reach the sample stage
+        byte[] data = new byte[FILE_SIZE + 1];
+        for (int i = 0; i < UNIQUE_FILES; i++) {
+            random.nextBytes(data);
+            int size = i % 2 == 0 ? FILE_SIZE : FILE_SIZE - 1 - i;
+            add(builder, id++, date - i, "unique" + i + ".mp4", data, size);
+        }
+
+        // Three groups of copies: 3, 2 and 4 files
+        Set<String> expected = new HashSet<>();
+        int[] copies = {3, 2, 4};
+        long reclaimable = 0;
+        for (int g = 0; g < copies.length; g++) {
+            random.nextBytes(data);
+            int size = FILE_SIZE - 4096 * (g + 1);
+            for (int c = 0; c < copies[g]; c++) {
+                String name = "copy" + g + "_" + c + ".mp4";
+                add(builder, id++, date - 1000 - g * 10 - c, name, data, size);
+                expected.add(name);
+            }
+            reclaimable += (long) size * (copies[g] - 1);
+        }
+
+        // Same head, middle and tail blocks, different bytes in between
+        random.nextBytes(data);
+        add(builder, id++, date - 2000, "lookalike_a.mp4", data, FILE_SIZE + 1);
+        data[DuplicateFinder.SAMPLE_BYTES + 10] ^= 1;
+        add(builder, id++, date - 2001, "lookalike_b.mp4", data, FILE_SIZE + 1);
+
+        VideoCatalog catalog = builder.build();
+        DuplicateFinder.HashCache cache = new DuplicateFinder.HashCache();
+        DuplicateFinder finder = new DuplicateFinder(pool, cache);
+
+        DuplicateFinder.Result cold = finder.find(catalog, () -> false);
+        assertEquals(copies.length, cold.groupCount());
+        Set<String> found = new HashSet<>();
+        for (int row : cold.rows) found.add(catalog.name(row));
+        assertEquals(expected, found);
+        assertEquals(reclaimable, cold.reclaimableBytes);
+        // Groups come largest file first, rows newest first inside a group
+        for (int g = 0; g < cold.groupCount(); g++) {
+            int[] group = cold.group(g);
+            assertEquals(copies[g], group.length);
+            int[] sorted = group.clone();
+            Arrays.sort(sorted);
+            assertArrayEquals(sorted, group);
+        }
+        // The lookalikes collide on samples, so they and the copies are read in full
+        assertEquals(2 + 3 + 2 + 4, cold.fullyHashed);
+
+        DuplicateFinder.Result warm = finder.find(catalog, () -> false);
+        assertEquals(0, warm.sampled);
+        assertEquals(0, warm.fullyHashed);
+        assertArrayEquals(cold.rows, warm.rows);
+
+        int[] added = {0};
+        cache.takeAdded((key, sample, hasFull, hi, lo) -> added[0]++);
+        assertEquals(cold.sampled, added[0]);
+        assertEquals(0, cache.pruneUntouched().length);
+    }
+
+    @Test
+    public void cancelledRunReturnsNull() throws IOException {
+        VideoCatalog.Builder builder = new VideoCatalog.Builder(2);
+        byte[] data = new byte[4096];
+        add(builder, 1, 2, "a.mp4", data, data.length);
+        add(builder, 2, 1, "b.mp4", data, data.length);
+        DuplicateFinder finder = new DuplicateFinder(pool, new DuplicateFinder.HashCache());
+        assertNull(finder.find(builder.build(), () -> true));
+    }
+
+    private void add(VideoCatalog.Builder builder, long id, long date, String name, byte[] data, int size)
+            throws IOException {
+        File file = new File(dir, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data, 0, size);
+        }
+        builder.add(id, file.getPath(), name, size, 60_000, date, 1920, 1080);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.vid2;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * The list/player formatting paths must print what the String.format based code did, and
+ * after warm-up must not allocate at all. Their speed is measured in the benchmarks module.
+ */
+public class MediaTextFormatterTest {
+
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    @Test
+    public void formatsLikeTheOldCode() {
+        MediaTextFormatter formatter = new MediaTextFormatter();
+        char[] out = new char[MediaTextFormatter.BUFFER_SIZE];
+
+        assertEquals("00:00", new String(out, 0, formatter.formatDuration(999, out)));
+        assertEquals("01:01", new String(out, 0, formatter.formatDuration(61_000, out)));
+        assertEquals("1:00:00", new String(out, 0, formatter.formatDuration(3_600_000, out)));
+        assertEquals("512 B", new String(out, 0, formatter.formatFileSize(512, out)));
+
+        long now = System.currentTimeMillis();
+        assertEquals("Today", new String(out, 0, formatter.formatDate(now, now, out)));
+        for (long bytes : new long[]{1536, 1_048_575, 734_126_656, 5_422_396_211L}) {
+            assertEquals(oldFormatFileSize(bytes), new String(out, 0, formatter.formatFileSize(bytes, out)));
+        }
+    }
+
+    @Test
+    public void steadyStateIsAllocationFree() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+
+        MediaTextFormatter formatter = new MediaTextFormatter();
+        char[] out = new char[MediaTextFormatter.BUFFER_SIZE];
+        long now = System.currentTimeMillis();
+
+        long sink = run(formatter, out, now, WARMUP);
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        sink += run(formatter, out, now, ITERATIONS);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        assertTrue(sink != 0);
+        // getThreadAllocatedBytes itself may allocate a few bytes; anything per-call would be MBs
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private static long run(MediaTextFormatter formatter, char[] out, long now, int iterations) {
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += formatter.formatDuration(i * 1000L, out);
+            sink += formatter.formatFileSize(i * 7919L, out);
+            sink += formatter.formatDate(now - i * 60_000L, now, out);
+            sink += out[0];
+        }
+        return sink;
+    }
+
+    private static String oldFormatFileSize(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        if (bytes < 1024 * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+        return String.format("%.2f GB", bytes / (1024.0 * 1024.0 * 1024.0));
+    }
+}
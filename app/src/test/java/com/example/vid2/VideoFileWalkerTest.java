@@ -0,0 +1,163 @@
+package com.example.vid2;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Walks a generated directory tree with {@link VideoFileWalker}: every real video must be
+ * found, including in hidden and .nomedia folders and folders named like videos, while
+ * renamed non-videos and other files are left out, with many workers or one. Walk speed is measured in the benchmarks module.
+ */
+public class VideoFileWalkerTest {
+
+    private static final int TOP_FOLDERS = 12;
+    private static final int DEPTH = 3;
+    private static final int FANOUT = 3;
+    private static final int FILES_PER_FOLDER = 30;
+
+    private static final byte[][] SIGNATURES = {
+            ascii("\0\0\0\u0018ftypmp42"),
+            {0x1A, 0x45, (byte) 0xDF, (byte) 0xA3, (byte) 0x9F, 0x42, (byte) 0x86, (byte) 0x81, 1, 0x42, (byte) 0xF7, (byte) 0x81},
+            ascii("RIFF\0\0\0\0AVI LIST"),
+            {0, 0, 1, (byte) 0xBA, 0x44, 0, 4, 0, 4, 1, 1, (byte) 0x89},
+    };
+    private static final String[] VIDEO_EXTENSIONS = {".mp4", ".mkv", ".avi", ".mpg"};
+
+    private File root;
+    private final Set<String> expected = new HashSet<>();
+    // Directory entries below the root, folders included, as the walker counts them
+    private int totalFiles;
+
+    @Before
+    public void setUp() throws IOException {
+        root = File.createTempFile("walk", "");
+        assertTrue(root.delete() && root.mkdir());
+        Random random = new Random(11);
+        for (int i = 0; i < TOP_FOLDERS; i++) {
+            // A hidden folder with a .nomedia marker, as MediaStore would skip it
+            String name = i % 4 == 0 ? ".private" + i : "Folder " + i;
+            fill(new File(root, name), DEPTH, random);
+        }
+        // Folders named like videos are still walked
+        fill(new File(root, "Trip.mov"), 1, random);
+        fill(new File(root, "Folder 1" + File.separator + "2023.ts"), 0, random);
+    }
+
+    @After
+    public void tearDown() {
+        delete(root);
+    }
+
+    @Test
+    public void findsVideosByExtensionAndSignature() {
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            VideoFileWalker.Result parallel = new VideoFileWalker(pool).walk(
+                    Arrays.asList(root.getPath(), new File(root, "Folder 1").getPath()), () -> false,
+                    (d, f, v) -> { });
+            Set<String> found = new HashSet<>();
+            for (VideoFileWalker.Found video : parallel.videos) {
+                assertTrue("seen twice: " + video.path, found.add(video.path));
+                assertTrue(video.sizeBytes > 0);
+            }
+            assertEquals(expected, found);
+            assertEquals(totalFiles, parallel.files);
+
+            VideoFileWalker.Result sequential = new VideoFileWalker(single).walk(
+                    Collections.singletonList(root.getPath()), () -> false, (d, f, v) -> { });
+            assertEquals(expected.size(), sequential.videos.size());
+            assertEquals(parallel.files, sequential.files);
+        } finally {
+            pool.shutdown();
+            single.shutdown();
+        }
+    }
+
+    @Test
+    public void cancelledWalkReturnsNull() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assertNull(new VideoFileWalker(pool).walk(Collections.singletonList(root.getPath()),
+                    () -> true, (d, f, v) -> { }));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void signatures() {
+        for (byte[] signature : SIGNATURES) {
+            assertTrue(VideoFileWalker.hasVideoSignature(Arrays.copyOf(signature, 64), 64));
+        }
+        byte[] ts = new byte[VideoFileWalker.HEAD_BYTES];
+        ts[0] = 0x47;
+        ts[188] = 0x47;
+        assertTrue(VideoFileWalker.hasVideoSignature(ts, ts.length));
+        assertFalse(VideoFileWalker.hasVideoSignature(ascii("%PDF-1.7 some text"), 18));
+        assertFalse(VideoFileWalker.hasVideoSignature(new byte[8], 8));
+        assertTrue(VideoFileWalker.hasVideoExtension("Clip.MKV"));
+        assertFalse(VideoFileWalker.hasVideoExtension("notes.txt"));
+        assertFalse(VideoFileWalker.hasVideoExtension("mp4"));
+    }
+
+    private void fill(File dir, int depth, Random random) throws IOException {
+        assertTrue(dir.mkdirs());
+        totalFiles++;
+        if (dir.getName().startsWith(".")) write(new File(dir, ".nomedia"), new byte[0]);
+        for (int i = 0; i < FILES_PER_FOLDER; i++) {
+            int kind = random.nextInt(4);
+            int format = random.nextInt(SIGNATURES.length);
+            byte[] data = new byte[256 + random.nextInt(1024)];
+            random.nextBytes(data);
+            if (kind == 0) {
+                // A video
+                System.arraycopy(SIGNATURES[format], 0, data, 0, SIGNATURES[format].length);
+                File file = new File(dir, "video" + i + VIDEO_EXTENSIONS[format]);
+                write(file, data);
+                expected.add(file.getPath());
+            } else if (kind == 1) {
+                // Named like a video, but not one
+                data[0] = '%';
+                data[4] = 'x';
+                write(new File(dir, "fake" + i + VIDEO_EXTENSIONS[format]), data);
+            } else {
+                write(new File(dir, "photo" + i + ".jpg"), data);
+            }
+        }
+        if (depth == 0) return;
+        for (int i = 0; i < FANOUT; i++) fill(new File(dir, "sub" + i), depth - 1, random);
+    }
+
+    private void write(File file, byte[] data) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        totalFiles++;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) for (File child : children) delete(child);
+        file.delete();
+    }
+
+    private static byte[] ascii(String text) {
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) text.charAt(i);
+        return bytes;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.vid2;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link VideoSnapshot#isSmallEditOf} must let library updates through to the adapter's diff
+ * and send re-sorts and new filters down the swap path.
+ */
+public class VideoSnapshotTest {
+
+    private static final int VIDEOS = 5_000;
+    private static final int MAX_EDITS = 100;
+
+    private static VideoCatalog catalog(int size, long firstId) {
+        VideoCatalog.Builder builder = new VideoCatalog.Builder(size);
+        for (int i = 0; i < size; i++) {
+            long id = firstId + i;
+            builder.add(id, "/videos/" + id + ".mp4", id + ".mp4", 1000 + i, 60_000, 1_000_000L - i, 1920, 1080);
+        }
+        return builder.build();
+    }
+
+    private static int[] identity(int size) {
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) rows[i] = i;
+        return rows;
+    }
+
+    @Test
+    public void libraryDeltaIsSmall() {
+        VideoCatalog catalog = catalog(VIDEOS, 1);
+        VideoSnapshot before = new VideoSnapshot(catalog, identity(VIDEOS));
+        assertTrue(before.isSmallEditOf(before, MAX_EDITS));
+        assertTrue(before.isSmallEditOf(VideoSnapshot.EMPTY, VIDEOS));
+
+        // A few new recordings on top, a few deletions, in a catalog built afresh
+        VideoCatalog.Builder changed = new VideoCatalog.Builder(5);
+        for (int i = 0; i < 5; i++) {
+            long id = VIDEOS + 1 + i;
+            changed.add(id, "/videos/" + id + ".mp4", id + ".mp4", 1, 60_000, 2_000_000L + i, 1920, 1080);
+        }
+        VideoCatalog.Delta delta = catalog.withChanges(changed.build(), new long[]{3, 40, 500});
+        VideoSnapshot after = new VideoSnapshot(delta.catalog, identity(delta.catalog.size()));
+        assertTrue(after.isSmallEditOf(before, MAX_EDITS));
+    }
+
+    @Test
+    public void resortAndFilterAreNot() {
+        VideoCatalog catalog = catalog(VIDEOS, 1);
+        VideoSnapshot newestFirst = new VideoSnapshot(catalog, identity(VIDEOS));
+        int[] reversed = new int[VIDEOS];
+        for (int i = 0; i < VIDEOS; i++) reversed[i] = VIDEOS - 1 - i;
+        assertFalse(new VideoSnapshot(catalog, reversed).isSmallEditOf(newestFirst, MAX_EDITS));
+        assertFalse(new VideoSnapshot(catalog, new int[]{7, 70, 700}).isSmallEditOf(newestFirst, MAX_EDITS));
+        assertFalse(newestFirst.isSmallEditOf(VideoSnapshot.EMPTY, MAX_EDITS));
+
+        // One video moving to the top is a handful of edits, not a re-sort
+        int[] moved = identity(VIDEOS);
+        System.arraycopy(moved, 0, moved, 1, 10);
+        moved[0] = 10;
+        assertTrue(new VideoSnapshot(catalog, moved).isSmallEditOf(newestFirst, MAX_EDITS));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.vid2;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link VideoSort} on a 50k-video catalog: every order must match a plain comparator sort,
+ * search results and folders must come out in the same order, and switching back to an
+ * order must reuse the cached one. Sorting cost is measured in the benchmarks module.
+ */
+public class VideoSortTest {
+
+    private static final int CATALOG_SIZE = 50_000;
+    private static final int FOLDERS = 40;
+
+    @Test
+    public void ordersMatchComparatorSort() {
+        VideoCatalog catalog = catalog();
+        VideoSort sort = new VideoSort(catalog);
+        for (VideoSort.Key key : VideoSort.Key.values()) {
+            for (boolean descending : new boolean[]{false, true}) {
+                Integer[] boxed = new Integer[catalog.size()];
+                for (int i = 0; i < boxed.length; i++) boxed[i] = i;
+                Comparator<Integer> comparator = comparator(key, catalog);
+                Arrays.sort(boxed, descending ? comparator.reversed() : comparator);
+                int[] expected = new int[boxed.length];
+                for (int i = 0; i < expected.length; i++) expected[i] = boxed[i];
+                assertArrayEquals(key + (descending ? " desc" : ""), expected, sort.order(key, descending));
+            }
+        }
+    }
+
+    @Test
+    public void subsetsAndFolders() {
+        VideoCatalog catalog = catalog();
+        VideoSort sort = new VideoSort(catalog);
+        Random random = new Random(7);
+        for (int size : new int[]{0, 1, 50, 2_000, 20_000}) {
+            int[] rows = randomRows(random, size);
+            int[] expected = rows.clone();
+            Arrays.sort(expected);
+            int[] full = sort.order(VideoSort.Key.SIZE, true);
+            int[] position = new int[full.length];
+            for (int i = 0; i < full.length; i++) position[full[i]] = i;
+            Integer[] boxed = Arrays.stream(expected).boxed().toArray(Integer[]::new);
+            Arrays.sort(boxed, Comparator.comparingInt(row -> position[row]));
+            for (int i = 0; i < boxed.length; i++) expected[i] = boxed[i];
+            assertArrayEquals(expected, sort.sort(rows, VideoSort.Key.SIZE, true));
+        }
+
+        VideoSort.Folders folders = sort.folders();
+        assertEquals(FOLDERS, folders.size());
+        int videos = 0;
+        long bytes = 0;
+        for (int i = 0; i < folders.size(); i++) {
+            videos += folders.count(i);
+            bytes += folders.totalBytes(i);
+            if (i > 0) assertTrue(folders.name(i - 1).compareToIgnoreCase(folders.name(i)) <= 0);
+        }
+        assertEquals(catalog.size(), videos);
+        long expectedBytes = 0;
+        for (int row = 0; row < catalog.size(); row++) expectedBytes += catalog.sizeBytes(row);
+        assertEquals(expectedBytes, bytes);
+
+        int[] all = new int[catalog.size()];
+        for (int i = 0; i < all.length; i++) all[i] = i;
+        int folder = folders.indexOf("/storage/emulated/0/Folder 7");
+        int[] inFolder = folders.filter(all, folder);
+        assertEquals(folders.count(folder), inFolder.length);
+        for (int row : inFolder) assertTrue(catalog.path(row).startsWith("/storage/emulated/0/Folder 7/"));
+    }
+
+    @Test
+    public void ordersAreCached() {
+        VideoSort sort = new VideoSort(catalog());
+        for (VideoSort.Key key : VideoSort.Key.values()) {
+            int[] first = sort.order(key, true);
+            sort.order(key, false);
+            assertSame(key.toString(), first, sort.order(key, true));
+        }
+    }
+
+    private static VideoCatalog catalog() {
+        Random random = new Random(42);
+        VideoCatalog.Builder builder = new VideoCatalog.Builder(CATALOG_SIZE);
+        long date = 1_700_000_000_000L;
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            // Camera-style names share long prefixes; a few duplicates and ties on purpose
+            String name = (random.nextInt(4) == 0 ? "Clip " : "VID_2023") + random.nextInt(CATALOG_SIZE / 2) + ".mp4";
+            String folder = "/storage/emulated/0/Folder " + random.nextInt(FOLDERS);
+            int height = new int[]{480, 720, 1080, 2160}[random.nextInt(4)];
+            date -= random.nextInt(3) * 60_000L;
+            builder.add(i + 1, folder + "/" + name, name, random.nextInt(1 << 30),
+                    random.nextInt(20) * 30_000L, date, height * 16 / 9, height);
+        }
+        return builder.build();
+    }
+
+    private static int[] randomRows(Random random, int count) {
+        int[] all = new int[CATALOG_SIZE];
+        for (int i = 0; i < all.length; i++) all[i] = i;
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(all.length - i);
+            int t = all[i];
+            all[i] = all[j];
+            all[j] = t;
+        }
+        return Arrays.copyOf(all, count);
+    }
+
+    private static Comparator<Integer> comparator(VideoSort.Key key, VideoCatalog catalog) {
+        switch (key) {
+            case NAME:
+                return (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(catalog.name(a), catalog.name(b));
+            case SIZE:
+                return Comparator.comparingLong(catalog::sizeBytes);
+            case DURATION:
+                return Comparator.comparingLong(catalog::durationMs);
+            case DATE:
+                return Comparator.comparingLong(catalog::dateModifiedMs);
+            default:
+                return Comparator.comparingLong(row -> (long) catalog.width(row) * catalog.height(row));
+        }
+    }
+}
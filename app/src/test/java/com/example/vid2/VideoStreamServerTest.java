@@ -0,0 +1,233 @@
+package com.example.vid2;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link VideoStreamServer} over loopback: Range and keep-alive behaviour, several clients
+ * reading random 1 MB ranges at once the way seeking players do, and the catalog API paged
+ * through and revalidated. Throughput is measured in the benchmarks module.
+ */
+public class VideoStreamServerTest {
+
+    private static final long VIDEO_ID = 42;
+    private static final int FILE_SIZE = 64 * 1024 * 1024;
+    private static final int CLIENTS = 8;
+    private static final int REQUESTS_PER_CLIENT = 8;
+    private static final int RANGE_SIZE = 1024 * 1024;
+    private static final int CATALOG_SIZE = 50_000;
+    private static final int POLLS = 3;
+
+    private File file;
+    private byte[] content;
+    private VideoStreamServer server;
+    private String url;
+
+    @Before
+    public void setUp() throws IOException {
+        content = new byte[FILE_SIZE];
+        new Random(1).nextBytes(content);
+        file = File.createTempFile("stream", ".mp4");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        }
+        VideoCatalog catalog = new VideoCatalog.Builder(1)
+                .add(VIDEO_ID, file.getPath(), file.getName(), FILE_SIZE, 60_000, 0, 1920, 1080)
+                .build();
+        server = new VideoStreamServer(0, () -> catalog);
+        server.start();
+        url = "http://127.0.0.1:" + server.getListeningPort() + VideoStreamServer.VIDEO_PATH + VIDEO_ID;
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+        file.delete();
+    }
+
+    @Test
+    public void servesRangesAsPartialContent() throws IOException {
+        HttpURLConnection c = open("bytes=100-199");
+        assertEquals(206, c.getResponseCode());
+        assertEquals("bytes 100-199/" + FILE_SIZE, c.getHeaderField("Content-Range"));
+        assertRange(readAll(c.getInputStream()), 100, 100);
+
+        c = open("bytes=-500");
+        assertEquals(206, c.getResponseCode());
+        assertRange(readAll(c.getInputStream()), FILE_SIZE - 500, 500);
+
+        c = open("bytes=" + FILE_SIZE + "-");
+        assertEquals(416, c.getResponseCode());
+        assertEquals("bytes */" + FILE_SIZE, c.getHeaderField("Content-Range"));
+
+        c = open(null);
+        assertEquals(200, c.getResponseCode());
+        assertEquals("bytes", c.getHeaderField("Accept-Ranges"));
+        assertEquals(FILE_SIZE, c.getContentLengthLong());
+        assertRange(readAll(c.getInputStream()), 0, FILE_SIZE);
+
+        c = (HttpURLConnection) new URL(url + "0").openConnection();
+        assertEquals(404, c.getResponseCode());
+    }
+
+    @Test
+    public void keepsConnectionsAlive() throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", server.getListeningPort())) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            for (int i = 0; i < 3; i++) {
+                int offset = i * 1000;
+                String request = "GET " + VideoStreamServer.VIDEO_PATH + VIDEO_ID + " HTTP/1.1\r\n"
+                        + "Host: localhost\r\nRange: bytes=" + offset + "-" + (offset + 99) + "\r\n\r\n";
+                out.write(request.getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                String head = readHead(in);
+                assertTrue(head, head.startsWith("HTTP/1.1 206"));
+                assertTrue(head, head.contains("Connection: keep-alive"));
+                byte[] body = new byte[100];
+                int read = 0;
+                while (read < body.length) {
+                    int n = in.read(body, read, body.length - read);
+                    assertTrue("connection closed", n > 0);
+                    read += n;
+                }
+                assertRange(body, offset, 100);
+            }
+        }
+    }
+
+    @Test
+    public void catalogPagesAndRevalidates() throws IOException {
+        VideoCatalog.Builder builder = new VideoCatalog.Builder(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            builder.add(i, "/videos/clip" + i + ".mp4", "clip " + i, i * 1000L, i, i, 1280, 720);
+        }
+        VideoCatalog catalog = builder.build();
+        VideoStreamServer catalogServer = new VideoStreamServer(0, () -> catalog);
+        catalogServer.start();
+        try {
+            String base = "http://127.0.0.1:" + catalogServer.getListeningPort() + CatalogEndpoint.PATH
+                    + "?limit=1000&fields=id,name&sort=-size";
+            boolean[] seen = new boolean[CATALOG_SIZE];
+            String cursor = null;
+            String firstEtag = null;
+            long expectedId = CATALOG_SIZE - 1;
+            do {
+                HttpURLConnection c = (HttpURLConnection) new URL(
+                        cursor == null ? base : base + "&cursor=" + cursor).openConnection();
+                c.setRequestProperty("Accept-Encoding", "gzip");
+                assertEquals(200, c.getResponseCode());
+                assertEquals("gzip", c.getHeaderField("Content-Encoding"));
+                if (firstEtag == null) firstEtag = c.getHeaderField("ETag");
+                JsonObject page;
+                try (InputStreamReader reader = new InputStreamReader(new GZIPInputStream(c.getInputStream()),
+                        StandardCharsets.UTF_8)) {
+                    page = JsonParser.parseReader(reader).getAsJsonObject();
+                }
+                for (com.google.gson.JsonElement item : page.getAsJsonArray("items")) {
+                    JsonObject video = item.getAsJsonObject();
+                    long id = video.get("id").getAsLong();
+                    assertEquals(expectedId--, id);
+                    assertFalse(video.has("size"));
+                    seen[(int) id] = true;
+                }
+                cursor = page.get("next").isJsonNull() ? null : page.get("next").getAsString();
+            } while (cursor != null);
+            for (boolean s : seen) assertTrue(s);
+
+            // Steady-state polling: every answer is a 304 decided from the ETag alone
+            for (int i = 0; i < POLLS; i++) {
+                HttpURLConnection c = (HttpURLConnection) new URL(base).openConnection();
+                c.setRequestProperty("If-None-Match", firstEtag);
+                assertEquals(304, c.getResponseCode());
+                c.getInputStream().close();
+            }
+        } finally {
+            catalogServer.stop();
+        }
+    }
+
+    @Test
+    public void concurrentRangeReads() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                long seed = c;
+                results.add(pool.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                        int offset = random.nextInt(FILE_SIZE - RANGE_SIZE);
+                        HttpURLConnection conn = open("bytes=" + offset + "-" + (offset + RANGE_SIZE - 1));
+                        assertEquals(206, conn.getResponseCode());
+                        assertRange(readAll(conn.getInputStream()), offset, RANGE_SIZE);
+                    }
+                    return REQUESTS_PER_CLIENT;
+                }));
+            }
+            int requests = 0;
+            for (Future<Integer> result : results) requests += result.get();
+            assertEquals(CLIENTS * REQUESTS_PER_CLIENT, requests);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private HttpURLConnection open(String range) throws IOException {
+        HttpURLConnection c = (HttpURLConnection) new URL(url).openConnection();
+        if (range != null) c.setRequestProperty("Range", range);
+        return c;
+    }
+
+    private void assertRange(byte[] body, int offset, int length) {
+        assertEquals(length, body.length);
+        for (int i = 0; i < length; i++) {
+            if (body[i] != content[offset + i]) fail("byte " + (offset + i) + " differs");
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = input.read(buffer)) > 0) out.write(buffer, 0, n);
+            return out.toByteArray();
+        }
+    }
+
+    private static String readHead(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        while (!sb.toString().endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b < 0) throw new IOException("connection closed");
+            sb.append((char) b);
+        }
+        return sb.toString();
+    }
+}
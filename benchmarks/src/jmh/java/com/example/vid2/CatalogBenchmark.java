@@ -0,0 +1,84 @@
+package com.example.vid2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The catalog API over loopback: a 1000-video page sorted by size, gzipped as a client asks
+ * for it, and a poll for the same page answered with 304 from its ETag.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class CatalogBenchmark {
+
+    @Param({"50000"})
+    int videos;
+
+    private final byte[] buffer = new byte[64 * 1024];
+    private VideoStreamServer server;
+    private URL page;
+    private String etag;
+
+    @Setup
+    public void setUp() throws IOException {
+        VideoCatalog catalog = Corpus.catalog(videos);
+        server = new VideoStreamServer(0, () -> catalog);
+        server.start();
+        page = new URL("http://127.0.0.1:" + server.getListeningPort() + CatalogEndpoint.PATH
+                + "?limit=1000&fields=id,name,size&sort=-size");
+        HttpURLConnection c = open();
+        etag = c.getHeaderField("ETag");
+        drain(c);
+        if (etag == null) throw new IOException("No ETag on " + page);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public long firstPage() throws IOException {
+        return drain(open());
+    }
+
+    @Benchmark
+    public int revalidate() throws IOException {
+        HttpURLConnection c = (HttpURLConnection) page.openConnection();
+        c.setRequestProperty("If-None-Match", etag);
+        int status = c.getResponseCode();
+        if (status != HttpURLConnection.HTTP_NOT_MODIFIED) throw new IOException("Status " + status);
+        c.getInputStream().close();
+        return status;
+    }
+
+    private HttpURLConnection open() throws IOException {
+        HttpURLConnection c = (HttpURLConnection) page.openConnection();
+        c.setRequestProperty("Accept-Encoding", "gzip");
+        return c;
+    }
+
+    // The compressed body as it comes off the wire: the server's cost, not gzip decoding
+    private long drain(HttpURLConnection c) throws IOException {
+        long total = 0;
+        try (InputStream in = c.getInputStream()) {
+            int n;
+            while ((n = in.read(buffer)) > 0) total += n;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.vid2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Container-header probing: the signature check on in-memory file heads, and a deep-scan
+ * walk of a synthetic folder tree (200 folders of 60 files, a third named like videos) with
+ * a worker per core and with one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ContainerProbeBenchmark {
+
+    private static final int HEADS = 4096;
+
+    private byte[][] heads;
+    private File root;
+    private List<String> roots;
+    private ForkJoinPool pool;
+    private ForkJoinPool single;
+
+    @Setup
+    public void setUp() throws IOException {
+        heads = Corpus.heads(HEADS);
+        root = Files.createTempDirectory("probe").toFile();
+        Corpus.writeTree(root, 200, 60);
+        roots = Collections.singletonList(root.getPath());
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        single = new ForkJoinPool(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+        single.shutdown();
+        Corpus.delete(root);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(HEADS)
+    public int signature() {
+        int videos = 0;
+        for (byte[] head : heads) {
+            if (VideoFileWalker.hasVideoSignature(head, head.length)) videos++;
+        }
+        return videos;
+    }
+
+    @Benchmark
+    public VideoFileWalker.Result walkTree() {
+        return new VideoFileWalker(pool).walk(roots, () -> false, (directories, files, found) -> { });
+    }
+
+    @Benchmark
+    public VideoFileWalker.Result walkTreeOneWorker() {
+        return new VideoFileWalker(single).walk(roots, () -> false, (directories, files, found) -> { });
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.vid2;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Synthetic, seeded inputs shared by the benchmarks, shaped like a phone's library: camera
+ * names with long common prefixes, a few dozen folders, newest first.
+ */
+final class Corpus {
+
+    static final long NOW_MS = 1_700_000_000_000L;
+
+    private static final String[] WORDS = {"holiday", "Beach", "birthday", "Concert", "demo",
+            "Family", "trip", "Zoë", "café", "screen recording", "lecture", "Match"};
+
+    private Corpus() {
+    }
+
+    static VideoCatalog catalog(int size) {
+        Random random = new Random(42);
+        VideoCatalog.Builder builder = new VideoCatalog.Builder(size);
+        long date = NOW_MS;
+        for (int i = 0; i < size; i++) {
+            String name = name(random);
+            String folder = "/storage/emulated/0/" + (random.nextInt(3) == 0 ? "DCIM/Camera" : "Movies/Folder " + random.nextInt(40));
+            int height = new int[]{480, 720, 1080, 2160}[random.nextInt(4)];
+            date -= random.nextInt(3) * 60_000L;
+            builder.add(i + 1, folder + "/" + name, name, random.nextInt(1 << 30),
+                    random.nextInt(7_200) * 1000L, date, height * 16 / 9, height);
+        }
+        return builder.build();
+    }
+
+    static String name(Random random) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return "VID_2023" + String.format("%04d_%06d", random.nextInt(10_000), random.nextInt(1_000_000)) + ".mp4";
+            case 1:
+                return WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                        + " " + random.nextInt(100) + ".mkv";
+            default:
+                return "Clip " + random.nextInt(100_000) + ".mov";
+        }
+    }
+
+    /** Rows a search or a folder filter could return: a random {@code count} of them. */
+    static int[] someRows(int catalogSize, int count) {
+        Random random = new Random(3);
+        int[] all = new int[catalogSize];
+        for (int i = 0; i < all.length; i++) all[i] = i;
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(all.length - i);
+            int t = all[i];
+            all[i] = all[j];
+            all[j] = t;
+        }
+        int[] rows = Arrays.copyOf(all, count);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /** A subtitle file of {@code cues} cues, about two lines each. */
+    static byte[] subtitles(SubtitleParser.Format format, int cues) {
+        Random random = new Random(9);
+        StringBuilder sb = new StringBuilder(cues * 80);
+        if (format == SubtitleParser.Format.VTT) sb.append("WEBVTT\n\n");
+        if (format == SubtitleParser.Format.ASS) {
+            sb.append("[Script Info]\nScriptType: v4.00+\n\n[Events]\n")
+                    .append("Format: Layer, Start, End, Style, Name, MarginL, MarginR, MarginV, Effect, Text\n");
+        }
+        long start = 1_000;
+        for (int i = 0; i < cues; i++) {
+            long end = start + 1_000 + random.nextInt(3_000);
+            String line1 = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            String line2 = "<i>" + WORDS[random.nextInt(WORDS.length)] + "</i>, said the narrator.";
+            switch (format) {
+                case SRT:
+                    sb.append(i + 1).append('\n').append(srtTime(start)).append(" --> ").append(srtTime(end))
+                            .append('\n').append(line1).append('\n').append(line2).append("\n\n");
+                    break;
+                case VTT:
+                    sb.append(srtTime(start).replace(',', '.')).append(" --> ")
+                            .append(srtTime(end).replace(',', '.')).append('\n')
+                            .append(line1).append('\n').append(line2).append("\n\n");
+                    break;
+                case ASS:
+                    sb.append("Dialogue: 0,").append(assTime(start)).append(',').append(assTime(end))
+                            .append(",Default,,0,0,0,,{\\i1}").append(line1).append("{\\i0}\\N").append(line2).append('\n');
+                    break;
+            }
+            start = end + random.nextInt(2_000);
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String srtTime(long ms) {
+        return String.format("%02d:%02d:%02d,%03d", ms / 3_600_000, ms / 60_000 % 60, ms / 1000 % 60, ms % 1000);
+    }
+
+    private static String assTime(long ms) {
+        return String.format("%d:%02d:%02d.%02d", ms / 3_600_000, ms / 60_000 % 60, ms / 1000 % 60, ms % 1000 / 10);
+    }
+
+    // First bytes of the containers a phone holds, and of files that only look like videos
+    private static final byte[][] HEADS = {
+            ascii("\0\0\0\u0018ftypmp42\0\0\0\0mp42isom"),
+            ascii("\0\0\0\u0014ftypqt  \0\0\0\0qt  "),
+            {0x1A, 0x45, (byte) 0xDF, (byte) 0xA3, (byte) 0x9F, 0x42, (byte) 0x86, (byte) 0x81, 1, 0x42, (byte) 0xF7, (byte) 0x81},
+            ascii("RIFF\0\0\0\0AVI LIST"),
+            ascii("%PDF-1.7\n%âãÏÓ\n"),
+            {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10, 'J', 'F', 'I', 'F', 0, 1},
+    };
+    private static final String[] HEAD_EXTENSIONS = {".mp4", ".mov", ".mkv", ".avi", ".mp4", ".mp4"};
+
+    /** {@code count} file heads of {@link VideoFileWalker#HEAD_BYTES} bytes, a third of them not videos. */
+    static byte[][] heads(int count) {
+        Random random = new Random(5);
+        byte[][] heads = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            byte[] head = new byte[VideoFileWalker.HEAD_BYTES];
+            random.nextBytes(head);
+            byte[] signature = HEADS[random.nextInt(HEADS.length)];
+            System.arraycopy(signature, 0, head, 0, signature.length);
+            heads[i] = head;
+        }
+        return heads;
+    }
+
+    /**
+     * A folder tree under {@code root}: {@code folders} folders of {@code filesPerFolder}
+     * files each, a third of them video-named, two levels deep.
+     */
+    static void writeTree(File root, int folders, int filesPerFolder) throws IOException {
+        Random random = new Random(13);
+        byte[] data = new byte[VideoFileWalker.HEAD_BYTES * 2];
+        for (int f = 0; f < folders; f++) {
+            File dir = new File(root, "Folder " + f / 8 + "/Sub " + f);
+            if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+            for (int i = 0; i < filesPerFolder; i++) {
+                random.nextBytes(data);
+                int kind = random.nextInt(HEADS.length);
+                String name = i % 3 == 0 ? "file" + i + HEAD_EXTENSIONS[kind] : "photo" + i + ".jpg";
+                System.arraycopy(HEADS[kind], 0, data, 0, HEADS[kind].length);
+                try (FileOutputStream out = new FileOutputStream(new File(dir, name))) {
+                    out.write(data);
+                }
+            }
+        }
+    }
+
+    static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) for (File child : children) delete(child);
+        file.delete();
+    }
+
+    private static byte[] ascii(String text) {
+        byte[] bytes = new byte[text.length()];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) text.charAt(i);
+        return bytes;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.vid2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Duplicate detection over 400 real 1 MB files of the same size, 40 of them pairs of copies:
+ * a first run that samples all of them and reads the copies in full, and a repeat run
+ * answered from the hash cache. The files stay in the page cache, so the first run measures
+ * hashing rather than the disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class DuplicateBenchmark {
+
+    private static final int FILES = 400;
+    private static final int COPIED = 40;
+    private static final int FILE_SIZE = 1024 * 1024;
+
+    private File dir;
+    private VideoCatalog catalog;
+    private ForkJoinPool pool;
+    private DuplicateFinder cached;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("duplicates").toFile();
+        Random random = new Random(5);
+        byte[] data = new byte[FILE_SIZE];
+        VideoCatalog.Builder builder = new VideoCatalog.Builder(FILES);
+        for (int i = 0; i < FILES; i++) {
+            // Every other file among the first COPIED repeats the one before it
+            if (i >= COPIED || i % 2 == 0) random.nextBytes(data);
+            File file = new File(dir, "video" + i + ".mp4");
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(data);
+            }
+            builder.add(i + 1, file.getPath(), file.getName(), FILE_SIZE, 60_000, Corpus.NOW_MS - i, 1920, 1080);
+        }
+        catalog = builder.build();
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        cached = new DuplicateFinder(pool, new DuplicateFinder.HashCache());
+        cached.find(catalog, () -> false);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+        Corpus.delete(dir);
+    }
+
+    @Benchmark
+    public DuplicateFinder.Result firstRun() {
+        return new DuplicateFinder(pool, new DuplicateFinder.HashCache()).find(catalog, () -> false);
+    }
+
+    @Benchmark
+    public DuplicateFinder.Result cachedRun() {
+        return cached.find(catalog, () -> false);
+    }
+}
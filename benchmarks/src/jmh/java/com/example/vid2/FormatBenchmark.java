@@ -0,0 +1,83 @@
+package com.example.vid2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The duration, size and date labels of a bound row, per call, formatted into a reused char
+ * buffer the way the adapter does, next to the String.format based file size it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class FormatBenchmark {
+
+    private static final int VALUES = 1024;
+
+    private final MediaTextFormatter formatter = new MediaTextFormatter();
+    private final char[] out = new char[MediaTextFormatter.BUFFER_SIZE];
+    private final long[] durations = new long[VALUES];
+    private final long[] sizes = new long[VALUES];
+    private final long[] dates = new long[VALUES];
+    private long now;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        now = System.currentTimeMillis();
+        for (int i = 0; i < VALUES; i++) {
+            durations[i] = random.nextInt(3) == 0 ? random.nextInt(10_800_000) : random.nextInt(600_000);
+            sizes[i] = (long) (Math.pow(2, 10 + random.nextDouble() * 24));
+            // Today, this week and older
+            dates[i] = now - (long) (random.nextDouble() * random.nextDouble() * 400 * 86_400_000L);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int duration() {
+        int length = 0;
+        for (long value : durations) length += formatter.formatDuration(value, out);
+        return length;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int fileSize() {
+        int length = 0;
+        for (long value : sizes) length += formatter.formatFileSize(value, out);
+        return length;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int date() {
+        int length = 0;
+        for (long value : dates) length += formatter.formatDate(value, now, out);
+        return length;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int fileSizeStringFormat() {
+        int length = 0;
+        for (long value : sizes) length += oldFormatFileSize(value).length();
+        return length;
+    }
+
+    private static String oldFormatFileSize(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        if (bytes < 1024 * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+        return String.format("%.2f GB", bytes / (1024.0 * 1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.vid2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a library change costs before the list redraws: the catalog delta for a few added,
+ * changed and removed videos, moving the search index and the shown result along with it,
+ * and the item and content checks the adapter's diff makes over every shown row.
+ *
+ * The adapter only diffs small edits; a re-sort or a new filter is swapped in whole, and the
+ * check* benchmarks time telling the two apart. DiffUtil itself ships in an Android library
+ * and is not on this classpath, so what it would spend on a re-sort is not measured here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ListDiffBenchmark {
+
+    private static final int CHANGED = 20;
+    private static final int REMOVED = 10;
+    // VideoAdapter.MAX_DIFFED_EDITS
+    private static final int MAX_DIFFED_EDITS = 100;
+
+    @Param({"10000", "50000"})
+    int videos;
+
+    private VideoCatalog catalog;
+    private VideoCatalog changed;
+    private long[] removedIds;
+    private VideoCatalog.Delta delta;
+    private VideoSnapshot before;
+    private VideoSnapshot after;
+    private VideoSnapshot newestFirst;
+    private VideoSnapshot oldestFirst;
+    private VideoSnapshot filtered;
+
+    @Setup
+    public void setUp() {
+        catalog = Corpus.catalog(videos);
+        // Half new recordings, half edits of rows already in the catalog
+        VideoCatalog.Builder builder = new VideoCatalog.Builder(CHANGED);
+        for (int i = 0; i < CHANGED / 2; i++) {
+            builder.add(videos + 1 + i, "/storage/emulated/0/DCIM/Camera/new" + i + ".mp4", "new" + i + ".mp4",
+                    1 << 20, 30_000, Corpus.NOW_MS + 1000 + i, 1920, 1080);
+        }
+        for (int i = 0; i < CHANGED / 2; i++) {
+            int row = i * (videos / CHANGED);
+            builder.add(catalog.id(row), catalog.path(row), catalog.name(row), catalog.sizeBytes(row) + 1,
+                    catalog.durationMs(row), catalog.dateModifiedMs(row), catalog.width(row), catalog.height(row));
+        }
+        changed = builder.build();
+        removedIds = new long[REMOVED];
+        for (int i = 0; i < REMOVED; i++) removedIds[i] = catalog.id(videos - 1 - i * 7);
+
+        delta = catalog.withChanges(changed, removedIds);
+        int[] shown = new int[catalog.size()];
+        for (int i = 0; i < shown.length; i++) shown[i] = i;
+        before = new VideoSnapshot(catalog, shown);
+        int[] moved = new int[delta.catalog.size()];
+        for (int i = 0; i < moved.length; i++) moved[i] = i;
+        after = new VideoSnapshot(delta.catalog, moved);
+        // Entries are created on first use; the adapter has seen the old ones already
+        for (int i = 0; i < before.size(); i++) before.get(i);
+
+        VideoSort sort = new VideoSort(catalog);
+        newestFirst = new VideoSnapshot(catalog, sort.order(VideoSort.Key.DATE, true));
+        oldestFirst = new VideoSnapshot(catalog, sort.order(VideoSort.Key.DATE, false));
+        filtered = new VideoSnapshot(catalog, Corpus.someRows(videos, 20));
+    }
+
+    @Benchmark
+    public VideoCatalog.Delta catalogDelta() {
+        return catalog.withChanges(changed, removedIds);
+    }
+
+    /** A search index built on the old catalog, fresh for every call of {@link #moveSearch}. */
+    @State(Scope.Thread)
+    public static class IndexOnOldCatalog {
+        VideoSearchIndex index;
+        VideoSearchIndex.Result result;
+
+        @Setup(Level.Invocation)
+        public void setUp(ListDiffBenchmark benchmark) {
+            index = VideoSearchIndex.build(benchmark.catalog);
+            result = index.search("clip", false, null, () -> false);
+        }
+    }
+
+    @Benchmark
+    public VideoSearchIndex.Result moveSearch(IndexOnOldCatalog state) {
+        VideoSearchIndex moved = state.index.apply(delta);
+        return moved.remap(state.result, delta);
+    }
+
+    @Benchmark
+    public int itemCallbacks() {
+        // The adapter's DiffUtil asks both questions for every row that lines up
+        int same = 0;
+        int n = Math.min(before.size(), after.size());
+        for (int i = 0; i < n; i++) {
+            VideoEntry old = before.get(i);
+            VideoEntry now = after.get(i);
+            if (old.id == now.id && old.equals(now)) same++;
+        }
+        return same;
+    }
+
+    @Benchmark
+    public boolean checkDelta() {
+        return after.isSmallEditOf(before, MAX_DIFFED_EDITS);
+    }
+
+    @Benchmark
+    public boolean checkResort() {
+        return oldestFirst.isSmallEditOf(newestFirst, MAX_DIFFED_EDITS);
+    }
+
+    @Benchmark
+    public boolean checkFilter() {
+        return filtered.isSmallEditOf(newestFirst, MAX_DIFFED_EDITS);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.vid2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Name filtering as the search bar drives it: building the trigram index for a new catalog,
+ * a fresh query, a query that also matches folders, an accent-folded one, and the next
+ * keystroke narrowing the previous result. Also the folder picker: grouping the catalog by
+ * folder and filtering a result down to one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private static final BooleanSupplier NOT_CANCELLED = () -> false;
+
+    @Param({"10000", "50000"})
+    int videos;
+
+    private VideoCatalog catalog;
+    private VideoSearchIndex index;
+    private VideoSearchIndex.Result typedCl;
+    private VideoSort.Folders folders;
+    private int camera;
+
+    @Setup
+    public void setUp() {
+        catalog = Corpus.catalog(videos);
+        index = VideoSearchIndex.build(catalog);
+        typedCl = index.search("cl", false, null, NOT_CANCELLED);
+        folders = new VideoSort(catalog).folders();
+        camera = folders.indexOf("/storage/emulated/0/DCIM/Camera");
+    }
+
+    @Benchmark
+    public VideoSearchIndex buildIndex() {
+        return VideoSearchIndex.build(catalog);
+    }
+
+    @Benchmark
+    public VideoSearchIndex.Result query() {
+        return index.search("beach", false, null, NOT_CANCELLED);
+    }
+
+    @Benchmark
+    public VideoSearchIndex.Result queryWithFolders() {
+        return index.search("camera", true, null, NOT_CANCELLED);
+    }
+
+    @Benchmark
+    public VideoSearchIndex.Result queryAccentFolded() {
+        return index.search("zoe cafe", false, null, NOT_CANCELLED);
+    }
+
+    @Benchmark
+    public VideoSearchIndex.Result nextKeystroke() {
+        return index.search("cli", false, typedCl, NOT_CANCELLED);
+    }
+
+    @Benchmark
+    public VideoSort.Folders groupFolders() {
+        return new VideoSort(catalog).folders();
+    }
+
+    @Benchmark
+    public int[] filterFolder() {
+        return folders.filter(typedCl.rows, camera);
+    }
+}
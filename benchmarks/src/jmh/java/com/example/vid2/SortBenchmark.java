@@ -0,0 +1,84 @@
+package com.example.vid2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog sorting: the first order for a key on a new catalog, switching back to a cached
+ * one, and putting a search result in order through the cached positions, next to sorting
+ * it with a plain comparator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SortBenchmark {
+
+    @Param({"50000"})
+    int videos;
+
+    @Param({"NAME", "SIZE", "DATE"})
+    VideoSort.Key key;
+
+    private VideoCatalog catalog;
+    private VideoSort warm;
+    private int[] searchResult;
+    private Integer[] boxedSearchResult;
+    private Comparator<Integer> comparator;
+
+    @Setup
+    public void setUp() {
+        catalog = Corpus.catalog(videos);
+        warm = new VideoSort(catalog);
+        warm.order(key, false);
+        searchResult = Corpus.someRows(videos, videos / 10);
+        boxedSearchResult = Arrays.stream(searchResult).boxed().toArray(Integer[]::new);
+        comparator = comparator(key, catalog);
+    }
+
+    @Benchmark
+    public int[] firstOrder() {
+        return new VideoSort(catalog).order(key, false);
+    }
+
+    @Benchmark
+    public int[] cachedOrder() {
+        return warm.order(key, false);
+    }
+
+    @Benchmark
+    public int[] searchResultInOrder() {
+        return warm.sort(searchResult, key, false);
+    }
+
+    @Benchmark
+    public Integer[] searchResultByComparator() {
+        Integer[] rows = boxedSearchResult.clone();
+        Arrays.sort(rows, comparator);
+        return rows;
+    }
+
+    private static Comparator<Integer> comparator(VideoSort.Key key, VideoCatalog catalog) {
+        switch (key) {
+            case NAME:
+                return (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(catalog.name(a), catalog.name(b));
+            case SIZE:
+                return Comparator.comparingLong(catalog::sizeBytes);
+            case DURATION:
+                return Comparator.comparingLong(catalog::durationMs);
+            case DATE:
+                return Comparator.comparingLong(catalog::dateModifiedMs);
+            default:
+                return Comparator.comparingLong(row -> (long) catalog.width(row) * catalog.height(row));
+        }
+    }
+}
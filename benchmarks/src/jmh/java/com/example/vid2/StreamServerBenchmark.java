@@ -0,0 +1,96 @@
+package com.example.vid2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The LAN server over loopback: random 1 MB ranges of a 64 MB file, read the way a seeking
+ * player reads them, by one client and by sixteen at once. A score of n requests/s is n MB/s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class StreamServerBenchmark {
+
+    private static final long VIDEO_ID = 42;
+    private static final int FILE_SIZE = 64 * 1024 * 1024;
+    private static final int RANGE_SIZE = 1024 * 1024;
+
+    private File file;
+    private VideoStreamServer server;
+    private URL videoUrl;
+
+    /** One player: its own seek positions and read buffer. */
+    @State(Scope.Thread)
+    public static class Client {
+        final Random random = new Random(Thread.currentThread().getId());
+        final byte[] buffer = new byte[64 * 1024];
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("stream", ".mp4");
+        Random random = new Random(1);
+        byte[] chunk = new byte[1024 * 1024];
+        try (OutputStream out = new FileOutputStream(file)) {
+            for (int written = 0; written < FILE_SIZE; written += chunk.length) {
+                random.nextBytes(chunk);
+                out.write(chunk);
+            }
+        }
+        VideoCatalog catalog = new VideoCatalog.Builder(1)
+                .add(VIDEO_ID, file.getPath(), file.getName(), FILE_SIZE, 60_000, 0, 1920, 1080)
+                .build();
+        server = new VideoStreamServer(0, () -> catalog);
+        server.start();
+        videoUrl = new URL("http://127.0.0.1:" + server.getListeningPort() + VideoStreamServer.VIDEO_PATH + VIDEO_ID);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+        file.delete();
+    }
+
+    @Benchmark
+    public long rangeRequest(Client client) throws IOException {
+        return readRange(client);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long rangeRequestSixteenClients(Client client) throws IOException {
+        return readRange(client);
+    }
+
+    private long readRange(Client client) throws IOException {
+        int offset = client.random.nextInt(FILE_SIZE - RANGE_SIZE);
+        HttpURLConnection c = (HttpURLConnection) videoUrl.openConnection();
+        c.setRequestProperty("Range", "bytes=" + offset + "-" + (offset + RANGE_SIZE - 1));
+        long total = 0;
+        // Read to the end and close, so the connection is kept alive for the next request
+        try (InputStream in = c.getInputStream()) {
+            int n;
+            while ((n = in.read(client.buffer)) > 0) total += n;
+        }
+        if (total != RANGE_SIZE) throw new IOException("Read " + total + " bytes of a " + RANGE_SIZE + " byte range");
+        return total;
+    }
+}
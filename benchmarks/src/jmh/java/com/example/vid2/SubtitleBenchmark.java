@@ -0,0 +1,60 @@
+package com.example.vid2;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Subtitle parsing of a feature-length file (2,000 cues) per format, and the cue lookup the
+ * player makes on every position update.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class SubtitleBenchmark {
+
+    private static final int CUES = 2_000;
+    private static final int LOOKUPS = 1024;
+
+    @Param({"SRT", "VTT", "ASS"})
+    SubtitleParser.Format format;
+
+    private byte[] file;
+    private SubtitleTrack track;
+    private final long[] positions = new long[LOOKUPS];
+    private final int[] cues = new int[8];
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Corpus.subtitles(format, CUES);
+        track = parse();
+        if (track.size() != CUES) throw new IllegalStateException(track.size() + " cues parsed");
+        long end = track.endMs(track.size() - 1);
+        for (int i = 0; i < LOOKUPS; i++) positions[i] = end * i / LOOKUPS;
+    }
+
+    @Benchmark
+    public SubtitleTrack parse() throws IOException {
+        SubtitleTrack.Builder builder = new SubtitleTrack.Builder();
+        SubtitleParser.parse(new ByteArrayInputStream(file), format, builder, b -> true);
+        return builder.build();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int cueLookup() {
+        int shown = 0;
+        for (long position : positions) shown += track.cuesAt(position, cues);
+        return shown;
+    }
+}